@@ -4,6 +4,10 @@ import android.app.Application;
 
 import com.firebase.client.Firebase;
 
+import osu.crowd_ml.data.AssetDataSource;
+import osu.crowd_ml.logging.AndroidLogger;
+import osu.crowd_ml.logging.Log;
+
 /*
 Copyright 2017 Crowd-ML team
 
@@ -31,5 +35,9 @@ public class CrowdMLApplication extends Application {
         super.onCreate();
         Firebase.setAndroidContext(this);
         instance = this;
+
+        // The training engine is platform independent, point it at logcat and the assets.
+        Log.setLogger(new AndroidLogger());
+        TrainingDataIO.getInstance().setDataSource(new AssetDataSource(this));
     }
 }
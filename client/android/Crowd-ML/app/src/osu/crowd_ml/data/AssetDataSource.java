@@ -0,0 +1,74 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the sources from the app's assets.
+ */
+public final class AssetDataSource implements DataSource {
+
+    private final Context context;
+
+    public AssetDataSource(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        return context.getAssets().open(name);
+    }
+
+    /**
+     * Assets stored uncompressed in the APK are read with positioned reads; compressed assets
+     * fall back to a forward-only stream.
+     */
+    @Override
+    public IndexedTextReader openIndexed(String name, LineIndex index) throws IOException {
+        AssetManager assets = context.getAssets();
+        try {
+            AssetFileDescriptor afd = assets.openFd(name);
+            return IndexedTextReader.forChannel(index,
+                    afd.createInputStream().getChannel(), afd.getStartOffset());
+        } catch (IOException e) {
+            // Compressed asset, can't be opened as a file descriptor.
+            return IndexedTextReader.forStream(index, assets.open(name));
+        }
+    }
+
+    /**
+     * The assets can only change when the app package is updated, so the package's modification
+     * time identifies the version of every source.
+     */
+    @Override
+    public long getSourceStamp(String name) {
+        return new File(context.getPackageCodePath()).lastModified();
+    }
+
+    @Override
+    public File getCacheDir() {
+        return context.getFilesDir();
+    }
+}
@@ -0,0 +1,32 @@
+package osu.crowd_ml.logging;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * Sends the messages of the training engine to logcat.
+ */
+public final class AndroidLogger implements Logger {
+
+    @Override
+    public void log(int priority, String tag, String msg, Throwable tr) {
+        if (tr != null) {
+            msg = msg + '\n' + android.util.Log.getStackTraceString(tr);
+        }
+        android.util.Log.println(priority, tag, msg);
+    }
+}
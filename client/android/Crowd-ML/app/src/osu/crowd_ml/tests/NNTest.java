@@ -2,9 +2,11 @@ package osu.crowd_ml.tests;
 
 import android.content.Context;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import osu.crowd_ml.loss_functions.MLP;
+import osu.crowd_ml.utils.ArrayUtils;
+
 /*
 Copyright 2016 Crowd-ML team
 
@@ -23,107 +25,29 @@ limitations under the License
 */
 public class NNTest implements ModelTest {
 
+    // Hidden layer widths, or null for two layers of width nh
+    private final int[] hidden;
+
+    public NNTest() {
+        this(null);
+    }
+
+    /**
+     * @param hidden -- the hidden layer widths of the network, as in
+     *               {@link MLP#parseHiddenLayers(String, int)}
+     */
+    public NNTest(int[] hidden) {
+        this.hidden = hidden;
+    }
+
     public double accuracy(Context context, List<Double> weightVals, List<Integer> testLabels, List<double[]> testFeatures, int testN, int D, int K, int nh){
 
+        MLP net = new MLP(D, hidden != null ? hidden : new int[]{nh, nh}, K);
+        double[] weights = ArrayUtils.toArray(weightVals, new double[weightVals.size()]);
         int correct = 0;
         for(int i = 0; i < testN; i++){
-            double[] X = testFeatures.get(i);
-            Integer Y = testLabels.get(i);
-
-            int length = D*nh + nh + nh*nh + nh + nh*K + K;
-
-            List<Double> W01 = new ArrayList<Double>(D*nh);
-            List<Double> b1 = new ArrayList<Double>(nh);
-            List<Double> W12 = new ArrayList<Double>(nh*nh);
-            List<Double> b2 = new ArrayList<Double>(nh);
-            List<Double> W23 = new ArrayList<Double>(nh*K);
-            List<Double> b3 = new ArrayList<Double>(K);
-
-            //Parse Parameters
-            int count = 0;
-            int end = count + D*nh;
-            while(count < end){
-                W01.add(weightVals.get(count));
-                count++;
-            }
-            end = count + nh;
-            while(count < end){
-                b1.add(weightVals.get(count));
-                count++;
-            }
-            end = count + nh*nh;
-            while(count < end){
-                W12.add(weightVals.get(count));
-                count++;
-            }
-            end = count + nh;
-            while(count < end){
-                b2.add(weightVals.get(count));
-                count++;
-            }
-            end = count + nh*K;
-            while(count < end){
-                W23.add(weightVals.get(count));
-                count++;
-            }
-            end = count + K;
-            while(count < end){
-                b3.add(weightVals.get(count));
-                count++;
-            }
-
-            //Forward Pass
-
-            double dot;
-            double sum;
-            List<Double> h1 = new ArrayList<Double>(nh);
-            for(int h = 0; h < nh; h++){
-                dot = 0;
-                for(int j = 0; j < D; j++){
-                    dot += X[j]*W01.get(h + j*(nh));
-                }
-                sum = dot + b1.get(h);
-                if(sum > 0) {
-                    h1.add(sum);
-                }
-                else{
-                    h1.add(0.0);
-                }
-            }
-
-            List<Double> h2 = new ArrayList<Double>(nh);
-            for(int h = 0; h < nh; h++){
-                dot = 0;
-                for(int j = 0; j < nh; j++){
-                    dot += h1.get(j)*W12.get(h + j*(nh));
-                }
-                sum = dot + b2.get(h);
-                if(sum > 0) {
-                    h2.add(sum);
-                }
-                else{
-                    h2.add(0.0);
-                }
-            }
-
-            List<Double> scores = new ArrayList<Double>(K);
-            for(int h = 0; h < K; h++){
-                dot = 0;
-                for(int j = 0; j < nh; j++){
-                    dot += h2.get(j)*W23.get(h + j*(K));
-                }
-                sum = dot + b3.get(h);
-                scores.add(sum);
-            }
-            int bestGuess = 0;
-            for(int h = 0; h < K; h++){
-                if(scores.get(h)>scores.get(bestGuess)){
-                    bestGuess = h;}
-            }
-
-            if(bestGuess == Y){
+            if(net.predict(weights, testFeatures.get(i)) == testLabels.get(i)){
                 correct++;}
-
         }
 
         double accuracy = 100*correct/testN;
@@ -131,4 +55,4 @@ public class NNTest implements ModelTest {
 
     }
 
-}
\ No newline at end of file
+}
@@ -31,6 +31,8 @@ import osu.crowd_ml.CrowdMLApplication;
 import osu.crowd_ml.Parameters;
 import osu.crowd_ml.R;
 import osu.crowd_ml.TrainingDataIO;
+import osu.crowd_ml.data.Batch;
+import osu.crowd_ml.data.Dataset;
 
 public class TensorFlowTrainer implements Trainer {
 
@@ -41,6 +43,16 @@ public class TensorFlowTrainer implements Trainer {
     private int t;
     private boolean first;
 
+    // Reused across steps to avoid reallocating the minibatch.
+    private Batch batch;
+    private float[] trainLabelBatch;
+
+    // Decoded test tensors and the test set and K they were decoded for, see loadTestTensors().
+    private float[] testFeatures;
+    private float[] testLabels;
+    private Dataset testSet;
+    private int testK;
+
     private static TensorFlowTrainer instance = null;
 
     private TensorFlowTrainingInterface trainingInterface = null;
@@ -99,20 +111,25 @@ public class TensorFlowTrainer implements Trainer {
 
         Trace.endSection();
 
-        for (int i = 0; i < numIterations; i++) {
+        if (trainLabelBatch == null || trainLabelBatch.length != batchSize * K) {
+            trainLabelBatch = new float[batchSize * K];
+        }
 
-            float[] trainFeatureBatch;
-            float[] trainLabelBatch;
+        for (int i = 0; i < numIterations; i++) {
 
             int[] indices = new int[batchSize];
             for (int j = 0; j < batchSize; j++){
                 indices[j] = new Random().nextInt(N);
             }
 
-            // Get the training feature
-            trainFeatureBatch = TrainingDataIO.getInstance().getTFFeatureBatch(indices, params);
-            // Get the training label
-            trainLabelBatch = TrainingDataIO.getInstance().getTFLabelBatch(indices, params);
+            // Get the training features and labels in a single pass.
+            batch = TrainingDataIO.getInstance().readBatch(indices, params, batch);
+            if (batch.size() != batchSize) {
+                // Interrupted
+                break;
+            }
+            float[] trainFeatureBatch = batch.features();
+            batch.oneHotLabels(trainLabelBatch, K);
 
             // Copy the training data into TensorFlow.
             Trace.beginSection("feed");
@@ -134,8 +151,7 @@ public class TensorFlowTrainer implements Trainer {
             Log.d("TFTrainingInterface", i + " iteration");
 
             if (i == 0 || (i+1) % stepsToTest == 0){
-                float[] testFeatures = TrainingDataIO.getInstance().getTFTestFeatures(testN, params);
-                float[] testLabels = TrainingDataIO.getInstance().getTFTestingLabels(testN, params);
+                loadTestTensors();
                 // Copy the test data into TensorFlow.
                 Trace.beginSection("feed");
                 trainingInterface.feed(feedName, testFeatures, testN, D);
@@ -165,6 +181,24 @@ public class TensorFlowTrainer implements Trainer {
         return newWeights;
     }
 
+    /**
+     * Decodes the test features and 1-hot labels once and keeps them for every later evaluation.
+     * They are decoded again only when TrainingDataIO loads a different test set, e.g. for a new
+     * D or data source, or K changes.
+     */
+    private void loadTestTensors() {
+        TrainingDataIO io = TrainingDataIO.getInstance();
+        Dataset test = io.getTestSet(TrainingDataIO.TEST_FEATURES, TrainingDataIO.TEST_LABELS,
+                params.getD());
+        if (test != null && test == testSet && params.getK() == testK) {
+            return;
+        }
+        testFeatures = io.getTFTestFeatures(testN, params);
+        testLabels = io.getTFTestingLabels(testN, params);
+        testSet = test;
+        testK = params.getK();
+    }
+
     @Override
     public List<Double> getNoisyGrad() {
         // TODO(tylermzeller): How to get gradients from tensorflow?
@@ -192,6 +226,11 @@ public class TensorFlowTrainer implements Trainer {
     @Override
     public void destroy() {
         trainingInterface.close();
+        batch = null;
+        trainLabelBatch = null;
+        testFeatures = null;
+        testLabels = null;
+        testSet = null;
         weights = null;
         params = null;
         instance = null;
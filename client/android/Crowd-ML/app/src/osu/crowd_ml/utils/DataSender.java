@@ -32,8 +32,8 @@ import osu.crowd_ml.Parameters;
 import osu.crowd_ml.TrainingWeights;
 import osu.crowd_ml.UserData;
 import osu.crowd_ml.trainers.TensorFlowTrainer;
-import osu.crowd_ml.trainers.InternalTrainer;
 import osu.crowd_ml.trainers.Trainer;
+import osu.crowd_ml.trainers.Trainers;
 
 public final class DataSender {
 
@@ -235,11 +235,11 @@ public final class DataSender {
                 if (userCheck.getGradientProcessed() && userCheck.getGradIter() == gradientIteration) {
 
                     // Step 7. Setup the ML training libraries
-                    // Is it a TensorFlow or Internal Trainer?
+                    // Is it a TensorFlow Trainer or one of the internal local solvers?
                     if ("tf".equals(params.getLossFunction().lossFunctionName())) {
                         trainer = TensorFlowTrainer.getInstance();
                     } else {
-                        trainer = InternalTrainer.getInstance();
+                        trainer = Trainers.forParams(params);
                     }
 
                     // Step 8. Check the localUpdateNum for the type of processing the client should do.
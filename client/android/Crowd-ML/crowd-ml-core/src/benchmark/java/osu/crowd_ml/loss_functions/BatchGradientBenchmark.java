@@ -0,0 +1,110 @@
+package osu.crowd_ml.loss_functions;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+
+/**
+ * Times {@link LossFunction#batchGradient} against summing {@link LossFunction#gradient} one
+ * sample at a time, on MNIST-shaped data at the batch sizes used by clients. BatchGradientTest
+ * checks that both agree; this only prints the time per batch of each and the speedup, e.g.
+ * <pre>
+ *   SoftmaxNN B=100: per sample 17.20 ms, batched 6.25 ms, speedup 2.8x
+ * </pre>
+ *
+ * It takes several seconds and is not part of {@code gradle test}; run it with
+ * {@code gradle :crowd-ml-core:benchmark}.
+ */
+public class BatchGradientBenchmark {
+
+    private static final int D = 785;
+    private static final int K = 10;
+    private static final int NH = 64;
+    private static final double L = 1e-4;
+    private static final int[] BATCH_SIZES = {10, 100, 1000};
+    private static final int TRIALS = 5;
+
+    @Test
+    public void softmax() {
+        benchmark(new Softmax());
+    }
+
+    @Test
+    public void softmaxNN() {
+        benchmark(new SoftmaxNN());
+    }
+
+    private static void benchmark(LossFunction loss) {
+        Parameters params = new Parameters();
+        params.setD(D);
+        params.setK(K);
+        params.setNH(NH);
+        loss.setLength(params);
+        int length = loss.getLength();
+
+        Random random = new Random(42);
+        double[] weights = new double[length];
+        for (int i = 0; i < length; i++) {
+            weights[i] = random.nextGaussian() * 0.01;
+        }
+
+        for (int B : BATCH_SIZES) {
+            // Pixel-like features: mostly zeros, the rest in [0, 255].
+            float[] X = new float[B * D];
+            int[] Y = new int[B];
+            for (int i = 0; i < X.length; i++) {
+                X[i] = random.nextInt(5) == 0 ? random.nextInt(256) / 255f : 0;
+            }
+            for (int b = 0; b < B; b++) {
+                Y[b] = random.nextInt(K);
+            }
+
+            // Repeat small batches so every measurement covers a similar amount of work.
+            int reps = Math.max(3, 3000 / B);
+            double perSampleMs = time(loss, weights, X, Y, B, reps, false);
+            double batchedMs = time(loss, weights, X, Y, B, reps, true);
+            System.out.println(String.format(Locale.US,
+                    "%s B=%d: per sample %.2f ms, batched %.2f ms, speedup %.1fx",
+                    loss.lossFunctionName(), B, perSampleMs, batchedMs, perSampleMs / batchedMs));
+        }
+    }
+
+    private static void perSample(LossFunction loss, double[] weights, float[] X, int[] Y, int B,
+                                  double[] grad) {
+        double[] x = new double[D];
+        for (int b = 0; b < B; b++) {
+            for (int j = 0; j < D; j++) {
+                x[j] = X[b * D + j];
+            }
+            loss.gradient(weights, x, Y[b], D, K, L, NH, 1.0 / B, grad);
+        }
+    }
+
+    /**
+     * @return the mean time of one batch in milliseconds over the fastest of TRIALS runs of reps
+     * batches each, after a warm up of the same length.
+     */
+    private static double time(LossFunction loss, double[] weights, float[] X, int[] Y, int B,
+                               int reps, boolean batched) {
+        double[] grad = new double[weights.length];
+        long best = Long.MAX_VALUE;
+        for (int trial = 0; trial <= TRIALS; trial++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                if (batched) {
+                    loss.batchGradient(weights, X, Y, 0, B, D, K, L, NH, 1.0 / B, grad);
+                } else {
+                    perSample(loss, weights, X, Y, B, grad);
+                }
+            }
+            // Trial 0 is the warm up.
+            if (trial > 0) {
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        return best / 1e6 / reps;
+    }
+}
@@ -0,0 +1,327 @@
+package osu.crowd_ml;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import osu.crowd_ml.loss_functions.Hinge;
+import osu.crowd_ml.loss_functions.LogReg;
+import osu.crowd_ml.loss_functions.LossFunction;
+import osu.crowd_ml.loss_functions.MultiSVM;
+import osu.crowd_ml.loss_functions.Softmax;
+import osu.crowd_ml.loss_functions.SoftmaxNN;
+import osu.crowd_ml.loss_functions.TensorFlowLF;
+import osu.crowd_ml.noise_distributions.Distribution;
+import osu.crowd_ml.noise_distributions.Gaussian;
+import osu.crowd_ml.noise_distributions.Laplace;
+import osu.crowd_ml.noise_distributions.NoNoise;
+
+public class Parameters {
+    private int paramIter;
+    private double L;
+    private int K;
+    private double noiseScale;
+    private Distribution noiseDistribution;
+    private LossFunction lossFunction;
+    private String labelSource;
+    private String featureSource;
+    private int D;
+    private int N;
+    private int nh;
+    private String hiddenLayers = "";
+    private int localUpdateNum;
+    private int clientBatchSize;
+    private int maxIter;
+    private double c;
+    private double eps;
+    private String descentAlg;
+    private String dataFormat = "binary";
+    private int datasetCacheMB = 64;
+    private String featureStorage = "auto";
+    private boolean sparseFeatures = false;
+    private int sampleBlockSize = 1;
+    private int gradientThreads = 1;
+    private int hogwildThreads = 1;
+    private String localSolver = "sgd";
+    private double admmRho = 1;
+    private String precision = "float64";
+
+
+    public Parameters() {
+
+    }
+
+    public int getParamIter(){
+        return paramIter;
+    }
+    public void setParamIter(int iter){
+        paramIter = iter;
+    }
+
+    public double getL(){
+        return L;
+    }
+    public void setL(double regConst){
+        L = regConst;
+    }
+
+    public double getNoiseScale(){
+       return noiseScale;
+    }
+    public void setNoiseScale(double var){
+        noiseScale = var;
+    }
+
+    public Distribution getNoiseDistribution(){
+        return noiseDistribution;
+    }
+    public void setNoiseDistribution(String noiseDistributionName){
+        switch (noiseDistributionName) {
+            case "NoNoise":
+                noiseDistribution = new NoNoise();
+                break;
+            case "Gaussian":
+                noiseDistribution = new Gaussian();
+                break;
+            case "Laplace":
+                noiseDistribution = new Laplace();
+                break;
+            default:
+                noiseDistribution = new NoNoise();
+                break;
+        }
+    }
+
+    public int getK(){
+        return K;
+    }
+    public void setK(int kVal){
+        K = kVal;
+    }
+
+    public LossFunction getLossFunction(){
+        return lossFunction;
+    }
+    public void setLossFunction(String lossFunctionName){
+        switch (lossFunctionName) {
+            case "LogReg":
+                lossFunction = new LogReg();
+                break;
+            case "Hinge":
+                lossFunction = new Hinge();
+                break;
+            case "Softmax":
+                lossFunction = new Softmax();
+                break;
+            case "MultiSVM":
+                lossFunction = new MultiSVM();
+                break;
+            case "SoftmaxNN":
+                lossFunction = new SoftmaxNN();
+                break;
+            case "tf":
+                lossFunction = new TensorFlowLF();
+                break;
+            default:
+                lossFunction = new LogReg();
+                break;
+        }
+    }
+
+    public String getLabelSource(){
+        return labelSource;
+    }
+    public void setLabelSource(String label){
+        labelSource = label;
+    }
+
+    public String getFeatureSource(){
+        return featureSource;
+    }
+    public void setFeatureSource(String features){
+        featureSource = features;
+    }
+
+    public int getD(){
+        return D;
+    }
+    public void setD(int dVal){
+        D = dVal;
+    }
+
+    public int getN(){
+        return N;
+    }
+    public void setN(int nVal){
+        N = nVal;
+    }
+
+    public int getNH(){
+        return nh;
+    }
+    public void setNH(int nhVar){
+        nh = nhVar;
+    }
+
+    /**
+     * @return the widths of the SoftmaxNN hidden layers from the input side, separated by
+     * commas, e.g. "128,64". Empty for two layers of width nh.
+     */
+    public String getHiddenLayers() {
+        return hiddenLayers;
+    }
+
+    public void setHiddenLayers(String widths) {hiddenLayers = widths;}
+
+    public int getClientBatchSize(){
+        return clientBatchSize;
+    }
+    public void setClientBatchSize(int bSize){
+        clientBatchSize = bSize;
+    }
+
+    public int getLocalUpdateNum() { return localUpdateNum;}
+    public void setLocalUpdateNum(int size){ localUpdateNum = size;}
+
+    public double getC() {return c;}
+    public void setC ( double cVal){ c = cVal;}
+
+    public double getEps() {return eps;}
+    public void setEps(double epsVal){eps = epsVal;}
+
+    /**
+     * @return the descent rule of the local steps: "constant", "simple", "sqrt", "adagrad",
+     * "rmsProp", "adam", "momentum" or "nesterov". See osu.crowd_ml.optimizers.
+     */
+    public String getDescentAlg() {
+        return descentAlg;
+    }
+
+    public void setDescentAlg(String descentAlgVal) {descentAlg = descentAlgVal;}
+
+    /**
+     * @return "binary" to train from a memory-mapped binary copy of the sources, "text" to read
+     * the text sources in place through a line index, or "libsvm" if the feature source is a
+     * sparse LibSVM file that also carries the labels.
+     */
+    public String getDataFormat() {
+        return dataFormat;
+    }
+
+    public void setDataFormat(String format) {dataFormat = format;}
+
+    /**
+     * @return the largest training set, in megabytes, that is kept resident in memory.
+     */
+    public int getDatasetCacheMB() {
+        return datasetCacheMB;
+    }
+
+    public void setDatasetCacheMB(int megabytes) {datasetCacheMB = megabytes;}
+
+    /**
+     * @return how the binary copy stores features: "float32", "uint8" (one byte per feature with
+     * a per-dataset scale and offset, lossy for non-integer data), or "auto" to use uint8 only
+     * when it reproduces every feature exactly.
+     */
+    public String getFeatureStorage() {
+        return featureStorage;
+    }
+
+    public void setFeatureStorage(String storage) {featureStorage = storage;}
+
+    /**
+     * @return whether minibatches of dense data are handed to the loss function in sparse form,
+     * so that the cost of a sample scales with its nonzero features instead of D. "libsvm" data
+     * is always trained in sparse form.
+     */
+    public boolean isSparseFeatures() {
+        return sparseFeatures;
+    }
+
+    public void setSparseFeatures(boolean sparse) {sparseFeatures = sparse;}
+
+    /**
+     * @return the number of consecutive training samples drawn together by InternalTrainer. 1
+     * draws samples independently; larger blocks read the training set in contiguous runs.
+     */
+    public int getSampleBlockSize() {
+        return sampleBlockSize;
+    }
+
+    public void setSampleBlockSize(int blockSize) {sampleBlockSize = blockSize;}
+
+    /**
+     * @return the number of threads InternalTrainer splits each minibatch gradient between, or 0
+     * for one per available processor. The result does not depend on the thread count, and at
+     * most 8 threads work on one minibatch.
+     */
+    public int getGradientThreads() {
+        return gradientThreads;
+    }
+
+    public void setGradientThreads(int threads) {gradientThreads = threads;}
+
+    /**
+     * @return the number of threads InternalTrainer runs the local steps of train() on, or 0 for
+     * one per available processor. With more than one, each thread takes its own steps on its own
+     * minibatches and updates the shared weights without locks (Hogwild). Unlike
+     * {@link #getGradientThreads()}, the result then depends on thread scheduling.
+     */
+    public int getHogwildThreads() {
+        return hogwildThreads;
+    }
+
+    public void setHogwildThreads(int threads) {hogwildThreads = threads;}
+
+    /**
+     * @return the solver the client's local steps use: "sgd" for InternalTrainer, "svrg",
+     * "saga" or "sdca" for the variance-reduced solvers of LogReg, Hinge and Softmax, which take
+     * c as a constant step size (SDCA needs none, but needs L > 0), "lbfgs" for L-BFGS over all
+     * local samples with LogReg and Softmax, or "admm" for consensus ADMM on top of
+     * InternalTrainer. See Trainers.forParams().
+     */
+    public String getLocalSolver() {
+        return localSolver;
+    }
+
+    public void setLocalSolver(String solver) {localSolver = solver;}
+
+    /**
+     * @return the penalty rho of the "admm" local solver, weighting the proximal term
+     * rho / 2 ||x - z + u||^2 that pulls each client's weights towards the consensus.
+     */
+    public double getAdmmRho() {
+        return admmRho;
+    }
+
+    public void setAdmmRho(double rho) {admmRho = rho;}
+
+    /**
+     * @return "float64", or "float32" for InternalTrainer to compute the gradient of dense
+     * minibatches with float32 weights and gradients. The weights themselves and their updates
+     * stay float64 either way.
+     */
+    public String getPrecision() {
+        return precision;
+    }
+
+    public void setPrecision(String precision) {this.precision = precision;}
+
+    public int getMaxIter() {return maxIter;}
+
+    public void setMaxIter(int max){maxIter = max;}
+}
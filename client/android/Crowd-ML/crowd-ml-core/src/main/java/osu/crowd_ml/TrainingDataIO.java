@@ -0,0 +1,663 @@
+package osu.crowd_ml;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import osu.crowd_ml.data.Batch;
+import osu.crowd_ml.data.ByteLineReader;
+import osu.crowd_ml.data.DataSource;
+import osu.crowd_ml.data.Dataset;
+import osu.crowd_ml.data.DatasetConverter;
+import osu.crowd_ml.data.IndexedTextReader;
+import osu.crowd_ml.data.LineIndex;
+import osu.crowd_ml.data.MappedDataset;
+import osu.crowd_ml.data.NumberParser;
+import osu.crowd_ml.data.QuantizedDataset;
+import osu.crowd_ml.data.ResidentDataset;
+import osu.crowd_ml.data.SparseDataset;
+import osu.crowd_ml.logging.Log;
+import osu.crowd_ml.loss_functions.LossFunction;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+public class TrainingDataIO {
+
+    public static synchronized TrainingDataIO getInstance() {
+        if(instance == null) instance = new TrainingDataIO();
+        return instance;
+    }
+
+    private static TrainingDataIO instance;
+
+    private TrainingDataIO() {}
+
+    private static final String TAG = "TrainingDataIO";
+
+    // Test sources read by getTFTestFeatures() and getTFTestingLabels().
+    // TODO: hardcoded for MNIST 10 class
+    public static final String TEST_FEATURES = "MNISTTestImages.dat";
+    public static final String TEST_LABELS = "MNISTTestLabels.dat";
+
+    // Where the sources are read from, see setDataSource().
+    private DataSource source;
+
+    // Training set served to every trainer, see getDataset().
+    private Dataset dataset;
+    private String datasetKey;
+
+    // Binary copy of the current feature/label sources, see getMappedDataset().
+    private MappedDataset mapped;
+    private String mappedKey;
+    private String failedKey;
+
+    // Resident test set, see getTestSet().
+    private Dataset testSet;
+    private String testSetKey;
+
+    // Line indices of text sources, see getLineIndex().
+    private final Map<String, LineIndex> lineIndices = new HashMap<>();
+
+    /**
+     * Reads every later dataset, batch and test set from source. Anything loaded from the
+     * previous source is dropped.
+     */
+    public synchronized void setDataSource(DataSource source) {
+        this.source = source;
+        dataset = null;
+        datasetKey = null;
+        mapped = null;
+        mappedKey = null;
+        failedKey = null;
+        testSet = null;
+        testSetKey = null;
+        lineIndices.clear();
+    }
+
+    private synchronized DataSource source() {
+        if (source == null) {
+            throw new IllegalStateException("No data source, see setDataSource()");
+        }
+        return source;
+    }
+
+    /**
+     * Returns the training set described by params. InternalTrainer, TensorFlowTrainer and the
+     * accuracy tests all read through this one instance.
+     *
+     * If the whole set fits in {@link Parameters#getDatasetCacheMB()} it is loaded once into
+     * memory and every later batch is served without I/O. Otherwise the memory-mapped binary copy
+     * is returned.
+     *
+     * LibSVM data is always loaded into memory as a {@link SparseDataset}.
+     *
+     * @param params -- supplies the sources, D, the data format and the cache budget
+     * @return the dataset, or null if the caller should read the text sources on disk.
+     */
+    public synchronized Dataset getDataset(final Parameters params) {
+        String format = params.getDataFormat();
+        boolean text = "text".equals(format);
+        String featureSrc = params.getFeatureSource();
+        String labelSrc = params.getLabelSource();
+        int D = params.getD();
+        long budget = (long) params.getDatasetCacheMB() << 20;
+        String key = featureSrc + "." + labelSrc + "." + D + "." + format + "." + budget + "."
+                + params.getFeatureStorage();
+
+        // Step 1. Reuse the current dataset if nothing has changed.
+        if (key.equals(datasetKey)) {
+            return dataset;
+        }
+        // Release the previous dataset before loading a new one.
+        dataset = null;
+        datasetKey = null;
+
+        // LibSVM sources are sparse and always kept in memory.
+        if ("libsvm".equals(format)) {
+            try {
+                SparseDataset sparse = SparseDataset.parseLibSvm(source().open(featureSrc), D);
+                Log.d(TAG, "Loaded " + sparse.size() + " sparse samples with "
+                        + sparse.nonZeros() + " nonzero features into memory.");
+                dataset = sparse;
+                datasetKey = key;
+            } catch (InterruptedIOException e) {
+                // Try again next time.
+                return null;
+            } catch (IOException e) {
+                Log.e(TAG, "Could not read LibSVM training data " + featureSrc, e);
+            }
+            return dataset;
+        }
+
+        // Step 2. Find out how large the set is.
+        MappedDataset source = null;
+        LineIndex index = null;
+        int N;
+        if (text) {
+            index = getLineIndex(featureSrc);
+            N = index == null ? -1 : index.size();
+        } else {
+            source = getMappedDataset(params);
+            N = source == null ? -1 : source.size();
+        }
+
+        // Step 3. Load it into memory if it fits the budget. Quantized features stay quantized.
+        boolean quantized = source != null
+                && source.getFeatureType() == MappedDataset.FEATURE_UINT8;
+        long bytes = quantized ? QuantizedDataset.bytesFor(N, D) : ResidentDataset.bytesFor(N, D);
+        Dataset result = source;
+        if (N >= 0 && bytes <= budget) {
+            try {
+                if (quantized) {
+                    result = QuantizedDataset.copyOf(source);
+                } else if (source != null) {
+                    result = ResidentDataset.copyOf(source);
+                } else {
+                    result = ResidentDataset.parse(
+                            source().open(featureSrc), source().open(labelSrc), D, index.size());
+                }
+                Log.d(TAG, "Loaded " + N + " samples into memory.");
+            } catch (InterruptedIOException e) {
+                // Try again next time.
+                return source;
+            } catch (IOException e) {
+                Log.e(TAG, "Could not load training data into memory.", e);
+            } catch (OutOfMemoryError e) {
+                Log.w(TAG, "Not enough memory for the dataset cache, reading from disk.");
+            }
+        }
+
+        dataset = result;
+        datasetKey = key;
+        return dataset;
+    }
+
+    /**
+     * Returns a test set loaded into memory. Test sets are small and read in full on every
+     * evaluation, so they are always cached.
+     *
+     * @param featureSrc -- name of the test feature source
+     * @param labelSrc -- name of the test label source
+     * @param D -- number of features per sample
+     * @return the test set, or null if it could not be read.
+     */
+    public synchronized Dataset getTestSet(String featureSrc, String labelSrc, int D) {
+        String key = featureSrc + "." + labelSrc + "." + D;
+        if (key.equals(testSetKey)) {
+            return testSet;
+        }
+        testSet = null;
+        testSetKey = null;
+        try {
+            DataSource source = source();
+            testSet = ResidentDataset.parse(source.open(featureSrc), source.open(labelSrc), D, 0);
+            testSetKey = key;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read test set " + featureSrc, e);
+        }
+        return testSet;
+    }
+
+    /**
+     * Returns a memory-mapped binary copy of the training set described by params, converting the
+     * text sources on first use. The binary file lives in the data source's cache directory and is
+     * reconverted whenever either source changes. Each
+     * {@link Parameters#getFeatureStorage() feature storage} setting has its own file.
+     *
+     * @param params -- supplies the feature source, label source, D and feature storage
+     * @return the mapped dataset, or null if it could not be created and the caller should fall
+     * back to scanning the text sources.
+     */
+    private synchronized MappedDataset getMappedDataset(final Parameters params) {
+        String featureSrc = params.getFeatureSource();
+        String labelSrc = params.getLabelSource();
+        int D = params.getD();
+        String storage = params.getFeatureStorage();
+        String key = featureSrc + "." + labelSrc + "." + D + "." + storage;
+
+        // Step 1. Reuse the open mapping if the sources have not changed.
+        if (key.equals(mappedKey)) {
+            return mapped;
+        }
+        if (key.equals(failedKey)) {
+            return null;
+        }
+        mapped = null;
+        mappedKey = null;
+
+        DataSource source = source();
+        File file = new File(source.getCacheDir(),
+                featureSrc + "." + labelSrc + "." + storage + ".bin");
+        long stamp = Math.max(source.getSourceStamp(featureSrc), source.getSourceStamp(labelSrc));
+
+        // Step 2. Try a previously converted file.
+        if (file.exists()) {
+            try {
+                MappedDataset existing = MappedDataset.open(file);
+                if (existing.getSourceStamp() == stamp && existing.dimension() == D) {
+                    mapped = existing;
+                    mappedKey = key;
+                    return mapped;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Discarding unreadable dataset " + file, e);
+            }
+        }
+
+        // Step 3. Convert the text sources. When quantizing, the float32 conversion is only an
+        // intermediate file, so an interrupted run never leaves it at the final path.
+        File raw = "float32".equals(storage) ? file : new File(file.getPath() + ".f32");
+        try {
+            Log.d(TAG, "Converting " + featureSrc + " and " + labelSrc + " to " + file);
+            DatasetConverter.convert(source.open(featureSrc), source.open(labelSrc), D, stamp, raw);
+
+            // Step 4. Quantize the features if requested.
+            if (raw != file) {
+                boolean exactOnly = !"uint8".equals(storage);
+                boolean quantized = false;
+                try {
+                    quantized = DatasetConverter.quantize(MappedDataset.open(raw), exactOnly, file);
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not quantize training data, keeping float32.", e);
+                }
+                if (!quantized && ((file.exists() && !file.delete()) || !raw.renameTo(file))) {
+                    throw new IOException("Could not rename " + raw + " to " + file);
+                }
+            }
+            mapped = MappedDataset.open(file);
+            mappedKey = key;
+            if (mapped.getFeatureType() == MappedDataset.FEATURE_UINT8) {
+                Log.d(TAG, "Stored features as uint8, scale " + mapped.getScale()
+                        + ", offset " + mapped.getOffset());
+            }
+        } catch (InterruptedIOException e) {
+            // Try again next time.
+            Log.d(TAG, "Dataset conversion interrupted.");
+        } catch (IOException e) {
+            Log.e(TAG, "Could not convert training data, reading text sources instead.", e);
+            failedKey = key;
+        } finally {
+            if (raw != file) {
+                //noinspection ResultOfMethodCallIgnored
+                raw.delete();
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Returns the line index of a text source, loading it from the cache directory or building and
+     * persisting it on first use. A persisted index is rebuilt when its source has changed.
+     *
+     * @param src -- name of the text source
+     * @return the index, or null if none could be built and the caller should scan the source
+     * sequentially.
+     */
+    private synchronized LineIndex getLineIndex(String src) {
+        DataSource source = source();
+        long stamp = source.getSourceStamp(src);
+        LineIndex index = lineIndices.get(src);
+        if (index != null && index.getSourceStamp() == stamp) {
+            return index;
+        }
+
+        File file = new File(source.getCacheDir(), src + ".idx");
+
+        // Step 1. Try a persisted index.
+        if (file.exists()) {
+            try {
+                index = LineIndex.load(file);
+                if (index.getSourceStamp() == stamp) {
+                    lineIndices.put(src, index);
+                    return index;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Discarding unreadable index " + file, e);
+            }
+        }
+
+        // Step 2. Scan the source once and persist the result.
+        try {
+            index = LineIndex.build(source.open(src), stamp);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not index " + src, e);
+            return null;
+        }
+        try {
+            index.save(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not persist index " + file, e);
+        }
+        lineIndices.put(src, index);
+        return index;
+    }
+
+    /**
+     * Reads the features and labels of a minibatch in a single sweep.
+     *
+     * Rows are served from {@link #getDataset(Parameters)} when available. Otherwise the feature
+     * and label sources are read side by side, through their line indices if they exist or with
+     * one sequential scan of both files if not. For binary loss functions a label of 0 is
+     * reported as -1.
+     *
+     * @param samples -- sample numbers in any order, possibly repeated; row i of the result holds
+     *                sample {@code samples[i]}
+     * @param params -- supplies the sources, D and the loss function
+     * @param batch -- a batch to reuse, or null to allocate a new one
+     * @return the filled batch. If the thread was interrupted the batch is empty.
+     */
+    public Batch readBatch(int[] samples, final Parameters params, Batch batch) {
+        return readBatch(samples, params, batch, false);
+    }
+
+    /**
+     * Like {@link #readBatch(int[], Parameters, Batch)}, but returns the batch in sparse form (see
+     * {@link Batch#fillSparse(Dataset, int[])}) for the sparse loss function kernels.
+     */
+    public Batch readSparseBatch(int[] samples, final Parameters params, Batch batch) {
+        return readBatch(samples, params, batch, true);
+    }
+
+    private Batch readBatch(int[] samples, final Parameters params, Batch batch, boolean sparse) {
+        if (batch == null) {
+            batch = new Batch();
+        }
+
+        Dataset data = getDataset(params);
+        if (data != null) {
+            if (sparse) {
+                batch.fillSparse(data, samples);
+            } else {
+                batch.fill(data, samples);
+            }
+        } else if ("libsvm".equals(params.getDataFormat())) {
+            // The text readers below only understand dense sources.
+            batch.reset(samples.length, params.getD());
+        } else {
+            batch.reset(samples.length, params.getD());
+            if (!readIndexedBatch(samples, params, batch)) {
+                readScannedBatch(samples, params, batch);
+            }
+            if (sparse) {
+                batch.compress();
+            }
+        }
+
+        LossFunction loss = params.getLossFunction();
+        if (loss != null && loss.lossType().equals("binary")) {
+            int[] labels = batch.labels();
+            for (int i = 0; i < batch.size(); i++) {
+                if (labels[i] == 0) {
+                    labels[i] = -1;
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Sorts sample numbers so that the text sources can be read front to back. Each key packs
+     * the sample number above its position in the request.
+     */
+    private static long[] ascendingOrder(int[] samples) {
+        long[] order = new long[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            order[i] = ((long) samples[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    /**
+     * Fills the batch by seeking to each sample in the feature and label sources.
+     *
+     * @return false if either source has no line index or a sample is past the end of either
+     * source.
+     */
+    private boolean readIndexedBatch(int[] samples, final Parameters params, Batch batch) {
+        String featureSrc = params.getFeatureSource();
+        String labelSrc = params.getLabelSource();
+        LineIndex featureIndex = getLineIndex(featureSrc);
+        LineIndex labelIndex = getLineIndex(labelSrc);
+        if (featureIndex == null || labelIndex == null) {
+            return false;
+        }
+        long[] order = ascendingOrder(samples);
+        if (order.length > 0) {
+            int last = (int) (order[order.length - 1] >>> 32);
+            if (last >= featureIndex.size() || last >= labelIndex.size()) {
+                Log.w(TAG, "Sample " + last + " is past the end of " + featureSrc + " ("
+                        + featureIndex.size() + " lines) or " + labelSrc + " ("
+                        + labelIndex.size() + " lines), scanning instead.");
+                return false;
+            }
+        }
+
+        int D = batch.dimension();
+        float[] features = batch.features();
+        int[] labels = batch.labels();
+        IndexedTextReader featureReader = null;
+        IndexedTextReader labelReader = null;
+        try {
+            DataSource source = source();
+            featureReader = source.openIndexed(featureSrc, featureIndex);
+            labelReader = source.openIndexed(labelSrc, labelIndex);
+            int prevRow = -1;
+            int prevSample = -1;
+            for (long key : order) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return true;
+                }
+                int sample = (int) (key >>> 32);
+                int row = (int) key;
+                if (sample == prevSample) {
+                    // Repeated sample, copy the row read last.
+                    System.arraycopy(features, prevRow * D, features, row * D, D);
+                    labels[row] = labels[prevRow];
+                } else {
+                    parseFeatures(featureReader.buffer(), 0, featureReader.readRow(sample),
+                            features, row * D, D);
+                    labels[row] = NumberParser.parseInt(labelReader.buffer(), 0,
+                            labelReader.readRow(sample));
+                }
+                prevRow = row;
+                prevSample = sample;
+            }
+            batch.setSize(samples.length);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read indexed samples, scanning instead.", e);
+            return false;
+        } finally {
+            closeQuietly(featureReader);
+            closeQuietly(labelReader);
+        }
+        return true;
+    }
+
+    /**
+     * Fills the batch with one sequential pass over the feature and label sources together.
+     */
+    private void readScannedBatch(int[] samples, final Parameters params, Batch batch) {
+        int D = batch.dimension();
+        float[] features = batch.features();
+        int[] labels = batch.labels();
+        long[] order = ascendingOrder(samples);
+        DataSource source = source();
+        ByteLineReader featureReader = null;
+        ByteLineReader labelReader = null;
+        try {
+            featureReader = new ByteLineReader(source.open(params.getFeatureSource()));
+            labelReader = new ByteLineReader(source.open(params.getLabelSource()));
+            int counter = 0;
+            int next = 0;
+            while (next < order.length && featureReader.next() && labelReader.next()) {
+                // Periodically check if this thread has been interrupted. See the javadocs on
+                // threading for best practices.
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                while (next < order.length && (int) (order[next] >>> 32) == counter) {
+                    int row = (int) order[next];
+                    parseFeatures(featureReader.buffer(), featureReader.lineStart(),
+                            featureReader.lineEnd(), features, row * D, D);
+                    labels[row] = NumberParser.parseInt(labelReader.buffer(),
+                            labelReader.lineStart(), labelReader.lineEnd());
+                    next++;
+                }
+                counter++;
+            }
+            if (next == order.length) {
+                batch.setSize(samples.length);
+            }
+        } catch (IOException e) {
+            // TODO(tylermzeller) probably a better way to handle this.
+            e.printStackTrace();
+        } finally {
+            closeQuietly(featureReader);
+            closeQuietly(labelReader);
+        }
+    }
+
+    private static void parseFeatures(byte[] buf, int start, int end, float[] dst, int offset,
+                                      int D) throws IOException {
+        if (NumberParser.parseFloats(buf, start, end, dst, offset, D) < D) {
+            throw new IOException("Sample has fewer than " + D + " features");
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                //log the exception
+            }
+        }
+    }
+
+    /**
+     * @deprecated Reads features and labels in one pass; use
+     * {@link #readBatch(int[], Parameters, Batch)} instead.
+     *
+     * @param sampleBatch -- sample numbers in ascending order
+     * @param params -- training parameters
+     * @return the features of each sample
+     */
+    @Deprecated
+    public List<double[]> readSamples(int[] sampleBatch, final Parameters params) {
+        Batch batch = readBatch(sampleBatch, params, null);
+        List<double[]> xBatch = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            double[] sampleFeatures = new double[batch.dimension()];
+            batch.readFeatures(i, sampleFeatures);
+            xBatch.add(sampleFeatures);
+        }
+        return xBatch;
+    }
+
+    /**
+     * @deprecated Reads features and labels in one pass; use
+     * {@link #readBatch(int[], Parameters, Batch)} instead.
+     *
+     * @param sampleBatch -- sample numbers in ascending order
+     * @param params -- training parameters
+     * @return the label of each sample
+     */
+    @Deprecated
+    public List<Integer> readLabels(int[] sampleBatch, final Parameters params){
+        Batch batch = readBatch(sampleBatch, params, null);
+        List<Integer> yBatch = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            yBatch.add(batch.labels()[i]);
+        }
+        return yBatch;
+    }
+
+    /**
+     * @deprecated Use {@link #readBatch(int[], Parameters, Batch)} and feed
+     * {@link Batch#features()} directly.
+     */
+    @Deprecated
+    public float[] getTFFeatureBatch(int[] indices, Parameters params) {
+        int D = params.getD();
+        float[] trainingFeatures = new float[params.getClientBatchSize() * D];
+        Batch batch = readBatch(indices, params, null);
+        System.arraycopy(batch.features(), 0, trainingFeatures, 0,
+                Math.min(batch.size() * D, trainingFeatures.length));
+        return trainingFeatures;
+    }
+
+    public float[] getTFTestFeatures(int testN, Parameters params) {
+        Log.d("readTestingFeatures","Begin");
+        int D = params.getD();
+        float[] testFeatures = new float[testN * D];
+        Dataset test = getTestSet(TEST_FEATURES, TEST_LABELS, D);
+        if (test != null) {
+            int n = Math.min(testN, test.size());
+            for (int i = 0; i < n; i++) {
+                test.readFeatures(i, testFeatures, i * D);
+            }
+        }
+        return testFeatures;
+    }
+
+    /**
+     * @deprecated Use {@link #readBatch(int[], Parameters, Batch)} and
+     * {@link Batch#oneHotLabels(float[], int)}.
+     */
+    @Deprecated
+    public float[] getTFLabelBatch(int[] indices, Parameters params) {
+        int K = params.getK();
+        float[] trainingLabels = new float[params.getClientBatchSize() * K];
+        Batch batch = readBatch(indices, params, null);
+        int[] labels = batch.labels();
+        for (int i = 0; i < batch.size() && i < params.getClientBatchSize(); i++) {
+            // For 1-hot encoding
+            trainingLabels[K * i + labels[i]] = 1;
+        }
+        return trainingLabels;
+    }
+
+    public float[] getTFTestingLabels(int testN, Parameters params) {
+        int K = params.getK();
+        float[] testLabels = new float[testN * K];
+        Dataset test = getTestSet(TEST_FEATURES, TEST_LABELS, params.getD());
+        if (test != null) {
+            int n = Math.min(testN, test.size());
+            for (int i = 0; i < n; i++) {
+                // For 1-hot encoding
+                testLabels[K * i + test.readLabel(i)] = 1;
+            }
+        }
+        return testLabels;
+    }
+
+    public static int[] toOneHot(int num, int size){
+        int[] oneHot = new int[size];
+        oneHot[num - 1] = 1;
+        return oneHot;
+    }
+}
@@ -0,0 +1,269 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Arrays;
+
+/**
+ * A minibatch of samples with their features and labels side by side, so that a row and its
+ * label can never get out of step.
+ *
+ * Features are stored row-major in one flat float array of exactly capacity x D values, which is
+ * the layout TensorFlow expects for a feed. A batch is meant to be reused across training steps;
+ * {@link #reset(int, int)} only reallocates when the shape changes.
+ *
+ * A batch can instead hold its rows in compressed sparse row (CSR) form, see
+ * {@link #fillSparse(Dataset, int[])}. The nonzero features of row i are then
+ * {@code values()[rowPointers()[i], rowPointers()[i + 1])} at the matching {@code columns()}, and
+ * the dense feature array is not used.
+ */
+public final class Batch {
+
+    private float[] features = new float[0];
+    private int[] labels = new int[0];
+    private int capacity;
+    private int size;
+    private int D;
+
+    // Sparse rows, see fillSparse().
+    private boolean sparse;
+    private int[] rowPtr = new int[1];
+    private int[] columns = new int[0];
+    private float[] values = new float[0];
+    private float[] scratch;
+
+    /**
+     * Prepares this batch to receive up to capacity dense samples of dimension D and empties it.
+     */
+    public void reset(int capacity, int D) {
+        if (features.length != capacity * D) {
+            features = new float[capacity * D];
+        }
+        shape(capacity, D, false);
+    }
+
+    /**
+     * Prepares this batch to receive up to capacity sparse samples of dimension D and empties it.
+     */
+    public void resetSparse(int capacity, int D) {
+        if (rowPtr.length != capacity + 1) {
+            rowPtr = new int[capacity + 1];
+        }
+        shape(capacity, D, true);
+    }
+
+    private void shape(int capacity, int D, boolean sparse) {
+        if (labels.length != capacity) {
+            labels = new int[capacity];
+        }
+        this.capacity = capacity;
+        this.D = D;
+        this.sparse = sparse;
+        size = 0;
+    }
+
+    /**
+     * Fills this batch from a dataset, row i holding sample {@code samples[i]}.
+     *
+     * @return false if the thread was interrupted, in which case the batch is left empty.
+     */
+    public boolean fill(Dataset data, int[] samples) {
+        reset(samples.length, data.dimension());
+        for (int i = 0; i < samples.length; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            data.readFeatures(samples[i], features, i * D);
+            labels[i] = data.readLabel(samples[i]);
+        }
+        size = samples.length;
+        return true;
+    }
+
+    /**
+     * Fills this batch with sparse rows from a dataset, row i holding sample {@code samples[i]}.
+     * Rows of a {@link SparseDataset} are copied as stored; other datasets are read densely and
+     * their zero features dropped.
+     *
+     * @return false if the thread was interrupted, in which case the batch is left empty.
+     */
+    public boolean fillSparse(Dataset data, int[] samples) {
+        resetSparse(samples.length, data.dimension());
+        SparseDataset sparseData = data instanceof SparseDataset ? (SparseDataset) data : null;
+        if (sparseData == null && (scratch == null || scratch.length != D)) {
+            scratch = new float[D];
+        }
+        for (int i = 0; i < samples.length; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            int row = samples[i];
+            if (sparseData != null) {
+                int start = sparseData.rowStart(row);
+                int end = sparseData.rowEnd(row);
+                int nnz = rowPtr[i];
+                ensureNonZeros(nnz + end - start);
+                System.arraycopy(sparseData.columns(), start, columns, nnz, end - start);
+                System.arraycopy(sparseData.values(), start, values, nnz, end - start);
+                rowPtr[i + 1] = nnz + end - start;
+            } else {
+                data.readFeatures(row, scratch, 0);
+                rowPtr[i + 1] = compressRow(scratch, 0, rowPtr[i]);
+            }
+            labels[i] = data.readLabel(row);
+        }
+        size = samples.length;
+        return true;
+    }
+
+    /**
+     * Converts the rows of a dense batch to sparse form in place, keeping its size and labels.
+     */
+    public void compress() {
+        if (sparse) {
+            return;
+        }
+        int rows = size;
+        if (rowPtr.length != capacity + 1) {
+            rowPtr = new int[capacity + 1];
+        }
+        for (int i = 0; i < rows; i++) {
+            rowPtr[i + 1] = compressRow(features, i * D, rowPtr[i]);
+        }
+        sparse = true;
+    }
+
+    /**
+     * Appends the nonzero entries of {@code src[offset, offset + D)} at position nnz.
+     *
+     * @return the number of stored entries after the row.
+     */
+    private int compressRow(float[] src, int offset, int nnz) {
+        ensureNonZeros(nnz + D);
+        for (int j = 0; j < D; j++) {
+            float v = src[offset + j];
+            if (v != 0) {
+                columns[nnz] = j;
+                values[nnz] = v;
+                nnz++;
+            }
+        }
+        return nnz;
+    }
+
+    private void ensureNonZeros(int nnz) {
+        if (columns.length < nnz) {
+            int grown = Math.max(nnz, columns.length * 2);
+            columns = Arrays.copyOf(columns, grown);
+            values = Arrays.copyOf(values, grown);
+        }
+    }
+
+    /**
+     * @return whether the rows are held in sparse form.
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * @return the CSR row pointers of a sparse batch; row i spans
+     * {@code [rowPointers()[i], rowPointers()[i + 1])}.
+     */
+    public int[] rowPointers() {
+        return rowPtr;
+    }
+
+    /**
+     * @return the column of every stored feature of a sparse batch.
+     */
+    public int[] columns() {
+        return columns;
+    }
+
+    /**
+     * @return the value of every stored feature of a sparse batch.
+     */
+    public float[] values() {
+        return values;
+    }
+
+    /**
+     * @return the number of valid rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        if (size < 0 || size > capacity) {
+            throw new IllegalArgumentException("Size " + size + " exceeds capacity " + capacity);
+        }
+        this.size = size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int dimension() {
+        return D;
+    }
+
+    /**
+     * @return the backing feature array of a dense batch; row i occupies
+     * {@code [i * D, (i + 1) * D)}.
+     */
+    public float[] features() {
+        return features;
+    }
+
+    /**
+     * @return the backing label array; entry i is the label of row i.
+     */
+    public int[] labels() {
+        return labels;
+    }
+
+    /**
+     * Copies the features of one row into {@code dst[0, D)}.
+     */
+    public void readFeatures(int row, double[] dst) {
+        if (sparse) {
+            Arrays.fill(dst, 0, D, 0);
+            for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                dst[columns[p]] += values[p];
+            }
+            return;
+        }
+        int base = row * D;
+        for (int i = 0; i < D; i++) {
+            dst[i] = features[base + i];
+        }
+    }
+
+    /**
+     * Writes the labels as 1-hot rows of length K into dst, which must hold capacity x K values.
+     */
+    public void oneHotLabels(float[] dst, int K) {
+        Arrays.fill(dst, 0);
+        for (int i = 0; i < size; i++) {
+            dst[K * i + labels[i]] = 1;
+        }
+    }
+}
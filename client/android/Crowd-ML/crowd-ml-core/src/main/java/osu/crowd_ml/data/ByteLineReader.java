@@ -0,0 +1,121 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Splits a stream into lines without decoding them, for use with {@link NumberParser}.
+ *
+ * After a successful {@link #next()} the current line occupies
+ * {@code buffer()[lineStart(), lineEnd())}, without its line terminator. The bytes are only valid
+ * until the next call to {@link #next()}. Apart from growing the buffer for unusually long lines,
+ * reading allocates nothing.
+ */
+public final class ByteLineReader implements Closeable {
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private int lineStart;
+    private int lineEnd;
+    private boolean eof;
+
+    public ByteLineReader(InputStream in) {
+        this(in, 1 << 16);
+    }
+
+    public ByteLineReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[bufferSize];
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return false at the end of the stream.
+     */
+    public boolean next() throws IOException {
+        int scan = pos;
+        while (true) {
+            for (; scan < limit; scan++) {
+                if (buf[scan] == '\n') {
+                    setLine(pos, scan);
+                    pos = scan + 1;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (pos == limit) {
+                    return false;
+                }
+                // Last line has no terminator.
+                setLine(pos, limit);
+                pos = limit;
+                return true;
+            }
+            // Need more bytes: move the partial line to the front, growing the buffer if the
+            // line fills it entirely.
+            int partial = limit - pos;
+            if (partial == buf.length) {
+                byte[] bigger = new byte[buf.length * 2];
+                System.arraycopy(buf, pos, bigger, 0, partial);
+                buf = bigger;
+            } else if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, partial);
+            }
+            scan -= pos;
+            pos = 0;
+            limit = partial;
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    private void setLine(int start, int end) {
+        if (end > start && buf[end - 1] == '\r') {
+            end--;
+        }
+        lineStart = start;
+        lineEnd = end;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int lineStart() {
+        return lineStart;
+    }
+
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
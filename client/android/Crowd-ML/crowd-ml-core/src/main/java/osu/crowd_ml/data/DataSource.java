@@ -0,0 +1,56 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Where the training and test sources named in {@link osu.crowd_ml.Parameters} are read from,
+ * and where the files derived from them are kept. The app reads its assets; a JVM reads a
+ * directory, see {@link FileDataSource}.
+ */
+public interface DataSource {
+
+    /**
+     * @param name -- a feature or label source, e.g. {@code "binaryTrainImages.dat"}
+     * @return the source from its first byte.
+     * @throws IOException if the source does not exist or cannot be opened
+     */
+    InputStream open(String name) throws IOException;
+
+    /**
+     * Opens a source for reading rows by line number. Sources that cannot be read with positioned
+     * reads are returned as {@link IndexedTextReader#forStream forward-only} readers.
+     *
+     * @param index -- the line index of the source
+     */
+    IndexedTextReader openIndexed(String name, LineIndex index) throws IOException;
+
+    /**
+     * @return a value that changes whenever the named source changes. Binary copies and line
+     * indices built from the source are rebuilt when it does.
+     */
+    long getSourceStamp(String name);
+
+    /**
+     * @return a writable directory for the binary copies and line indices of the sources.
+     */
+    File getCacheDir();
+}
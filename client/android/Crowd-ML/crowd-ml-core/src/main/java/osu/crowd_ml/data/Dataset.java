@@ -0,0 +1,51 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * Random access to the samples of a training or test set.
+ *
+ * Implementations must allow concurrent reads from several threads.
+ */
+public interface Dataset {
+
+    /**
+     * @return the number of samples.
+     */
+    int size();
+
+    /**
+     * @return the number of features per sample.
+     */
+    int dimension();
+
+    /**
+     * Copies the features of one sample into {@code dst[0, D)}.
+     */
+    void readFeatures(int row, double[] dst);
+
+    /**
+     * Copies the features of one sample into {@code dst[dstOffset, dstOffset + D)}.
+     */
+    void readFeatures(int row, float[] dst, int dstOffset);
+
+    /**
+     * @return the raw label of one sample, exactly as it appeared in the label source.
+     */
+    int readLabel(int row);
+}
@@ -0,0 +1,226 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+
+/**
+ * One-time converter from the comma/space separated {@code .dat} feature and label files to the
+ * fixed-stride binary format read by {@link MappedDataset}.
+ */
+public final class DatasetConverter {
+
+    // Prevent instantiation
+    private DatasetConverter(){}
+
+    /**
+     * Converts a text feature source and its label source into a binary dataset.
+     *
+     * The output is written to a temporary file next to {@code out} and renamed into place once
+     * complete, so a partially written file is never mistaken for a valid dataset.
+     *
+     * @param features -- one sample per line, features separated by commas or spaces
+     * @param labels -- one integer label per line
+     * @param D -- number of leading features to keep from each line
+     * @param sourceStamp -- identifies the version of the text sources, stored in the header
+     * @param out -- destination file
+     * @throws IOException if the sources are malformed or the output cannot be written
+     */
+    public static void convert(InputStream features, InputStream labels, int D, long sourceStamp,
+                               File out) throws IOException {
+        File tmp = new File(out.getPath() + ".tmp");
+        ByteLineReader featureReader = new ByteLineReader(features);
+        ByteLineReader labelReader = new ByteLineReader(labels);
+        DataOutputStream dos = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+        boolean success = false;
+        try {
+            // Step 1. Write a header with a placeholder sample count.
+            writeHeader(dos, 0, D, MappedDataset.FEATURE_FLOAT32, sourceStamp, 1, 0);
+
+            // Step 2. Write one fixed-stride row per sample.
+            int N = 0;
+            float[] row = new float[D];
+            while (featureReader.next() && labelReader.next()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Dataset conversion interrupted");
+                }
+
+                int parsed = NumberParser.parseFloats(featureReader.buffer(),
+                        featureReader.lineStart(), featureReader.lineEnd(), row, 0, D);
+                if (parsed < D) {
+                    throw new IOException("Sample " + N + " has " + parsed
+                            + " features, expected " + D);
+                }
+                for (int i = 0; i < D; i++) {
+                    dos.writeFloat(row[i]);
+                }
+                dos.writeInt(NumberParser.parseInt(labelReader.buffer(),
+                        labelReader.lineStart(), labelReader.lineEnd()));
+                N++;
+            }
+            dos.close();
+
+            // Step 3. Patch the sample count now that it is known.
+            RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+            try {
+                raf.seek(8);
+                raf.writeInt(N);
+            } finally {
+                raf.close();
+            }
+
+            // Step 4. Atomically publish the finished file.
+            publish(tmp, out);
+            success = true;
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed training data", e);
+        } finally {
+            dos.close();
+            featureReader.close();
+            labelReader.close();
+            if (!success) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Rewrites a float32 dataset with one byte per feature, dequantized as
+     * {@code offset + scale * q}. Integer features spanning at most 256 values are stored with a
+     * scale of 1 and lose nothing; anything else is spread linearly over the range [min, max].
+     *
+     * The output is published the same way as by {@link #convert}, so {@code out} may be the
+     * source's own file.
+     *
+     * @param source -- a float32 dataset
+     * @param exactOnly -- if true, give up unless every feature is reproduced exactly
+     * @param out -- destination file
+     * @return false if the features are not finite, or exactOnly was set and they cannot be stored
+     * exactly. Nothing is written in that case.
+     * @throws IOException if the output cannot be written
+     */
+    public static boolean quantize(MappedDataset source, boolean exactOnly, File out)
+            throws IOException {
+        int N = source.size();
+        int D = source.dimension();
+        float[] row = new float[D];
+
+        // Step 1. Find the range of the features.
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        boolean integral = true;
+        boolean finite = true;
+        for (int n = 0; n < N; n++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Dataset quantization interrupted");
+            }
+            source.readFeatures(n, row, 0);
+            for (int i = 0; i < D; i++) {
+                float v = row[i];
+                if (v < min) min = v;
+                if (v > max) max = v;
+                integral &= v == Math.rint(v);
+                finite &= !Float.isNaN(v) && !Float.isInfinite(v);
+            }
+        }
+        if (!finite) {
+            return false;
+        }
+        if (min > max) {
+            // No samples.
+            min = max = 0;
+        }
+
+        float offset = min;
+        float scale;
+        if (integral && max - min <= 255) {
+            scale = 1;
+        } else {
+            scale = max > min ? (max - min) / 255 : 1;
+        }
+
+        // Step 2. Write the quantized rows.
+        File tmp = new File(out.getPath() + ".tmp");
+        DataOutputStream dos = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+        boolean success = false;
+        try {
+            writeHeader(dos, N, D, MappedDataset.FEATURE_UINT8, source.getSourceStamp(), scale,
+                    offset);
+            for (int n = 0; n < N; n++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Dataset quantization interrupted");
+                }
+                source.readFeatures(n, row, 0);
+                for (int i = 0; i < D; i++) {
+                    int q = Math.round((row[i] - offset) / scale);
+                    q = Math.max(0, Math.min(255, q));
+                    if (exactOnly && offset + scale * q != row[i]) {
+                        return false;
+                    }
+                    dos.writeByte(q);
+                }
+                dos.writeInt(source.readLabel(n));
+            }
+            dos.close();
+
+            // Step 3. Atomically publish the finished file.
+            publish(tmp, out);
+            success = true;
+            return true;
+        } finally {
+            dos.close();
+            if (!success) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+            }
+        }
+    }
+
+    private static void publish(File tmp, File out) throws IOException {
+        if (out.exists() && !out.delete()) {
+            throw new IOException("Could not replace " + out);
+        }
+        if (!tmp.renameTo(out)) {
+            throw new IOException("Could not rename " + tmp + " to " + out);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream dos, int N, int D, int featureType,
+                                    long sourceStamp, float scale, float offset)
+            throws IOException {
+        dos.writeInt(MappedDataset.MAGIC);
+        dos.writeInt(MappedDataset.VERSION);
+        dos.writeInt(N);
+        dos.writeInt(D);
+        dos.writeInt(featureType);
+        dos.writeLong(sourceStamp);
+        dos.writeFloat(scale);
+        dos.writeFloat(offset);
+        dos.writeInt(0); // pad to HEADER_BYTES
+    }
+}
@@ -0,0 +1,67 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the sources from a directory of files.
+ */
+public final class FileDataSource implements DataSource {
+
+    private final File dir;
+    private final File cacheDir;
+
+    /**
+     * @param dir -- the directory holding the sources
+     * @param cacheDir -- a writable directory for the files derived from them
+     */
+    public FileDataSource(File dir, File cacheDir) {
+        this.dir = dir;
+        this.cacheDir = cacheDir;
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        return new FileInputStream(new File(dir, name));
+    }
+
+    @Override
+    public IndexedTextReader openIndexed(String name, LineIndex index) throws IOException {
+        FileInputStream in = new FileInputStream(new File(dir, name));
+        return IndexedTextReader.forChannel(index, in.getChannel(), 0);
+    }
+
+    @Override
+    public long getSourceStamp(String name) {
+        File file = new File(dir, name);
+        // Include the length, modification times can be as coarse as a second.
+        return file.lastModified() * 31 + file.length();
+    }
+
+    @Override
+    public File getCacheDir() {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IllegalStateException("Could not create " + cacheDir);
+        }
+        return cacheDir;
+    }
+}
@@ -0,0 +1,161 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads individual lines of a text dataset using a {@link LineIndex}.
+ *
+ * When the source is backed by a file channel every line is read with a single positioned read.
+ * Otherwise (e.g. compressed assets) the reader skips forward over the bytes between requested
+ * lines without decoding them, so lines must then be requested in ascending order.
+ */
+public final class IndexedTextReader implements Closeable {
+
+    private final LineIndex index;
+
+    // Random access mode
+    private final FileChannel channel;
+    private final long base;
+
+    // Forward-only mode
+    private final InputStream stream;
+    private long streamPos;
+
+    private byte[] buf = new byte[4096];
+    private ByteBuffer view = ByteBuffer.wrap(buf);
+
+    private IndexedTextReader(LineIndex index, FileChannel channel, long base, InputStream stream) {
+        this.index = index;
+        this.channel = channel;
+        this.base = base;
+        this.stream = stream;
+    }
+
+    /**
+     * @param index -- index of the source
+     * @param channel -- channel containing the source
+     * @param base -- offset of the first byte of the source within the channel
+     */
+    public static IndexedTextReader forChannel(LineIndex index, FileChannel channel, long base) {
+        return new IndexedTextReader(index, channel, base, null);
+    }
+
+    /**
+     * @param index -- index of the source
+     * @param stream -- the source, positioned at its first byte
+     */
+    public static IndexedTextReader forStream(LineIndex index, InputStream stream) {
+        return new IndexedTextReader(index, null, 0, stream);
+    }
+
+    /**
+     * @return whether lines may be requested in any order.
+     */
+    public boolean isRandomAccess() {
+        return channel != null;
+    }
+
+    /**
+     * Reads the bytes of one line of the source into {@link #buffer()}, for decoding with
+     * {@link NumberParser}.
+     *
+     * @param line -- the line number; in forward-only mode it must not be smaller than the
+     *             previously requested line
+     * @return the length of the line without its terminator; the line occupies
+     * {@code buffer()[0, length)} until the next read.
+     * @throws IOException if the source cannot be read
+     */
+    public int readRow(int line) throws IOException {
+        int length = readBytes(line);
+        while (length > 0 && (buf[length - 1] == '\n' || buf[length - 1] == '\r')) {
+            length--;
+        }
+        return length;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    private int readBytes(int line) throws IOException {
+        long start = index.start(line);
+        int length = index.length(line);
+        if (buf.length < length) {
+            buf = new byte[Math.max(length, buf.length * 2)];
+            view = ByteBuffer.wrap(buf);
+        }
+
+        if (channel != null) {
+            view.clear();
+            view.limit(length);
+            long pos = base + start;
+            while (view.hasRemaining()) {
+                int read = channel.read(view, pos);
+                if (read < 0) {
+                    throw new EOFException("Source is shorter than its index");
+                }
+                pos += read;
+            }
+        } else {
+            if (start < streamPos) {
+                throw new IllegalStateException("Line " + line + " requested out of order");
+            }
+            skipFully(start - streamPos);
+            int off = 0;
+            while (off < length) {
+                int read = stream.read(buf, off, length - off);
+                if (read < 0) {
+                    throw new EOFException("Source is shorter than its index");
+                }
+                off += read;
+            }
+            streamPos = start + length;
+        }
+        return length;
+    }
+
+    private void skipFully(long n) throws IOException {
+        while (n > 0) {
+            long skipped = stream.skip(n);
+            if (skipped <= 0) {
+                if (stream.read() < 0) {
+                    throw new EOFException("Source is shorter than its index");
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
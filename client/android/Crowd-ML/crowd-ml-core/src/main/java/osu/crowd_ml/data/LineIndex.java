@@ -0,0 +1,177 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
+/**
+ * Byte offsets of every line of a text dataset, so that individual samples can be read without
+ * scanning the lines before them.
+ *
+ * An index remembers the stamp of the source it was built from. Callers compare it against the
+ * current stamp of the source and rebuild the index when they differ.
+ */
+public final class LineIndex {
+
+    private static final int MAGIC = 0x434D4C49; // "CMLI"
+    private static final int VERSION = 1;
+
+    // offsets[i] is the first byte of line i, offsets[N] is the end of the source.
+    private final long[] offsets;
+    private final long sourceStamp;
+
+    private LineIndex(long[] offsets, long sourceStamp) {
+        this.offsets = offsets;
+        this.sourceStamp = sourceStamp;
+    }
+
+    /**
+     * Builds an index by scanning a text source once. The stream is closed when done.
+     *
+     * @param in -- the text source
+     * @param sourceStamp -- identifies the version of the source
+     * @return the index
+     * @throws IOException if the source cannot be read or the thread is interrupted
+     */
+    public static LineIndex build(InputStream in, long sourceStamp) throws IOException {
+        long[] offsets = new long[1024];
+        int N = 0;
+        long pos = 0;
+        boolean lineStart = true;
+        byte[] buf = new byte[1 << 16];
+        try {
+            int read;
+            while ((read = in.read(buf)) != -1) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Index build interrupted");
+                }
+                for (int i = 0; i < read; i++, pos++) {
+                    if (lineStart) {
+                        if (N + 1 >= offsets.length) {
+                            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        }
+                        offsets[N++] = pos;
+                        lineStart = false;
+                    }
+                    if (buf[i] == '\n') {
+                        lineStart = true;
+                    }
+                }
+            }
+        } finally {
+            in.close();
+        }
+        offsets[N] = pos;
+        return new LineIndex(Arrays.copyOf(offsets, N + 1), sourceStamp);
+    }
+
+    /**
+     * Loads an index previously written by {@link #save(File)}.
+     *
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    public static LineIndex load(File file) throws IOException {
+        DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            if (dis.readInt() != MAGIC || dis.readInt() != VERSION) {
+                throw new IOException("Unknown index format: " + file);
+            }
+            long stamp = dis.readLong();
+            int N = dis.readInt();
+            if (N < 0) {
+                throw new IOException("Corrupt index: " + file);
+            }
+            long[] offsets = new long[N + 1];
+            for (int i = 0; i <= N; i++) {
+                offsets[i] = dis.readLong();
+            }
+            return new LineIndex(offsets, stamp);
+        } finally {
+            dis.close();
+        }
+    }
+
+    /**
+     * Persists this index. The file is written next to {@code file} and renamed into place.
+     */
+    public void save(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream dos = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+        try {
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeLong(sourceStamp);
+            dos.writeInt(size());
+            for (long offset : offsets) {
+                dos.writeLong(offset);
+            }
+        } finally {
+            dos.close();
+        }
+        if ((file.exists() && !file.delete()) || !tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Could not write index " + file);
+        }
+    }
+
+    /**
+     * @return the number of lines in the source.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public long getSourceStamp() {
+        return sourceStamp;
+    }
+
+    /**
+     * @return the offset of the first byte of a line.
+     */
+    public long start(int line) {
+        checkLine(line);
+        return offsets[line];
+    }
+
+    /**
+     * @return the number of bytes in a line, including its line terminator if any.
+     */
+    public int length(int line) {
+        checkLine(line);
+        return (int) (offsets[line + 1] - offsets[line]);
+    }
+
+    private void checkLine(int line) {
+        if (line < 0 || line >= size()) {
+            throw new IndexOutOfBoundsException("Line " + line + " out of range [0, " + size() + ")");
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only, memory-mapped view of a training set stored in the fixed-stride binary format
+ * written by {@link DatasetConverter}.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header: int magic, int version, int N, int D, int featureType, long sourceStamp,
+ *           float scale, float offset, int pad
+ *   rows:   N x (D features, int32 label)
+ * </pre>
+ *
+ * Features are stored either as float32 or, for {@link #FEATURE_UINT8}, as one unsigned byte q
+ * each that is dequantized to {@code offset + scale * q} when read. Quantized rows are a quarter
+ * the size, which matters for pixel data such as MNIST where every value fits in a byte.
+ *
+ * Because every row has the same stride, fetching a sample is a constant time offset
+ * computation, so the cost of a batch depends only on the batch size and not on N.
+ *
+ * All reads use absolute offsets into the mapping and never move the buffer position, so a
+ * single instance may be shared between threads.
+ */
+public final class MappedDataset implements Dataset {
+
+    public static final int MAGIC = 0x434D4C44; // "CMLD"
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 40;
+
+    public static final int FEATURE_FLOAT32 = 0;
+    public static final int FEATURE_UINT8 = 1;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int N;
+    private final int D;
+    private final int featureType;
+    private final long sourceStamp;
+    private final float scale;
+    private final float offset;
+    private final int stride;
+
+    private MappedDataset(File file, MappedByteBuffer buffer, int N, int D, int featureType,
+                          long sourceStamp, float scale, float offset) {
+        this.file = file;
+        this.buffer = buffer;
+        this.N = N;
+        this.D = D;
+        this.featureType = featureType;
+        this.sourceStamp = sourceStamp;
+        this.scale = scale;
+        this.offset = offset;
+        this.stride = rowBytes(D, featureType);
+    }
+
+    /**
+     * Maps the given binary dataset file.
+     *
+     * @param file -- a file produced by {@link DatasetConverter}
+     * @return the mapped dataset
+     * @throws IOException if the file cannot be read or its header is not valid
+     */
+    public static MappedDataset open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Truncated dataset header: " + file);
+            }
+
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Unknown dataset format: " + file);
+            }
+            int N = buffer.getInt(8);
+            int D = buffer.getInt(12);
+            int featureType = buffer.getInt(16);
+            long stamp = buffer.getLong(20);
+            float scale = buffer.getFloat(28);
+            float offset = buffer.getFloat(32);
+
+            if (featureType != FEATURE_FLOAT32 && featureType != FEATURE_UINT8) {
+                throw new IOException("Unsupported feature type " + featureType + ": " + file);
+            }
+            if (N < 0 || D <= 0 || size < HEADER_BYTES + (long) N * rowBytes(D, featureType)) {
+                throw new IOException("Truncated dataset body: " + file);
+            }
+            return new MappedDataset(file, buffer, N, D, featureType, stamp, scale, offset);
+        } finally {
+            raf.close();
+        }
+    }
+
+    static int rowBytes(int D, int featureType) {
+        return (featureType == FEATURE_UINT8 ? D : D * 4) + 4;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public int size() {
+        return N;
+    }
+
+    @Override
+    public int dimension() {
+        return D;
+    }
+
+    /**
+     * @return the stamp of the text source this file was converted from.
+     */
+    public long getSourceStamp() {
+        return sourceStamp;
+    }
+
+    /**
+     * @return {@link #FEATURE_FLOAT32} or {@link #FEATURE_UINT8}.
+     */
+    public int getFeatureType() {
+        return featureType;
+    }
+
+    /**
+     * @return the dequantization scale of a {@link #FEATURE_UINT8} dataset.
+     */
+    public float getScale() {
+        return scale;
+    }
+
+    /**
+     * @return the dequantization offset of a {@link #FEATURE_UINT8} dataset.
+     */
+    public float getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void readFeatures(int row, double[] dst) {
+        int pos = rowOffset(row);
+        if (featureType == FEATURE_UINT8) {
+            for (int i = 0; i < D; i++, pos++) {
+                dst[i] = offset + scale * (buffer.get(pos) & 0xFF);
+            }
+        } else {
+            for (int i = 0; i < D; i++, pos += 4) {
+                dst[i] = buffer.getFloat(pos);
+            }
+        }
+    }
+
+    @Override
+    public void readFeatures(int row, float[] dst, int dstOffset) {
+        int pos = rowOffset(row);
+        if (featureType == FEATURE_UINT8) {
+            for (int i = 0; i < D; i++, pos++) {
+                dst[dstOffset + i] = offset + scale * (buffer.get(pos) & 0xFF);
+            }
+        } else {
+            for (int i = 0; i < D; i++, pos += 4) {
+                dst[dstOffset + i] = buffer.getFloat(pos);
+            }
+        }
+    }
+
+    @Override
+    public int readLabel(int row) {
+        return buffer.getInt(rowOffset(row) + stride - 4);
+    }
+
+    /**
+     * Copies the stored bytes of a {@link #FEATURE_UINT8} dataset without dequantizing them.
+     *
+     * @param features -- receives N x D quantized features
+     * @param labels -- receives N labels
+     * @throws InterruptedIOException if the thread is interrupted while copying
+     */
+    void copyQuantized(byte[] features, int[] labels) throws InterruptedIOException {
+        if (featureType != FEATURE_UINT8) {
+            throw new IllegalStateException("Dataset is not quantized: " + file);
+        }
+        // A private view, so the shared buffer's position is left alone.
+        ByteBuffer view = buffer.duplicate();
+        for (int row = 0; row < N; row++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Dataset load interrupted");
+            }
+            view.position(HEADER_BYTES + row * stride);
+            view.get(features, row * D, D);
+            labels[row] = view.getInt();
+        }
+    }
+
+    private int rowOffset(int row) {
+        if (row < 0 || row >= N) {
+            throw new IndexOutOfBoundsException("Sample " + row + " out of range [0, " + N + ")");
+        }
+        return HEADER_BYTES + row * stride;
+    }
+}
@@ -0,0 +1,272 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.nio.charset.Charset;
+
+/**
+ * Parses comma or space separated numbers straight from bytes into primitive arrays.
+ *
+ * Plain integers and short decimals, which is what the training sets contain, are decoded
+ * without allocating anything and give exactly the same result as {@link Double#parseDouble} and
+ * {@link Float#parseFloat}. Anything else (long mantissas, large exponents, NaN, ...) is handed to
+ * those methods, so results always match them.
+ *
+ * Runs of commas, spaces and tabs count as a single separator.
+ */
+public final class NumberParser {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    // Powers of ten that are exactly representable as a double (10^22 < 2^53 * 2^22).
+    private static final double[] DOUBLE_POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Powers of ten that are exactly representable as a float.
+    private static final float[] FLOAT_POW10 = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+    // Prevent instantiation
+    private NumberParser(){}
+
+    /**
+     * Parses up to count numbers from {@code buf[start, end)} into {@code dst[dstOffset, ...)}.
+     *
+     * @return the number of values parsed, less than count if the row is short.
+     * @throws NumberFormatException if a value is malformed
+     */
+    public static int parseDoubles(byte[] buf, int start, int end, double[] dst, int dstOffset,
+                                   int count) {
+        int pos = start;
+        int n = 0;
+        while (n < count) {
+            pos = skipSeparators(buf, pos, end);
+            if (pos == end) {
+                break;
+            }
+            int tokenEnd = tokenEnd(buf, pos, end);
+            dst[dstOffset + n++] = parseDouble(buf, pos, tokenEnd);
+            pos = tokenEnd;
+        }
+        return n;
+    }
+
+    /**
+     * Parses up to count numbers from {@code buf[start, end)} into {@code dst[dstOffset, ...)}.
+     *
+     * @return the number of values parsed, less than count if the row is short.
+     * @throws NumberFormatException if a value is malformed
+     */
+    public static int parseFloats(byte[] buf, int start, int end, float[] dst, int dstOffset,
+                                  int count) {
+        int pos = start;
+        int n = 0;
+        while (n < count) {
+            pos = skipSeparators(buf, pos, end);
+            if (pos == end) {
+                break;
+            }
+            int tokenEnd = tokenEnd(buf, pos, end);
+            dst[dstOffset + n++] = parseFloat(buf, pos, tokenEnd);
+            pos = tokenEnd;
+        }
+        return n;
+    }
+
+    /**
+     * Parses a single integer surrounded by optional whitespace, as found in the label files.
+     *
+     * @throws NumberFormatException if the bytes are not an int
+     */
+    public static int parseInt(byte[] buf, int start, int end) {
+        start = skipSeparators(buf, start, end);
+        end = tokenEnd(buf, start, end);
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+        if (pos == end) {
+            throw malformed(buf, start, end);
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = buf[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed(buf, start, end);
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw malformed(buf, start, end);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw malformed(buf, start, end);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses one number occupying exactly {@code buf[start, end)}.
+     */
+    public static double parseDouble(byte[] buf, int start, int end) {
+        long bits = decimal(buf, start, end);
+        if (bits != SLOW) {
+            long mantissa = mantissaOf(bits);
+            int exp = exponentOf(bits);
+            if (mantissa < MAX_EXACT_DOUBLE && exp >= -22 && exp <= 22) {
+                double value = exp < 0 ? mantissa / DOUBLE_POW10[-exp] : mantissa * DOUBLE_POW10[exp];
+                return negativeOf(bits) ? -value : value;
+            }
+        }
+        return Double.parseDouble(new String(buf, start, end - start, ASCII));
+    }
+
+    /**
+     * Parses one number occupying exactly {@code buf[start, end)}.
+     */
+    public static float parseFloat(byte[] buf, int start, int end) {
+        long bits = decimal(buf, start, end);
+        if (bits != SLOW) {
+            long mantissa = mantissaOf(bits);
+            int exp = exponentOf(bits);
+            float value = Float.NaN;
+            if (exp == 0 && mantissa < MAX_EXACT_DOUBLE) {
+                // An exact integer, rounded once.
+                value = (float) mantissa;
+            } else if (mantissa < MAX_EXACT_FLOAT && exp >= -10 && exp <= 10) {
+                value = exp < 0 ? mantissa / FLOAT_POW10[-exp] : mantissa * FLOAT_POW10[exp];
+            }
+            if (!Float.isNaN(value)) {
+                return negativeOf(bits) ? -value : value;
+            }
+        }
+        return Float.parseFloat(new String(buf, start, end - start, ASCII));
+    }
+
+    // decimal() packs sign, a decimal exponent in [-255, 255] and a mantissa below 2^53 into one
+    // long, or returns SLOW if the token needs the JDK parser.
+    private static final long SLOW = -1;
+
+    private static long decimal(byte[] buf, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int exp = 0;
+        int digits = 0;
+        boolean dot = false;
+        for (; pos < end; pos++) {
+            byte b = buf[pos];
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT_DOUBLE / 10) {
+                    return SLOW;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (dot) {
+                    exp--;
+                }
+                digits++;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else if (b == 'e' || b == 'E') {
+                break;
+            } else {
+                return SLOW;
+            }
+        }
+        if (digits == 0) {
+            return SLOW;
+        }
+        if (pos < end) {
+            // Exponent part
+            pos++;
+            boolean expNegative = false;
+            if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+                expNegative = buf[pos] == '-';
+                pos++;
+            }
+            if (pos == end) {
+                return SLOW;
+            }
+            int e = 0;
+            for (; pos < end; pos++) {
+                int digit = buf[pos] - '0';
+                if (digit < 0 || digit > 9 || e > 100) {
+                    return SLOW;
+                }
+                e = e * 10 + digit;
+            }
+            exp += expNegative ? -e : e;
+        }
+        if (negative && mantissa == 0) {
+            // -0.0 keeps its sign through the slow path.
+            return SLOW;
+        }
+        if (exp < -255 || exp > 255) {
+            return SLOW;
+        }
+        return (negative ? 1L << 62 : 0) | ((long) (exp + 256) << 53) | mantissa;
+    }
+
+    private static long mantissaOf(long bits) {
+        return bits & (MAX_EXACT_DOUBLE - 1);
+    }
+
+    private static int exponentOf(long bits) {
+        return (int) ((bits >>> 53) & 0x1FF) - 256;
+    }
+
+    private static boolean negativeOf(long bits) {
+        return (bits & (1L << 62)) != 0;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ',' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static int skipSeparators(byte[] buf, int pos, int end) {
+        while (pos < end && isSeparator(buf[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int tokenEnd(byte[] buf, int pos, int end) {
+        while (pos < end && !isSeparator(buf[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static NumberFormatException malformed(byte[] buf, int start, int end) {
+        return new NumberFormatException(
+                "For input string: \"" + new String(buf, start, end - start, ASCII) + "\"");
+    }
+}
@@ -0,0 +1,147 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
+/**
+ * A dataset held entirely in memory: one contiguous row-major float slab for the features and an
+ * int array for the labels. Serving a batch is a sequence of array copies with no I/O.
+ */
+public final class ResidentDataset implements Dataset {
+
+    private final float[] features;
+    private final int[] labels;
+    private final int N;
+    private final int D;
+
+    private ResidentDataset(float[] features, int[] labels, int N, int D) {
+        this.features = features;
+        this.labels = labels;
+        this.N = N;
+        this.D = D;
+    }
+
+    /**
+     * @return the number of bytes needed to hold N samples of dimension D in memory.
+     */
+    public static long bytesFor(int N, int D) {
+        return (long) N * D * 4 + (long) N * 4;
+    }
+
+    /**
+     * Loads every sample of another dataset into memory.
+     *
+     * @throws InterruptedIOException if the thread is interrupted while copying
+     */
+    public static ResidentDataset copyOf(Dataset source) throws InterruptedIOException {
+        int N = source.size();
+        int D = source.dimension();
+        float[] features = new float[N * D];
+        int[] labels = new int[N];
+        for (int row = 0; row < N; row++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Dataset load interrupted");
+            }
+            source.readFeatures(row, features, row * D);
+            labels[row] = source.readLabel(row);
+        }
+        return new ResidentDataset(features, labels, N, D);
+    }
+
+    /**
+     * Parses a text feature source and its label source into memory. Both streams are closed.
+     *
+     * @param features -- one sample per line, features separated by commas or spaces
+     * @param labels -- one integer label per line
+     * @param D -- number of leading features to keep from each line
+     * @param expectedN -- capacity hint, e.g. the line count of the feature source's index
+     * @throws IOException if the sources cannot be read or are malformed
+     */
+    public static ResidentDataset parse(InputStream features, InputStream labels, int D,
+                                        int expectedN) throws IOException {
+        ByteLineReader featureReader = new ByteLineReader(features);
+        ByteLineReader labelReader = new ByteLineReader(labels);
+        int capacity = Math.max(expectedN, 16);
+        float[] x = new float[capacity * D];
+        int[] y = new int[capacity];
+        int N = 0;
+        try {
+            while (featureReader.next() && labelReader.next()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Dataset load interrupted");
+                }
+                if (N == capacity) {
+                    capacity *= 2;
+                    x = Arrays.copyOf(x, capacity * D);
+                    y = Arrays.copyOf(y, capacity);
+                }
+                int parsed = NumberParser.parseFloats(featureReader.buffer(),
+                        featureReader.lineStart(), featureReader.lineEnd(), x, N * D, D);
+                if (parsed < D) {
+                    throw new IOException("Sample " + N + " has " + parsed
+                            + " features, expected " + D);
+                }
+                y[N] = NumberParser.parseInt(labelReader.buffer(),
+                        labelReader.lineStart(), labelReader.lineEnd());
+                N++;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed training data at sample " + N, e);
+        } finally {
+            featureReader.close();
+            labelReader.close();
+        }
+        if (N < capacity) {
+            x = Arrays.copyOf(x, N * D);
+            y = Arrays.copyOf(y, N);
+        }
+        return new ResidentDataset(x, y, N, D);
+    }
+
+    @Override
+    public int size() {
+        return N;
+    }
+
+    @Override
+    public int dimension() {
+        return D;
+    }
+
+    @Override
+    public void readFeatures(int row, double[] dst) {
+        int base = row * D;
+        for (int i = 0; i < D; i++) {
+            dst[i] = features[base + i];
+        }
+    }
+
+    @Override
+    public void readFeatures(int row, float[] dst, int dstOffset) {
+        System.arraycopy(features, row * D, dst, dstOffset, D);
+    }
+
+    @Override
+    public int readLabel(int row) {
+        return labels[row];
+    }
+}
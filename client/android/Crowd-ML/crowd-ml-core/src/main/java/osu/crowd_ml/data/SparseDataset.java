@@ -0,0 +1,207 @@
+package osu.crowd_ml.data;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
+/**
+ * A sparse dataset held entirely in memory in compressed sparse row (CSR) form: the nonzero
+ * features of row r are {@code values()[rowStart(r), rowEnd(r))} at the columns
+ * {@code columns()[rowStart(r), rowEnd(r))}.
+ *
+ * The dense {@link Dataset} reads scatter a row into a zeroed array, so code that does not know
+ * about sparse samples keeps working. {@link Batch#fillSparse(Dataset, int[])} copies the rows
+ * as they are.
+ */
+public final class SparseDataset implements Dataset {
+
+    private final int[] rowPtr;
+    private final int[] columns;
+    private final float[] values;
+    private final int[] labels;
+    private final int N;
+    private final int D;
+
+    private SparseDataset(int[] rowPtr, int[] columns, float[] values, int[] labels, int N, int D) {
+        this.rowPtr = rowPtr;
+        this.columns = columns;
+        this.values = values;
+        this.labels = labels;
+        this.N = N;
+        this.D = D;
+    }
+
+    /**
+     * Parses a LibSVM / SVMlight source into memory. The stream is closed.
+     *
+     * Each line is {@code label index:value index:value ...} with 1-based, not necessarily
+     * ascending, feature indices. Blank lines are skipped and anything after a '#' is ignored.
+     *
+     * @param in -- the source
+     * @param D -- number of features; every index must lie in [1, D]
+     * @throws IOException if the source cannot be read or is malformed
+     */
+    public static SparseDataset parseLibSvm(InputStream in, int D) throws IOException {
+        ByteLineReader reader = new ByteLineReader(in);
+        int[] rowPtr = new int[17];
+        int[] labels = new int[16];
+        int[] columns = new int[1024];
+        float[] values = new float[1024];
+        int N = 0;
+        int nnz = 0;
+        try {
+            while (reader.next()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Dataset load interrupted");
+                }
+                byte[] buf = reader.buffer();
+                int end = reader.lineEnd();
+                for (int i = reader.lineStart(); i < end; i++) {
+                    if (buf[i] == '#') {
+                        end = i;
+                        break;
+                    }
+                }
+
+                // Step 1. Read the label.
+                int pos = skipBlanks(buf, reader.lineStart(), end);
+                if (pos == end) {
+                    continue;
+                }
+                int tokenEnd = tokenEnd(buf, pos, end);
+                if (N == labels.length) {
+                    labels = Arrays.copyOf(labels, N * 2);
+                    rowPtr = Arrays.copyOf(rowPtr, N * 2 + 1);
+                }
+                labels[N] = NumberParser.parseInt(buf, pos, tokenEnd);
+
+                // Step 2. Read the index:value pairs.
+                pos = skipBlanks(buf, tokenEnd, end);
+                while (pos < end) {
+                    tokenEnd = tokenEnd(buf, pos, end);
+                    int colon = pos;
+                    while (colon < tokenEnd && buf[colon] != ':') {
+                        colon++;
+                    }
+                    if (colon == tokenEnd) {
+                        throw new IOException("Sample " + N + " has a feature without a value");
+                    }
+                    int column = NumberParser.parseInt(buf, pos, colon) - 1;
+                    if (column < 0 || column >= D) {
+                        throw new IOException("Sample " + N + " has feature index " + (column + 1)
+                                + " outside [1, " + D + "]");
+                    }
+                    if (nnz == columns.length) {
+                        columns = Arrays.copyOf(columns, nnz * 2);
+                        values = Arrays.copyOf(values, nnz * 2);
+                    }
+                    columns[nnz] = column;
+                    values[nnz] = NumberParser.parseFloat(buf, colon + 1, tokenEnd);
+                    nnz++;
+                    pos = skipBlanks(buf, tokenEnd, end);
+                }
+                N++;
+                rowPtr[N] = nnz;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed LibSVM data at sample " + N, e);
+        } finally {
+            reader.close();
+        }
+        return new SparseDataset(Arrays.copyOf(rowPtr, N + 1), Arrays.copyOf(columns, nnz),
+                Arrays.copyOf(values, nnz), Arrays.copyOf(labels, N), N, D);
+    }
+
+    private static int skipBlanks(byte[] buf, int pos, int end) {
+        while (pos < end && (buf[pos] == ' ' || buf[pos] == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int tokenEnd(byte[] buf, int pos, int end) {
+        while (pos < end && buf[pos] != ' ' && buf[pos] != '\t') {
+            pos++;
+        }
+        return pos;
+    }
+
+    @Override
+    public int size() {
+        return N;
+    }
+
+    @Override
+    public int dimension() {
+        return D;
+    }
+
+    /**
+     * @return the total number of stored features.
+     */
+    public int nonZeros() {
+        return rowPtr[N];
+    }
+
+    /**
+     * @return the position of the first stored feature of a row in {@link #columns()} and
+     * {@link #values()}.
+     */
+    public int rowStart(int row) {
+        return rowPtr[row];
+    }
+
+    /**
+     * @return the position just past the last stored feature of a row.
+     */
+    public int rowEnd(int row) {
+        return rowPtr[row + 1];
+    }
+
+    public int[] columns() {
+        return columns;
+    }
+
+    public float[] values() {
+        return values;
+    }
+
+    @Override
+    public void readFeatures(int row, double[] dst) {
+        Arrays.fill(dst, 0, D, 0);
+        for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+            dst[columns[p]] += values[p];
+        }
+    }
+
+    @Override
+    public void readFeatures(int row, float[] dst, int dstOffset) {
+        Arrays.fill(dst, dstOffset, dstOffset + D, 0);
+        for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+            dst[dstOffset + columns[p]] += values[p];
+        }
+    }
+
+    @Override
+    public int readLabel(int row) {
+        return labels[row];
+    }
+}
@@ -0,0 +1,93 @@
+package osu.crowd_ml.logging;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.io.PrintStream;
+
+/**
+ * Logging facade for the training engine. It mirrors the calls of {@code android.util.Log} so
+ * the same code logs to logcat in the app and to standard error on a plain JVM.
+ *
+ * Messages go to standard error until {@link #setLogger(Logger)} installs another destination.
+ */
+public final class Log {
+
+    private static volatile Logger logger = new StreamLogger(System.err);
+
+    // Prevent instantiation
+    private Log(){}
+
+    /**
+     * Sends every later message to logger.
+     */
+    public static void setLogger(Logger logger) {
+        if (logger == null) {
+            throw new NullPointerException("logger");
+        }
+        Log.logger = logger;
+    }
+
+    public static void d(String tag, String msg) {
+        logger.log(Logger.DEBUG, tag, msg, null);
+    }
+
+    public static void i(String tag, String msg) {
+        logger.log(Logger.INFO, tag, msg, null);
+    }
+
+    public static void w(String tag, String msg) {
+        logger.log(Logger.WARN, tag, msg, null);
+    }
+
+    public static void w(String tag, String msg, Throwable tr) {
+        logger.log(Logger.WARN, tag, msg, tr);
+    }
+
+    public static void e(String tag, String msg) {
+        logger.log(Logger.ERROR, tag, msg, null);
+    }
+
+    public static void e(String tag, String msg, Throwable tr) {
+        logger.log(Logger.ERROR, tag, msg, tr);
+    }
+
+    /**
+     * Writes messages in the "D/tag: msg" form of logcat.
+     */
+    public static final class StreamLogger implements Logger {
+
+        private static final String LEVELS = "??VDIWE";
+
+        private final PrintStream out;
+
+        public StreamLogger(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void log(int priority, String tag, String msg, Throwable tr) {
+            char level = priority >= 0 && priority < LEVELS.length() ? LEVELS.charAt(priority) : '?';
+            synchronized (out) {
+                out.println(level + "/" + tag + ": " + msg);
+                if (tr != null) {
+                    tr.printStackTrace(out);
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,7 @@
-package osu.crowd_ml.loss_functions;
-
-import java.util.List;
-
-import osu.crowd_ml.Parameters;
+package osu.crowd_ml.logging;
 
 /*
-Copyright 2016 Crowd-ML team
+Copyright 2017 Crowd-ML team
 
 
 Licensed under the Apache License, Version 2.0 (the "License");
@@ -21,14 +17,17 @@ See the License for the specific language governing permissions and
 limitations under the License
 */
 
-public interface LossFunction {
-
-    public String lossFunctionName();
-
-    public String lossType();
+/**
+ * Destination of the messages logged through {@link Log}.
+ *
+ * The priorities are those of {@code android.util.Log}. The throwable may be null.
+ */
+public interface Logger {
 
-    public int getLength();
-    public void setLength(Parameters params);
+    int DEBUG = 3;
+    int INFO = 4;
+    int WARN = 5;
+    int ERROR = 6;
 
-    public List<Double> gradient(List<Double> weights, double[] X, int Y, int D, int K, double L, int nh);
+    void log(int priority, String tag, String msg, Throwable tr);
 }
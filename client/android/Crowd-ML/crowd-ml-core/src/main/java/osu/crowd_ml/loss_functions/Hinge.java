@@ -0,0 +1,145 @@
+package osu.crowd_ml.loss_functions;
+
+import java.util.List;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.utils.ArrayUtils;
+
+/*
+Copyright 2016 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+public class Hinge implements ScaledLossFunction, LinearLossFunction {
+
+    protected int length;
+
+    public String lossFunctionName() {
+        return "Hinge";
+    }
+
+    public String lossType() {
+        return "binary";
+    }
+
+    public int getLength() {
+        return length;
+    }
+    public void setLength(Parameters params) {
+        length = params.getD();
+    }
+
+    public List<Double> gradient(List<Double> weights, double[] X, int Y, int D, int K, double L, int nh){
+        double[] grad = new double[weights.size()];
+        gradient(ArrayUtils.toArray(weights, new double[weights.size()]), X, Y, D, K, L, nh, 1, grad);
+        return ArrayUtils.toList(grad);
+    }
+
+    public void gradient(double[] weights, double[] X, int Y, int D, int K, double L, int nh,
+                         double scale, double[] grad) {
+        //dot product w*x
+        double dot = 0;
+        for (int i = 0; i < D; i++) {
+            dot += weights[i] * X[i];
+        }
+
+        //-yi xi inside the margin, plus 2 L w, written in a single sweep
+        double gradMultiplier = Y * dot < 1 ? scale * -Y : 0;
+        double sL = scale * 2 * L;
+        for (int i = 0; i < D; i++) {
+            grad[i] += X[i] * gradMultiplier + weights[i] * sL;
+        }
+    }
+
+    public void batchGradient(double[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, double L, int nh, double scale, double[] grad) {
+        MatrixKernels.perSample(this, weights, X, Y, start, end, D, K, L, nh, scale, grad);
+    }
+
+    public void batchGradient(float[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, float L, int nh, float scale, float[] grad) {
+        float sL = scale * 2 * L;
+        for (int b = start; b < end; b++) {
+            int row = b * D;
+            double dot = MatrixKernels.dot(weights, 0, X, row, D);
+            float gradMultiplier = Y[b] * dot < 1 ? scale * -Y[b] : 0;
+            for (int i = 0; i < D; i++) {
+                grad[i] += X[row + i] * gradMultiplier + weights[i] * sL;
+            }
+        }
+    }
+
+    public void addGradient(double[] weights, int[] columns, float[] values, int start, int end,
+                            int Y, int D, int K, int nh, double scale, double[] grad) {
+        //dot product w*x over the nonzero features
+        double dot = 0;
+        for (int p = start; p < end; p++) {
+            dot += weights[columns[p]] * values[p];
+        }
+
+        if (Y * dot < 1) {
+            double gradMultiplier = scale * -Y;
+            for (int p = start; p < end; p++) {
+                grad[columns[p]] += values[p] * gradMultiplier;
+            }
+        }
+    }
+
+    public void addScaledGradient(double[] weights, double weightScale, int[] columns,
+                                  float[] values, int start, int end, int Y, int D, int K,
+                                  int nh, double scale, SparseGradient grad) {
+        double dot = 0;
+        for (int p = start; p < end; p++) {
+            dot += weights[columns[p]] * values[p];
+        }
+        dot *= weightScale;
+
+        if (Y * dot < 1) {
+            double gradMultiplier = scale * -Y;
+            for (int p = start; p < end; p++) {
+                grad.add(columns[p], values[p] * gradMultiplier);
+            }
+        }
+    }
+
+    public void addRegularization(double[] weights, int D, int K, double L, int nh, double[] grad) {
+        for (int i = 0; i < grad.length; i++) {
+            grad[i] += 2 * weights[i] * L;
+        }
+    }
+
+    public int scoreCount(int K) {
+        return 1;
+    }
+
+    public double scoreGradient(double[] scores, int off, int K, int Y, double scale) {
+        double slack = 1 - Y * scores[off];
+        scores[off] = slack > 0 ? scale * -Y : 0;
+        return slack > 0 ? scale * slack : 0;
+    }
+
+    /**
+     * The exact maximization along the sample's dual coordinate, Y alpha clipped to [0, 1].
+     */
+    public void dualStep(double[] scores, double[] alpha, int off, int K, int Y, double q) {
+        double delta = 0;
+        if (q > 0) {
+            double a = Math.max(0, Math.min(1, (1 - Y * scores[0]) / q + Y * alpha[off]));
+            delta = Y * a - alpha[off];
+        }
+        alpha[off] += delta;
+        scores[0] = delta;
+    }
+}
@@ -0,0 +1,55 @@
+package osu.crowd_ml.loss_functions;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * A linear model whose loss on a sample depends on the weights only through its scores: one
+ * score w·x for a binary loss, or K class scores w_k·x with w_k the weights from k * D to
+ * (k + 1) * D. Regularization is {@code L ||w||^2}, with gradient {@code 2 L w}.
+ *
+ * The gradient of a sample is then its features times a few score gradients, so a trainer can
+ * keep per-sample gradients or dual variables as {@link #scoreCount} numbers per sample instead
+ * of full gradient vectors.
+ */
+public interface LinearLossFunction extends LossFunction {
+
+    /**
+     * @return the number of scores of a sample, 1 for a binary loss or K.
+     */
+    public int scoreCount(int K);
+
+    /**
+     * Replaces the scores at off with scale times the gradient of the sample's loss, without
+     * regularization, with respect to them. The loss comes out of the same evaluation.
+     *
+     * @return scale times the sample's loss.
+     */
+    public double scoreGradient(double[] scores, int off, int K, int Y, double scale);
+
+    /**
+     * Takes a dual coordinate ascent step on one sample (Shalev-Shwartz and Zhang, "Stochastic
+     * Dual Coordinate Ascent Methods for Regularized Loss Minimization", 2013), for the weights
+     * {@code w = 1 / (2 L N) sum_i alpha_i x_i}.
+     *
+     * @param scores -- the sample's scores at the current weights, from index 0; replaced by the
+     *               change of its dual variables
+     * @param alpha -- the dual variables of every sample; the sample's, from off, are updated
+     * @param q -- the squared norm of the sample's features over 2 L N
+     */
+    public void dualStep(double[] scores, double[] alpha, int off, int K, int Y, double q);
+}
@@ -0,0 +1,157 @@
+package osu.crowd_ml.loss_functions;
+
+import java.util.List;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.utils.ArrayUtils;
+
+/*
+Copyright 2016 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+public class LogReg implements ScaledLossFunction, LinearLossFunction {
+
+    protected int length;
+
+    public String lossFunctionName() {
+        return "LogReg";
+    }
+
+    public String lossType() {
+        return "binary";
+    }
+
+    public int getLength() {
+        return length;
+    }
+    public void setLength(Parameters params) {
+        length = params.getD();
+    }
+
+    public List<Double> gradient(List<Double> weights, double[] X, int Y, int D, int K, double L, int nh){
+        double[] grad = new double[weights.size()];
+        gradient(ArrayUtils.toArray(weights, new double[weights.size()]), X, Y, D, K, L, nh, 1, grad);
+        return ArrayUtils.toList(grad);
+    }
+
+    public void gradient(double[] weights, double[] X, int Y, int D, int K, double L, int nh,
+                         double scale, double[] grad) {
+        //dot product w*x
+        double dot = 0;
+        for (int j = 0; j < D; j++) {
+            dot += weights[j] * X[j];
+        }
+
+        double gradMultiplier = scale * multiplier(Y, dot);
+
+        //-yi xi exp(-yi w·xi) / (1+ exp(-yi w·xi)) + 2 L w
+        double sL = scale * 2 * L;
+        for (int j = 0; j < D; j++) {
+            grad[j] += X[j] * gradMultiplier + weights[j] * sL;
+        }
+    }
+
+    public void batchGradient(double[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, double L, int nh, double scale, double[] grad) {
+        MatrixKernels.perSample(this, weights, X, Y, start, end, D, K, L, nh, scale, grad);
+    }
+
+    public void batchGradient(float[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, float L, int nh, float scale, float[] grad) {
+        float sL = scale * 2 * L;
+        for (int b = start; b < end; b++) {
+            int row = b * D;
+            double dot = MatrixKernels.dot(weights, 0, X, row, D);
+            float gradMultiplier = (float) (scale * multiplier(Y[b], dot));
+            for (int j = 0; j < D; j++) {
+                grad[j] += X[row + j] * gradMultiplier + weights[j] * sL;
+            }
+        }
+    }
+
+    public void addGradient(double[] weights, int[] columns, float[] values, int start, int end,
+                            int Y, int D, int K, int nh, double scale, double[] grad) {
+        //dot product w*x over the nonzero features
+        double dot = 0;
+        for (int p = start; p < end; p++) {
+            dot += weights[columns[p]] * values[p];
+        }
+
+        double gradMultiplier = scale * multiplier(Y, dot);
+
+        for (int p = start; p < end; p++) {
+            grad[columns[p]] += values[p] * gradMultiplier;
+        }
+    }
+
+    public void addScaledGradient(double[] weights, double weightScale, int[] columns,
+                                  float[] values, int start, int end, int Y, int D, int K,
+                                  int nh, double scale, SparseGradient grad) {
+        double dot = 0;
+        for (int p = start; p < end; p++) {
+            dot += weights[columns[p]] * values[p];
+        }
+        dot *= weightScale;
+
+        double gradMultiplier = scale * multiplier(Y, dot);
+
+        for (int p = start; p < end; p++) {
+            grad.add(columns[p], values[p] * gradMultiplier);
+        }
+    }
+
+    /**
+     * -yi exp(-yi w·xi) / (1+ exp(-yi w·xi)), rewritten as -yi / (1 + exp(yi w·xi)) so that it
+     * takes one exponential and stays finite when the exponential overflows.
+     */
+    private static double multiplier(int Y, double dot) {
+        return -Y / (1 + Math.exp(Y * dot));
+    }
+
+    public void addRegularization(double[] weights, int D, int K, double L, int nh, double[] grad) {
+        for (int i = 0; i < grad.length; i++) {
+            grad[i] += 2 * weights[i] * L;
+        }
+    }
+
+    public int scoreCount(int K) {
+        return 1;
+    }
+
+    /**
+     * log(1 + exp(-yi w·xi)) and its gradient from a single exponential of -|yi w·xi|.
+     */
+    public double scoreGradient(double[] scores, int off, int K, int Y, double scale) {
+        double margin = Y * scores[off];
+        double e = Math.exp(-Math.abs(margin));
+        if (margin > 0) {
+            scores[off] = scale * -Y * e / (1 + e);
+            return scale * Math.log1p(e);
+        }
+        scores[off] = scale * -Y / (1 + e);
+        return scale * (Math.log1p(e) - margin);
+    }
+
+    /**
+     * The logistic loss is 1/4-smooth in the score, so alpha moves towards minus the score
+     * gradient by 1 / (1 + q / 4) of the way, option IV of Shalev-Shwartz and Zhang.
+     */
+    public void dualStep(double[] scores, double[] alpha, int off, int K, int Y, double q) {
+        double delta = (-multiplier(Y, scores[0]) - alpha[off]) / (1 + q / 4);
+        alpha[off] += delta;
+        scores[0] = delta;
+    }
+}
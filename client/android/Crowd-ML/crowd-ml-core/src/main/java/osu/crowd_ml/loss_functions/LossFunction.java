@@ -0,0 +1,65 @@
+package osu.crowd_ml.loss_functions;
+
+import java.util.List;
+
+import osu.crowd_ml.Parameters;
+
+/*
+Copyright 2016 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+public interface LossFunction {
+
+    public String lossFunctionName();
+
+    public String lossType();
+
+    public int getLength();
+    public void setLength(Parameters params);
+
+    public List<Double> gradient(List<Double> weights, double[] X, int Y, int D, int K, double L, int nh);
+
+    /**
+     * Adds scale times the gradient of one sample, regularization included, to grad. Averaging
+     * over a minibatch of B samples is B calls with {@code scale = 1 / B}.
+     *
+     * @param weights -- the current weights, laid out as for the list form
+     * @param grad -- the gradient accumulator, the same length as weights
+     */
+    public void gradient(double[] weights, double[] X, int Y, int D, int K, double L, int nh,
+                         double scale, double[] grad);
+
+    /**
+     * Adds scale times the summed gradients of samples [start, end) of a batch, regularization
+     * included, to grad. With {@code scale = 1 / B} over the whole batch of B samples this is the
+     * minibatch average.
+     *
+     * @param weights -- the current weights, laid out as for the list form
+     * @param X -- features of the batch, D per sample, row-major, as in
+     *          {@link osu.crowd_ml.data.Batch#features()}
+     * @param Y -- labels of the batch
+     * @param grad -- the gradient accumulator, the same length as weights
+     */
+    public void batchGradient(double[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, double L, int nh, double scale, double[] grad);
+
+    /**
+     * Float32 form of the batched gradient, for training with float32 weights and gradients.
+     * Dot products and softmax denominators are still accumulated in double.
+     */
+    public void batchGradient(float[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, float L, int nh, float scale, float[] grad);
+}
@@ -0,0 +1,477 @@
+package osu.crowd_ml.loss_functions;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Arrays;
+
+/**
+ * A fully connected ReLU network with a softmax output, described by its layer widths.
+ *
+ * The parameters live in one flat vector holding [W_0, b_0, W_1, b_1, ..., W_n, b_n], where
+ * W_l is stored row-major with one row per input of layer l, so that weight (i, j) of layer l is
+ * at {@code weightOffset(l) + i * out + j}. Each layer reads and writes its block of that vector
+ * in place. With two hidden layers of width nh this is the [W01, b1, W12, b2, W23, b3] layout
+ * used by the server.
+ *
+ * Activations and their gradients are kept per layer in the calling thread's
+ * {@link Workspace}, so an MLP itself is immutable and may be shared between threads.
+ */
+public final class MLP {
+
+    // widths[0] = D, widths[1..n] = hidden layers, widths[n + 1] = K
+    private final int[] widths;
+    private final int[] weightOffsets;
+    private final int[] biasOffsets;
+    private final int length;
+
+    /**
+     * @param D -- number of input features
+     * @param hidden -- width of each hidden layer, from the input side; at least one
+     * @param K -- number of classes
+     */
+    public MLP(int D, int[] hidden, int K) {
+        if (hidden.length == 0) {
+            throw new IllegalArgumentException("An MLP needs at least one hidden layer");
+        }
+        int layers = hidden.length + 1;
+        widths = new int[layers + 1];
+        widths[0] = D;
+        for (int l = 0; l < hidden.length; l++) {
+            if (hidden[l] <= 0) {
+                throw new IllegalArgumentException("Hidden layer " + l + " has width " + hidden[l]);
+            }
+            widths[l + 1] = hidden[l];
+        }
+        widths[layers] = K;
+
+        weightOffsets = new int[layers];
+        biasOffsets = new int[layers];
+        int offset = 0;
+        for (int l = 0; l < layers; l++) {
+            weightOffsets[l] = offset;
+            offset += widths[l] * widths[l + 1];
+            biasOffsets[l] = offset;
+            offset += widths[l + 1];
+        }
+        length = offset;
+    }
+
+    /**
+     * Parses a comma separated list of hidden layer widths, e.g. "128,64".
+     *
+     * @param spec -- the widths, or null or empty for two layers of width nh
+     * @param nh -- the default width
+     * @throws IllegalArgumentException if a width is not a positive integer
+     */
+    public static int[] parseHiddenLayers(String spec, int nh) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return new int[]{nh, nh};
+        }
+        String[] tokens = spec.split(",");
+        int[] hidden = new int[tokens.length];
+        for (int l = 0; l < tokens.length; l++) {
+            try {
+                hidden[l] = Integer.parseInt(tokens[l].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid hidden layer width: " + tokens[l]);
+            }
+            if (hidden[l] <= 0) {
+                throw new IllegalArgumentException("Invalid hidden layer width: " + tokens[l]);
+            }
+        }
+        return hidden;
+    }
+
+    /**
+     * @return the number of parameters.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return whether this network has the given shape.
+     */
+    boolean hasShape(int D, int[] hidden, int K) {
+        if (widths.length != hidden.length + 2 || widths[0] != D
+                || widths[widths.length - 1] != K) {
+            return false;
+        }
+        for (int l = 0; l < hidden.length; l++) {
+            if (widths[l + 1] != hidden[l]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the most likely class of one sample.
+     */
+    public int predict(double[] weights, double[] X) {
+        Workspace ws = Workspace.get();
+        int layers = widths.length - 1;
+        double[] a = ws.zeros(Workspace.FEATURES, widths[1]);
+        for (int j = 0; j < widths[0]; j++) {
+            addRow(a, X[j], weights, weightOffsets[0] + j * widths[1], widths[1]);
+        }
+        double[] scores = forward(weights, a, ws);
+
+        int K = widths[layers];
+        int bestGuess = 0;
+        for (int i = 1; i < K; i++) {
+            if (scores[i] > scores[bestGuess]) {
+                bestGuess = i;
+            }
+        }
+        return bestGuess;
+    }
+
+    /**
+     * Adds scale times the data term of one sample's gradient to grad.
+     */
+    void gradient(double[] weights, double[] X, int Y, double scale, double[] grad) {
+        Workspace ws = Workspace.get();
+        int out = widths[1];
+
+        //Forward Pass through the first layer
+        double[] z = ws.activations(0, out);
+        Arrays.fill(z, 0, out, 0.0);
+        for (int j = 0; j < widths[0]; j++) {
+            addRow(z, X[j], weights, weightOffsets[0] + j * out, out);
+        }
+
+        double[] d = backpropagate(weights, Y, scale, grad, ws);
+
+        //Backward Pass through the first layer
+        for (int i = 0; i < widths[0]; i++) {
+            addRow(grad, weightOffsets[0] + i * out, X[i], d, out);
+        }
+    }
+
+    /**
+     * Like {@link #gradient}, for a sample given by its nonzero features. Only the rows of the
+     * first layer belonging to those features are read or written.
+     */
+    void addGradient(double[] weights, int[] columns, float[] values, int start, int end, int Y,
+                     double scale, double[] grad) {
+        Workspace ws = Workspace.get();
+        int out = widths[1];
+
+        double[] z = ws.activations(0, out);
+        Arrays.fill(z, 0, out, 0.0);
+        for (int p = start; p < end; p++) {
+            addRow(z, values[p], weights, weightOffsets[0] + columns[p] * out, out);
+        }
+
+        double[] d = backpropagate(weights, Y, scale, grad, ws);
+
+        for (int p = start; p < end; p++) {
+            addRow(grad, weightOffsets[0] + columns[p] * out, values[p], d, out);
+        }
+    }
+
+    /**
+     * Runs the forward and backward passes for samples [start, end) of a batch as matrix
+     * products, e.g.
+     * A_1 = relu(X·W_0 + b_0) forward and dW_0 = Xᵀ·dZ_0 backward, so each weight is read once
+     * per group of samples instead of once per sample.
+     */
+    void batchGradient(double[] weights, float[] X, int[] Y, int start, int end, double scale,
+                       double[] grad) {
+        int B = end - start;
+        Workspace ws = Workspace.get();
+        int layers = widths.length - 1;
+        double[] x = MatrixKernels.widen(X, start * widths[0], B * widths[0],
+                ws.doubles(Workspace.FEATURES, B * widths[0]));
+
+        //Forward Pass
+
+        double[] in = x;
+        for (int l = 0; l < layers; l++) {
+            int out = widths[l + 1];
+            double[] z = ws.activations(l, B * out);
+            Arrays.fill(z, 0, B * out, 0.0);
+            MatrixKernels.multiply(in, 0, weights, weightOffsets[l], z, 0, B, widths[l], out);
+            addBias(z, weights, biasOffsets[l], B, out, l < layers - 1);
+            in = z;
+        }
+
+        // dScores = prob - 1{i = y}, already scaled for accumulation
+        int K = widths[layers];
+        for (int b = 0; b < B; b++) {
+            Softmax.scoreGradients(in, b * K, K, Y[start + b], scale);
+        }
+
+        //Backward Pass
+
+        double[] dz = in;
+        for (int l = layers - 1; l >= 0; l--) {
+            int n = widths[l];
+            int out = widths[l + 1];
+            double[] a = l > 0 ? ws.activations(l - 1, B * n) : x;
+            MatrixKernels.multiplyLeftTransposed(a, 0, dz, 0, grad, weightOffsets[l], B, n, out);
+            addColumnSums(dz, B, out, grad, biasOffsets[l]);
+            if (l > 0) {
+                double[] da = ws.deltas(l - 1, B * n);
+                Arrays.fill(da, 0, B * n, 0.0);
+                MatrixKernels.multiplyTransposed(dz, 0, weights, weightOffsets[l], da, 0, B, out,
+                        n);
+                maskRelu(da, a, B * n);
+                dz = da;
+            }
+        }
+    }
+
+    /**
+     * Float32 form of {@link #batchGradient(double[], float[], int[], int, int, double, double[])}.
+     */
+    void batchGradient(float[] weights, float[] X, int[] Y, int start, int end, float scale,
+                       float[] grad) {
+        int B = end - start;
+        Workspace ws = Workspace.get();
+        int layers = widths.length - 1;
+        int xOff = start * widths[0];
+
+        //Forward Pass
+
+        float[] in = X;
+        int inOff = xOff;
+        for (int l = 0; l < layers; l++) {
+            int out = widths[l + 1];
+            float[] z = ws.floatActivations(l, B * out);
+            Arrays.fill(z, 0, B * out, 0f);
+            MatrixKernels.multiply(in, inOff, weights, weightOffsets[l], z, 0, B, widths[l], out);
+            addBias(z, weights, biasOffsets[l], B, out, l < layers - 1);
+            in = z;
+            inOff = 0;
+        }
+
+        // dScores = prob - 1{i = y}, already scaled for accumulation
+        int K = widths[layers];
+        for (int b = 0; b < B; b++) {
+            Softmax.scoreGradients(in, b * K, K, Y[start + b], scale);
+        }
+
+        //Backward Pass
+
+        float[] dz = in;
+        for (int l = layers - 1; l >= 0; l--) {
+            int n = widths[l];
+            int out = widths[l + 1];
+            float[] a = l > 0 ? ws.floatActivations(l - 1, B * n) : X;
+            int aOff = l > 0 ? 0 : xOff;
+            MatrixKernels.multiplyLeftTransposed(a, aOff, dz, 0, grad, weightOffsets[l], B, n,
+                    out);
+            addColumnSums(dz, B, out, grad, biasOffsets[l]);
+            if (l > 0) {
+                float[] da = ws.floatDeltas(l - 1, B * n);
+                Arrays.fill(da, 0, B * n, 0f);
+                MatrixKernels.multiplyTransposed(dz, 0, weights, weightOffsets[l], da, 0, B, out,
+                        n);
+                maskRelu(da, a, B * n);
+                dz = da;
+            }
+        }
+    }
+
+    /**
+     * Adds scale * L times the regularization term to grad. The biases are not regularized.
+     *
+     * Each weight's term is read from the transposed position within its layer's block, which
+     * is what the server's gradient has always used; the two only agree for square blocks.
+     */
+    void regularize(double[] weights, double sL, double[] grad) {
+        for (int l = widths.length - 2; l >= 0; l--) {
+            int n = widths[l];
+            int out = widths[l + 1];
+            int o = weightOffsets[l];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < out; j++) {
+                    grad[o + i * out + j] += sL * weights[o + j * n + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Float32 form of {@link #regularize(double[], double, double[])}.
+     */
+    void regularize(float[] weights, float sL, float[] grad) {
+        for (int l = widths.length - 2; l >= 0; l--) {
+            int n = widths[l];
+            int out = widths[l + 1];
+            int o = weightOffsets[l];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < out; j++) {
+                    grad[o + i * out + j] += sL * weights[o + j * n + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the network from the first layer's pre-activation, held in activations(0), to the
+     * output and back, adding scale times the data term of every gradient except the first
+     * layer's weights to grad.
+     *
+     * @return the first layer's pre-activation gradient times scale, from which the caller forms
+     * the first layer's weight gradient. It is held in the calling thread's workspace.
+     */
+    private double[] backpropagate(double[] weights, int Y, double scale, double[] grad,
+                                   Workspace ws) {
+        int layers = widths.length - 1;
+        double[] a = ws.activations(0, widths[1]);
+        double[] scores = forward(weights, a, ws);
+
+        //Backward Pass
+
+        // dProbs_i = prob_i - 1{i = y}, already scaled for accumulation
+        int K = widths[layers];
+        Softmax.scoreGradients(scores, 0, K, Y, scale);
+
+        double[] dz = scores;
+        for (int l = layers - 1; l > 0; l--) {
+            int n = widths[l];
+            int out = widths[l + 1];
+            int o = weightOffsets[l];
+            double[] h = ws.activations(l - 1, n);
+            double[] dh = ws.deltas(l - 1, n);
+            for (int i = 0; i < n; i++) {
+                double dot = 0;
+                int row = o + i * out;
+                for (int j = 0; j < out; j++) {
+                    grad[row + j] += dz[j] * h[i];
+                    dot += dz[j] * weights[row + j];
+                }
+                dh[i] = h[i] > 0 ? dot : 0.0;
+            }
+            for (int i = 0; i < out; i++) {
+                grad[biasOffsets[l] + i] += dz[i];
+            }
+            dz = dh;
+        }
+        for (int i = 0; i < widths[1]; i++) {
+            grad[biasOffsets[0] + i] += dz[i];
+        }
+        return dz;
+    }
+
+    /**
+     * Completes the forward pass of one sample.
+     *
+     * @param a -- the first layer's pre-activation on entry; the activations of each layer are
+     *          left in the workspace
+     * @return the output scores.
+     */
+    private double[] forward(double[] weights, double[] a, Workspace ws) {
+        int layers = widths.length - 1;
+        relu(a, weights, biasOffsets[0], widths[1]);
+        for (int l = 1; l < layers; l++) {
+            int n = widths[l];
+            int out = widths[l + 1];
+            int o = weightOffsets[l];
+            double[] z = ws.activations(l, out);
+            for (int i = 0; i < out; i++) {
+                double dot = 0;
+                for (int j = 0; j < n; j++) {
+                    dot += a[j] * weights[o + i + j * out];
+                }
+                double sum = dot + weights[biasOffsets[l] + i];
+                z[i] = l < layers - 1 && !(sum > 0) ? 0.0 : sum;
+            }
+            a = z;
+        }
+        return a;
+    }
+
+    // dst[0, n) += x * src[off, off + n)
+    private static void addRow(double[] dst, double x, double[] src, int off, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] += x * src[off + i];
+        }
+    }
+
+    // dst[off, off + n) += src[0, n) * x
+    private static void addRow(double[] dst, int off, double x, double[] src, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[off + i] += src[i] * x;
+        }
+    }
+
+    private static void relu(double[] h, double[] weights, int bOff, int n) {
+        for (int i = 0; i < n; i++) {
+            double sum = h[i] + weights[bOff + i];
+            h[i] = sum > 0 ? sum : 0.0;
+        }
+    }
+
+    private static void addBias(double[] h, double[] weights, int bOff, int B, int n,
+                                boolean relu) {
+        for (int b = 0; b < B; b++) {
+            for (int i = 0; i < n; i++) {
+                double sum = h[b * n + i] + weights[bOff + i];
+                h[b * n + i] = relu && !(sum > 0) ? 0.0 : sum;
+            }
+        }
+    }
+
+    private static void maskRelu(double[] dh, double[] h, int n) {
+        for (int i = 0; i < n; i++) {
+            if (!(h[i] > 0)) {
+                dh[i] = 0.0;
+            }
+        }
+    }
+
+    private static void addColumnSums(double[] m, int rows, int cols, double[] grad, int off) {
+        for (int b = 0; b < rows; b++) {
+            for (int i = 0; i < cols; i++) {
+                grad[off + i] += m[b * cols + i];
+            }
+        }
+    }
+
+    private static void addBias(float[] h, float[] weights, int bOff, int B, int n,
+                                boolean relu) {
+        for (int b = 0; b < B; b++) {
+            for (int i = 0; i < n; i++) {
+                float sum = h[b * n + i] + weights[bOff + i];
+                h[b * n + i] = relu && !(sum > 0) ? 0f : sum;
+            }
+        }
+    }
+
+    private static void maskRelu(float[] dh, float[] h, int n) {
+        for (int i = 0; i < n; i++) {
+            if (!(h[i] > 0)) {
+                dh[i] = 0f;
+            }
+        }
+    }
+
+    private static void addColumnSums(float[] m, int rows, int cols, float[] grad, int off) {
+        for (int i = 0; i < cols; i++) {
+            double sum = 0;
+            for (int b = 0; b < rows; b++) {
+                sum += m[b * cols + i];
+            }
+            grad[off + i] += sum;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package osu.crowd_ml.loss_functions;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * Dense matrix products used by the batched gradient kernels. All matrices are row-major and
+ * addressed by an offset into a flat array, so weight blocks can be used in place inside the
+ * weight vector. Every product accumulates into C.
+ *
+ * The loops are blocked so that each weight is loaded once per group of {@link #ROWS} samples
+ * rather than once per sample, and the panel of the shared operand being worked on stays in
+ * cache while all of the batch is swept over it.
+ *
+ * The float32 overloads read and write float operands, halving the memory traffic. Dot products
+ * still accumulate in double; the other products accumulate into C in float, as BLAS does.
+ */
+final class MatrixKernels {
+
+    // Samples processed together by the register-blocked inner loops.
+    static final int ROWS = 4;
+
+    // Rows of the shared operand kept in cache while the whole batch is swept over them.
+    private static final int PANEL = 64;
+
+    // Prevent instantiation
+    private MatrixKernels(){}
+
+    /**
+     * C[m x n] += A[m x k] · B[k x n]
+     */
+    static void multiply(double[] A, int aOff, double[] B, int bOff, double[] C, int cOff,
+                         int m, int k, int n) {
+        for (int p0 = 0; p0 < k; p0 += PANEL) {
+            int p1 = Math.min(k, p0 + PANEL);
+            int r = 0;
+            for (; r + ROWS <= m; r += ROWS) {
+                int a0 = aOff + r * k;
+                int a1 = a0 + k;
+                int a2 = a1 + k;
+                int a3 = a2 + k;
+                int c0 = cOff + r * n;
+                int c1 = c0 + n;
+                int c2 = c1 + n;
+                int c3 = c2 + n;
+                for (int p = p0; p < p1; p++) {
+                    double x0 = A[a0 + p];
+                    double x1 = A[a1 + p];
+                    double x2 = A[a2 + p];
+                    double x3 = A[a3 + p];
+                    int b = bOff + p * n;
+                    for (int j = 0; j < n; j++) {
+                        double w = B[b + j];
+                        C[c0 + j] += x0 * w;
+                        C[c1 + j] += x1 * w;
+                        C[c2 + j] += x2 * w;
+                        C[c3 + j] += x3 * w;
+                    }
+                }
+            }
+            for (; r < m; r++) {
+                int a = aOff + r * k;
+                int c = cOff + r * n;
+                for (int p = p0; p < p1; p++) {
+                    double x = A[a + p];
+                    int b = bOff + p * n;
+                    for (int j = 0; j < n; j++) {
+                        C[c + j] += x * B[b + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C[m x n] += A[m x k] · B[n x k]ᵀ
+     */
+    static void multiplyTransposed(double[] A, int aOff, double[] B, int bOff, double[] C,
+                                   int cOff, int m, int k, int n) {
+        int r = 0;
+        for (; r + ROWS <= m; r += ROWS) {
+            int a0 = aOff + r * k;
+            int a1 = a0 + k;
+            int a2 = a1 + k;
+            int a3 = a2 + k;
+            int c = cOff + r * n;
+            for (int j = 0; j < n; j++) {
+                int b = bOff + j * k;
+                double s0 = 0;
+                double s1 = 0;
+                double s2 = 0;
+                double s3 = 0;
+                for (int p = 0; p < k; p++) {
+                    double w = B[b + p];
+                    s0 += A[a0 + p] * w;
+                    s1 += A[a1 + p] * w;
+                    s2 += A[a2 + p] * w;
+                    s3 += A[a3 + p] * w;
+                }
+                C[c + j] += s0;
+                C[c + n + j] += s1;
+                C[c + 2 * n + j] += s2;
+                C[c + 3 * n + j] += s3;
+            }
+        }
+        for (; r < m; r++) {
+            int a = aOff + r * k;
+            int c = cOff + r * n;
+            for (int j = 0; j < n; j++) {
+                int b = bOff + j * k;
+                double s = 0;
+                for (int p = 0; p < k; p++) {
+                    s += A[a + p] * B[b + p];
+                }
+                C[c + j] += s;
+            }
+        }
+    }
+
+    /**
+     * C[k x n] += A[m x k]ᵀ · B[m x n]
+     */
+    static void multiplyLeftTransposed(double[] A, int aOff, double[] B, int bOff, double[] C,
+                                       int cOff, int m, int k, int n) {
+        for (int p0 = 0; p0 < k; p0 += PANEL) {
+            int p1 = Math.min(k, p0 + PANEL);
+            int r = 0;
+            for (; r + ROWS <= m; r += ROWS) {
+                int a0 = aOff + r * k;
+                int a1 = a0 + k;
+                int a2 = a1 + k;
+                int a3 = a2 + k;
+                int b0 = bOff + r * n;
+                int b1 = b0 + n;
+                int b2 = b1 + n;
+                int b3 = b2 + n;
+                for (int p = p0; p < p1; p++) {
+                    double x0 = A[a0 + p];
+                    double x1 = A[a1 + p];
+                    double x2 = A[a2 + p];
+                    double x3 = A[a3 + p];
+                    int c = cOff + p * n;
+                    for (int j = 0; j < n; j++) {
+                        C[c + j] += x0 * B[b0 + j] + x1 * B[b1 + j] + x2 * B[b2 + j]
+                                + x3 * B[b3 + j];
+                    }
+                }
+            }
+            for (; r < m; r++) {
+                int a = aOff + r * k;
+                int b = bOff + r * n;
+                for (int p = p0; p < p1; p++) {
+                    double x = A[a + p];
+                    int c = cOff + p * n;
+                    for (int j = 0; j < n; j++) {
+                        C[c + j] += x * B[b + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Implements {@link LossFunction#batchGradient} one sample at a time, for losses without a
+     * matrix form.
+     */
+    static void perSample(LossFunction loss, double[] weights, float[] X, int[] Y, int start,
+                          int end, int D, int K, double L, int nh, double scale, double[] grad) {
+        double[] x = Workspace.get().doubles(Workspace.FEATURES, D);
+        for (int b = start; b < end; b++) {
+            for (int j = 0; j < D; j++) {
+                x[j] = X[b * D + j];
+            }
+            loss.gradient(weights, x, Y[b], D, K, L, nh, scale, grad);
+        }
+    }
+
+    /**
+     * Widens n floats starting at srcOff into the start of dst.
+     *
+     * @return dst
+     */
+    static double[] widen(float[] src, int srcOff, int n, double[] dst) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = src[srcOff + i];
+        }
+        return dst;
+    }
+
+    /**
+     * C[m x n] += A[m x k] · B[k x n], in float32
+     */
+    static void multiply(float[] A, int aOff, float[] B, int bOff, float[] C, int cOff,
+                         int m, int k, int n) {
+        for (int p0 = 0; p0 < k; p0 += PANEL) {
+            int p1 = Math.min(k, p0 + PANEL);
+            int r = 0;
+            for (; r + ROWS <= m; r += ROWS) {
+                int a0 = aOff + r * k;
+                int a1 = a0 + k;
+                int a2 = a1 + k;
+                int a3 = a2 + k;
+                int c0 = cOff + r * n;
+                int c1 = c0 + n;
+                int c2 = c1 + n;
+                int c3 = c2 + n;
+                for (int p = p0; p < p1; p++) {
+                    float x0 = A[a0 + p];
+                    float x1 = A[a1 + p];
+                    float x2 = A[a2 + p];
+                    float x3 = A[a3 + p];
+                    int b = bOff + p * n;
+                    for (int j = 0; j < n; j++) {
+                        float w = B[b + j];
+                        C[c0 + j] += x0 * w;
+                        C[c1 + j] += x1 * w;
+                        C[c2 + j] += x2 * w;
+                        C[c3 + j] += x3 * w;
+                    }
+                }
+            }
+            for (; r < m; r++) {
+                int a = aOff + r * k;
+                int c = cOff + r * n;
+                for (int p = p0; p < p1; p++) {
+                    float x = A[a + p];
+                    int b = bOff + p * n;
+                    for (int j = 0; j < n; j++) {
+                        C[c + j] += x * B[b + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C[m x n] += A[m x k] · B[n x k]ᵀ, in float32 with double accumulation
+     */
+    static void multiplyTransposed(float[] A, int aOff, float[] B, int bOff, float[] C,
+                                   int cOff, int m, int k, int n) {
+        int r = 0;
+        for (; r + ROWS <= m; r += ROWS) {
+            int a0 = aOff + r * k;
+            int a1 = a0 + k;
+            int a2 = a1 + k;
+            int a3 = a2 + k;
+            int c = cOff + r * n;
+            for (int j = 0; j < n; j++) {
+                int b = bOff + j * k;
+                double s0 = 0;
+                double s1 = 0;
+                double s2 = 0;
+                double s3 = 0;
+                for (int p = 0; p < k; p++) {
+                    double w = B[b + p];
+                    s0 += A[a0 + p] * w;
+                    s1 += A[a1 + p] * w;
+                    s2 += A[a2 + p] * w;
+                    s3 += A[a3 + p] * w;
+                }
+                C[c + j] += s0;
+                C[c + n + j] += s1;
+                C[c + 2 * n + j] += s2;
+                C[c + 3 * n + j] += s3;
+            }
+        }
+        for (; r < m; r++) {
+            int a = aOff + r * k;
+            int c = cOff + r * n;
+            for (int j = 0; j < n; j++) {
+                int b = bOff + j * k;
+                double s = 0;
+                for (int p = 0; p < k; p++) {
+                    s += A[a + p] * (double) B[b + p];
+                }
+                C[c + j] += s;
+            }
+        }
+    }
+
+    /**
+     * C[k x n] += A[m x k]ᵀ · B[m x n], in float32
+     */
+    static void multiplyLeftTransposed(float[] A, int aOff, float[] B, int bOff, float[] C,
+                                       int cOff, int m, int k, int n) {
+        for (int p0 = 0; p0 < k; p0 += PANEL) {
+            int p1 = Math.min(k, p0 + PANEL);
+            int r = 0;
+            for (; r + ROWS <= m; r += ROWS) {
+                int a0 = aOff + r * k;
+                int a1 = a0 + k;
+                int a2 = a1 + k;
+                int a3 = a2 + k;
+                int b0 = bOff + r * n;
+                int b1 = b0 + n;
+                int b2 = b1 + n;
+                int b3 = b2 + n;
+                for (int p = p0; p < p1; p++) {
+                    float x0 = A[a0 + p];
+                    float x1 = A[a1 + p];
+                    float x2 = A[a2 + p];
+                    float x3 = A[a3 + p];
+                    int c = cOff + p * n;
+                    for (int j = 0; j < n; j++) {
+                        C[c + j] += x0 * B[b0 + j] + x1 * B[b1 + j] + x2 * B[b2 + j]
+                                + x3 * B[b3 + j];
+                    }
+                }
+            }
+            for (; r < m; r++) {
+                int a = aOff + r * k;
+                int b = bOff + r * n;
+                for (int p = p0; p < p1; p++) {
+                    float x = A[a + p];
+                    int c = cOff + p * n;
+                    for (int j = 0; j < n; j++) {
+                        C[c + j] += x * B[b + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Dot product of n floats at aOff and bOff, accumulated in double.
+     */
+    static double dot(float[] a, int aOff, float[] b, int bOff, int n) {
+        double dot = 0;
+        for (int i = 0; i < n; i++) {
+            dot += a[aOff + i] * (double) b[bOff + i];
+        }
+        return dot;
+    }
+}
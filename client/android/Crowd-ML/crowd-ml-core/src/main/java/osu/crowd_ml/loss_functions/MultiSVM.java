@@ -0,0 +1,175 @@
+package osu.crowd_ml.loss_functions;
+
+import java.util.List;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.utils.ArrayUtils;
+
+/*
+    Copyright 2016 Crowd-ML team
+
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License
+*/
+
+public class MultiSVM implements ScaledLossFunction {
+
+    protected int length;
+
+    public String lossFunctionName() {
+        return "MultiSVM";
+    }
+
+    public String lossType() {
+        return "multi";
+    }
+
+    public int getLength() {
+        return length;
+    }
+    public void setLength(Parameters params) {
+        length = params.getD() * params.getK();
+    }
+
+    public List<Double> gradient(List<Double> weights, double[] X, int Y, int D, int K, double L, int nh){
+        double[] grad = new double[weights.size()];
+        gradient(ArrayUtils.toArray(weights, new double[weights.size()]), X, Y, D, K, L, nh, 1, grad);
+        return ArrayUtils.toList(grad);
+    }
+
+    public void gradient(double[] weights, double[] X, int Y, int D, int K, double L, int nh,
+                         double scale, double[] grad) {
+        //score_k = w_k·x, computed once
+        double[] scores = Workspace.get().doubles(Workspace.SCORES, K);
+        for (int k = 0; k < K; k++) {
+            double dot = 0;
+            int row = D * k;
+            for (int j = 0; j < D; j++) {
+                dot += X[j] * weights[row + j];
+            }
+            scores[k] = dot;
+        }
+        boolean violated = violated(scores, Y, K);
+
+        //regularization, plus -x for the true class when the margin is violated
+        double sL = scale * 2 * L;
+        for (int k = 0; k < K; k++) {
+            int row = D * k;
+            if (violated && k == Y) {
+                for (int j = 0; j < D; j++) {
+                    grad[row + j] += weights[row + j] * sL - scale * X[j];
+                }
+            } else {
+                for (int j = 0; j < D; j++) {
+                    grad[row + j] += weights[row + j] * sL;
+                }
+            }
+        }
+    }
+
+    public void batchGradient(double[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, double L, int nh, double scale, double[] grad) {
+        MatrixKernels.perSample(this, weights, X, Y, start, end, D, K, L, nh, scale, grad);
+    }
+
+    public void batchGradient(float[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, float L, int nh, float scale, float[] grad) {
+        double[] scores = Workspace.get().doubles(Workspace.SCORES, K);
+        float sL = scale * 2 * L;
+        for (int b = start; b < end; b++) {
+            int x = b * D;
+            for (int k = 0; k < K; k++) {
+                scores[k] = MatrixKernels.dot(X, x, weights, D * k, D);
+            }
+            boolean violated = violated(scores, Y[b], K);
+            for (int k = 0; k < K; k++) {
+                int row = D * k;
+                if (violated && k == Y[b]) {
+                    for (int j = 0; j < D; j++) {
+                        grad[row + j] += weights[row + j] * sL - scale * X[x + j];
+                    }
+                } else {
+                    for (int j = 0; j < D; j++) {
+                        grad[row + j] += weights[row + j] * sL;
+                    }
+                }
+            }
+        }
+    }
+
+    public void addGradient(double[] weights, int[] columns, float[] values, int start, int end,
+                            int Y, int D, int K, int nh, double scale, double[] grad) {
+        if (violated(sparseScores(weights, 1, columns, values, start, end, D, K), Y, K)) {
+            int row = D * Y;
+            for (int p = start; p < end; p++) {
+                grad[row + columns[p]] += scale * -1 * values[p];
+            }
+        }
+    }
+
+    public void addScaledGradient(double[] weights, double weightScale, int[] columns,
+                                  float[] values, int start, int end, int Y, int D, int K,
+                                  int nh, double scale, SparseGradient grad) {
+        if (violated(sparseScores(weights, weightScale, columns, values, start, end, D, K), Y,
+                K)) {
+            int row = D * Y;
+            for (int p = start; p < end; p++) {
+                grad.add(row + columns[p], scale * -1 * values[p]);
+            }
+        }
+    }
+
+    /**
+     * @return the workspace's score buffer, holding the K scores of one sparse sample for the
+     * weights weightScale * weights.
+     */
+    private static double[] sparseScores(double[] weights, double weightScale, int[] columns,
+                                         float[] values, int start, int end, int D, int K) {
+        double[] scores = Workspace.get().doubles(Workspace.SCORES, K);
+        for (int k = 0; k < K; k++) {
+            double dot = 0;
+            int row = D * k;
+            for (int p = start; p < end; p++) {
+                dot += values[p] * weights[row + columns[p]];
+            }
+            scores[k] = dot * weightScale;
+        }
+        return scores;
+    }
+
+    /**
+     * Tests the margin of the true class against the other classes' scores. The competing score
+     * is the running sum of the other classes' scores rather than their maximum, as it always has
+     * been.
+     */
+    private static boolean violated(double[] scores, int Y, int K) {
+        double dot = Y >= 0 && Y < K ? scores[Y] : 0;
+        double counterDot = 0;
+        double maxDot = 0;
+        for (int k = 0; k < K; k++) {
+            if (k != Y) {
+                counterDot += scores[k];
+            }
+            if (counterDot > maxDot) {
+                maxDot = counterDot;
+            }
+        }
+        return dot < 1 + maxDot;
+    }
+
+    public void addRegularization(double[] weights, int D, int K, double L, int nh, double[] grad) {
+        for (int i = 0; i < grad.length; i++) {
+            grad[i] += 2 * weights[i] * L;
+        }
+    }
+}
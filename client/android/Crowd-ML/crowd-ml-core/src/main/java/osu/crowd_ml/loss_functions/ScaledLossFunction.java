@@ -0,0 +1,42 @@
+package osu.crowd_ml.loss_functions;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * A sparse loss whose regularization term is exactly {@code 2 L w} and whose data term depends on
+ * the weights only through the class scores w_k·x.
+ *
+ * A trainer can then keep the weights as {@code w = s * v} for a scalar s. The regularization
+ * step {@code w -= rate * 2 L w} becomes {@code s *= 1 - 2 rate L}, which costs O(1) instead of
+ * a pass over every weight, and the data term only touches the weights of nonzero features. The
+ * data term is emitted into a {@link SparseGradient}, so applying it costs no more than computing
+ * it.
+ */
+public interface ScaledLossFunction extends SparseLossFunction {
+
+    /**
+     * Like {@link #addGradient}, for the weights {@code weightScale * weights}, adding only to
+     * the coordinates of the weights the sample's nonzero features are multiplied with.
+     *
+     * @param weights -- the weights without their scale factor
+     * @param weightScale -- the scale factor s
+     */
+    public void addScaledGradient(double[] weights, double weightScale, int[] columns,
+                                  float[] values, int start, int end, int Y, int D, int K,
+                                  int nh, double scale, SparseGradient grad);
+}
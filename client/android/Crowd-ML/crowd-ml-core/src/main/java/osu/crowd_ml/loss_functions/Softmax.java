@@ -0,0 +1,273 @@
+package osu.crowd_ml.loss_functions;
+
+import java.util.List;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.utils.ArrayUtils;
+
+/*
+Copyright 2016 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+public class Softmax implements ScaledLossFunction, LinearLossFunction {
+
+    protected int length;
+
+    public String lossFunctionName() {
+        return "Softmax";
+    }
+
+    public String lossType() {
+        return "multi";
+    }
+
+    public int getLength() {
+        return length;
+    }
+    public void setLength(Parameters params) {
+        length = params.getD() * params.getK();
+    }
+
+    public List<Double> gradient(List<Double> weights, double[] X, int Y, int D, int K, double L, int nh){
+        double[] grad = new double[weights.size()];
+        gradient(ArrayUtils.toArray(weights, new double[weights.size()]), X, Y, D, K, L, nh, 1, grad);
+        return ArrayUtils.toList(grad);
+    }
+
+    public void gradient(double[] weights, double[] X, int Y, int D, int K, double L, int nh,
+                         double scale, double[] grad) {
+        //Weights are read and gradients stored in column-major vectorization form for [W0,W1,W2,...,Wk]
+
+        //score_i = w_i·x, computed once
+        double[] scores = Workspace.get().doubles(Workspace.SCORES, K);
+        for (int i = 0; i < K; i++) {
+            double dot = 0;
+            int row = D * i;
+            for (int j = 0; j < D; j++) {
+                dot += X[j] * weights[row + j];
+            }
+            scores[i] = dot;
+        }
+        scoreGradients(scores, 0, K, Y, scale);
+
+        //∇_0_i = -X(1{i = y} - prob_i) + 2 L w_i, written in a single sweep
+        double sL = scale * 2 * L;
+        for (int i = 0; i < K; i++) {
+            double multiplier = scores[i];
+            int row = D * i;
+            for (int j = 0; j < D; j++) {
+                grad[row + j] += X[j] * multiplier + weights[row + j] * sL;
+            }
+        }
+    }
+
+    /**
+     * Computes the scores of the whole batch as one product S = X·Wᵀ and the weight gradient as
+     * dW = dSᵀ·X, so each weight is read once per group of samples instead of once per sample.
+     */
+    public void batchGradient(double[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, double L, int nh, double scale, double[] grad) {
+        int B = end - start;
+        Workspace ws = Workspace.get();
+        double[] x = MatrixKernels.widen(X, start * D, B * D,
+                ws.doubles(Workspace.FEATURES, B * D));
+
+        //scores[b][i] = Θ_i · X_b
+        double[] scores = ws.zeros(Workspace.SCORES, B * K);
+        MatrixKernels.multiplyTransposed(x, 0, weights, 0, scores, 0, B, D, K);
+
+        //dScores[b][i] = prob_i - 1{i = y_b}, scaled for accumulation
+        for (int b = 0; b < B; b++) {
+            scoreGradients(scores, b * K, K, Y[start + b], scale);
+        }
+
+        //∇W = dScoresᵀ · X
+        MatrixKernels.multiplyLeftTransposed(scores, 0, x, 0, grad, 0, B, K, D);
+
+        //apply regularization, once for each of the B samples
+        double sL = scale * B * L;
+        for (int i = 0; i < D * K; i++) {
+            grad[i] += 2 * weights[i] * sL;
+        }
+    }
+
+    /**
+     * Float32 form of the matrix-form batched gradient.
+     */
+    public void batchGradient(float[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, float L, int nh, float scale, float[] grad) {
+        int B = end - start;
+        float[] scores = Workspace.get().floatZeros(Workspace.SCORES, B * K);
+        MatrixKernels.multiplyTransposed(X, start * D, weights, 0, scores, 0, B, D, K);
+        for (int b = 0; b < B; b++) {
+            scoreGradients(scores, b * K, K, Y[start + b], scale);
+        }
+        MatrixKernels.multiplyLeftTransposed(scores, 0, X, start * D, grad, 0, B, K, D);
+
+        float sL = scale * B * L;
+        for (int i = 0; i < D * K; i++) {
+            grad[i] += 2 * weights[i] * sL;
+        }
+    }
+
+    public void addGradient(double[] weights, int[] columns, float[] values, int start, int end,
+                            int Y, int D, int K, int nh, double scale, double[] grad) {
+        //Weights are read and gradients stored in column-major vectorization form for [W0,W1,W2,...,Wk]
+        double[] scores = sparseScoreGradients(weights, 1, columns, values, start, end, Y, D, K,
+                scale);
+
+        //∇_0_i = -X(1{i = y} - prob_i)
+        for (int i = 0; i < K; i++) {
+            double multiplier = scores[i];
+            int row = D * i;
+            for (int p = start; p < end; p++) {
+                grad[row + columns[p]] += values[p] * multiplier;
+            }
+        }
+    }
+
+    public void addScaledGradient(double[] weights, double weightScale, int[] columns,
+                                  float[] values, int start, int end, int Y, int D, int K,
+                                  int nh, double scale, SparseGradient grad) {
+        double[] scores = sparseScoreGradients(weights, weightScale, columns, values, start, end,
+                Y, D, K, scale);
+
+        for (int i = 0; i < K; i++) {
+            double multiplier = scores[i];
+            int row = D * i;
+            for (int p = start; p < end; p++) {
+                grad.add(row + columns[p], values[p] * multiplier);
+            }
+        }
+    }
+
+    /**
+     * Computes the scores of one sparse sample for the weights weightScale * weights, then
+     * replaces them with their gradients as {@link #scoreGradients} does.
+     *
+     * @return the workspace's score buffer, holding the K score gradients.
+     */
+    private static double[] sparseScoreGradients(double[] weights, double weightScale,
+                                                 int[] columns, float[] values, int start,
+                                                 int end, int Y, int D, int K, double scale) {
+        //score_i = w_i·x over the nonzero features
+        double[] scores = Workspace.get().doubles(Workspace.SCORES, K);
+        for (int i = 0; i < K; i++) {
+            double dot = 0;
+            int row = D * i;
+            for (int p = start; p < end; p++) {
+                dot += values[p] * weights[row + columns[p]];
+            }
+            scores[i] = dot * weightScale;
+        }
+        scoreGradients(scores, 0, K, Y, scale);
+        return scores;
+    }
+
+    /**
+     * Replaces the K scores at off with the gradient of the cross-entropy loss with respect to
+     * them, scale * (prob_i - 1{i = y}). The probabilities are formed with the log-sum-exp shift,
+     * taking a single exponential per class.
+     *
+     * @return scale times the loss, -log prob_y, or 0 if the label is out of range.
+     */
+    static double scoreGradients(double[] scores, int off, int K, int Y, double scale) {
+        //scoreMax used to prevent overflow
+        double scoreMax = Double.NEGATIVE_INFINITY;
+        for (int i = off; i < off + K; i++) {
+            if (scores[i] > scoreMax) {
+                scoreMax = scores[i];
+            }
+        }
+
+        boolean labeled = Y >= 0 && Y < K;
+        double labelScore = labeled ? scores[off + Y] - scoreMax : 0;
+
+        //denom = Σ(i:k) exp(score_i - scoreMax)
+        double denom = 0;
+        for (int i = off; i < off + K; i++) {
+            double e = Math.exp(scores[i] - scoreMax);
+            scores[i] = e;
+            denom += e;
+        }
+
+        //prob_i = exp(score_i - scoreMax)/denom
+        double sd = scale / denom;
+        for (int i = off; i < off + K; i++) {
+            scores[i] *= sd;
+        }
+        if (!labeled) {
+            return 0;
+        }
+        scores[off + Y] -= scale;
+
+        //-log prob_y = log(denom) - (score_y - scoreMax)
+        return scale * (Math.log(denom) - labelScore);
+    }
+
+    /**
+     * Float32 form of {@link #scoreGradients(double[], int, int, int, double)}.
+     */
+    static void scoreGradients(float[] scores, int off, int K, int Y, float scale) {
+        float scoreMax = Float.NEGATIVE_INFINITY;
+        for (int i = off; i < off + K; i++) {
+            if (scores[i] > scoreMax) {
+                scoreMax = scores[i];
+            }
+        }
+        double denom = 0;
+        for (int i = off; i < off + K; i++) {
+            float e = (float) Math.exp(scores[i] - scoreMax);
+            scores[i] = e;
+            denom += e;
+        }
+        float sd = (float) (scale / denom);
+        for (int i = off; i < off + K; i++) {
+            scores[i] *= sd;
+        }
+        if (Y >= 0 && Y < K) {
+            scores[off + Y] -= scale;
+        }
+    }
+
+    public void addRegularization(double[] weights, int D, int K, double L, int nh, double[] grad) {
+        for (int i = 0; i < grad.length; i++) {
+            grad[i] += 2 * weights[i] * L;
+        }
+    }
+
+    public int scoreCount(int K) {
+        return K;
+    }
+
+    public double scoreGradient(double[] scores, int off, int K, int Y, double scale) {
+        return scoreGradients(scores, off, K, Y, scale);
+    }
+
+    /**
+     * The cross-entropy loss is 1/2-smooth in the scores, so alpha moves towards minus the score
+     * gradients by 1 / (1 + q / 2) of the way, option IV of Shalev-Shwartz and Zhang.
+     */
+    public void dualStep(double[] scores, double[] alpha, int off, int K, int Y, double q) {
+        scoreGradients(scores, 0, K, Y, 1);
+        double step = 1 / (1 + q / 2);
+        for (int i = 0; i < K; i++) {
+            double delta = (-scores[i] - alpha[off + i]) * step;
+            alpha[off + i] += delta;
+            scores[i] = delta;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package osu.crowd_ml.loss_functions;
+
+import java.util.List;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.utils.ArrayUtils;
+
+/*
+Copyright 2016 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * Softmax regression on top of a ReLU network. By default the network has two hidden layers of
+ * width nh; {@link Parameters#getHiddenLayers()} configures any other list of widths. The
+ * network itself is an {@link MLP}.
+ */
+public class SoftmaxNN implements SparseLossFunction {
+
+    protected int length;
+
+    // Hidden layer widths, or null for two layers of width nh
+    private int[] hidden;
+    private int[] defaultHidden;
+    private volatile MLP mlp;
+
+    public String lossFunctionName() {
+        return "SoftmaxNN";
+    }
+
+    public String lossType() {
+        return "NN";
+    }
+
+    public int getLength() {
+        return length;
+    }
+    public void setLength(Parameters params) {
+        int D = params.getD();
+        int K = params.getK();
+        hidden = MLP.parseHiddenLayers(params.getHiddenLayers(), params.getNH());
+
+        // Arch: In W  1HL  1HL W  2HL ... Out W  Out
+        length = mlp(D, K, params.getNH()).getLength();
+    }
+
+    public List<Double> gradient(List<Double> weights, double[] X, int Y, int D, int K, double L, int nh){
+        double[] grad = new double[weights.size()];
+        gradient(ArrayUtils.toArray(weights, new double[weights.size()]), X, Y, D, K, L, nh, 1, grad);
+        return ArrayUtils.toList(grad);
+    }
+
+    public void gradient(double[] weights, double[] X, int Y, int D, int K, double L, int nh,
+                         double scale, double[] grad) {
+        MLP net = mlp(D, K, nh);
+        net.gradient(weights, X, Y, scale, grad);
+        net.regularize(weights, scale * L, grad);
+    }
+
+    public void batchGradient(double[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, double L, int nh, double scale, double[] grad) {
+        MLP net = mlp(D, K, nh);
+        net.batchGradient(weights, X, Y, start, end, scale, grad);
+
+        // Regularization, once for each of the B samples
+        net.regularize(weights, scale * (end - start) * L, grad);
+    }
+
+    public void batchGradient(float[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, float L, int nh, float scale, float[] grad) {
+        MLP net = mlp(D, K, nh);
+        net.batchGradient(weights, X, Y, start, end, scale, grad);
+        net.regularize(weights, scale * (end - start) * L, grad);
+    }
+
+    public void addGradient(double[] weights, int[] columns, float[] values, int start, int end,
+                            int Y, int D, int K, int nh, double scale, double[] grad) {
+        mlp(D, K, nh).addGradient(weights, columns, values, start, end, Y, scale, grad);
+    }
+
+    public void addRegularization(double[] weights, int D, int K, double L, int nh, double[] grad) {
+        mlp(D, K, nh).regularize(weights, L, grad);
+    }
+
+    /**
+     * @return the network for this shape, reusing the previous one when the shape is unchanged.
+     */
+    private MLP mlp(int D, int K, int nh) {
+        int[] widths = hidden;
+        if (widths == null) {
+            if (defaultHidden == null || defaultHidden[0] != nh) {
+                defaultHidden = new int[]{nh, nh};
+            }
+            widths = defaultHidden;
+        }
+        MLP net = mlp;
+        if (net == null || !net.hasShape(D, widths, K)) {
+            net = new MLP(D, widths, K);
+            mlp = net;
+        }
+        return net;
+    }
+}
@@ -0,0 +1,119 @@
+package osu.crowd_ml.loss_functions;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * A gradient accumulator that remembers which coordinates have been written, so that it can be
+ * read back as index/value pairs and cleared in time proportional to the number of pairs rather
+ * than to its length.
+ *
+ * Pairs are listed in the order their coordinates were first written. Every coordinate that has
+ * not been written is zero.
+ */
+public final class SparseGradient {
+
+    private final double[] values;
+    private final boolean[] touched;
+    private final int[] indices;
+    private int size;
+
+    /**
+     * @param length -- the number of coordinates, the same as the length of the weights
+     */
+    public SparseGradient(int length) {
+        values = new double[length];
+        touched = new boolean[length];
+        indices = new int[length];
+    }
+
+    public int length() {
+        return values.length;
+    }
+
+    /**
+     * @return the number of index/value pairs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the coordinate of pair k.
+     */
+    public int index(int k) {
+        return indices[k];
+    }
+
+    /**
+     * @return the value of pair k.
+     */
+    public double value(int k) {
+        return values[indices[k]];
+    }
+
+    /**
+     * @return the value of coordinate i, zero if it has not been written.
+     */
+    public double get(int i) {
+        return values[i];
+    }
+
+    /**
+     * Adds value to coordinate i.
+     */
+    public void add(int i, double value) {
+        if (!touched[i]) {
+            touched[i] = true;
+            indices[size++] = i;
+        }
+        values[i] += value;
+    }
+
+    /**
+     * Replaces the value of coordinate i.
+     */
+    public void set(int i, double value) {
+        if (!touched[i]) {
+            touched[i] = true;
+            indices[size++] = i;
+        }
+        values[i] = value;
+    }
+
+    /**
+     * Adds every pair of other to this gradient.
+     */
+    public void addAll(SparseGradient other) {
+        for (int k = 0; k < other.size; k++) {
+            int i = other.indices[k];
+            add(i, other.values[i]);
+        }
+    }
+
+    /**
+     * Resets every written coordinate to zero.
+     */
+    public void clear() {
+        for (int k = 0; k < size; k++) {
+            int i = indices[k];
+            values[i] = 0;
+            touched[i] = false;
+        }
+        size = 0;
+    }
+}
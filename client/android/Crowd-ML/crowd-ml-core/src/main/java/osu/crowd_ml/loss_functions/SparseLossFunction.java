@@ -0,0 +1,50 @@
+package osu.crowd_ml.loss_functions;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * A loss function that can compute its gradient from a sample stored in compressed sparse row
+ * form, touching only the weights of the sample's nonzero features.
+ *
+ * The gradient of {@link LossFunction#gradient} is split in two: a data term that depends on the
+ * sample, and a regularization term that does not. Averaged over a minibatch, the gradient is
+ * {@code sum(scale * data term) + regularization} with {@code scale = 1 / batch size}, which is
+ * what {@link #addGradient} and {@link #addRegularization} accumulate.
+ */
+public interface SparseLossFunction extends LossFunction {
+
+    /**
+     * Adds scale times the data term of the gradient of one sample to grad.
+     *
+     * @param weights -- the current weights, laid out as for {@link LossFunction#gradient}
+     * @param columns -- columns of the sample's nonzero features
+     * @param values -- values of the sample's nonzero features
+     * @param start -- position of the sample's first feature in columns and values
+     * @param end -- position just past the sample's last feature
+     * @param Y -- the sample's label
+     * @param scale -- weight of this sample in the accumulated gradient
+     * @param grad -- the gradient accumulator, the same length as weights
+     */
+    public void addGradient(double[] weights, int[] columns, float[] values, int start, int end,
+                            int Y, int D, int K, int nh, double scale, double[] grad);
+
+    /**
+     * Adds the regularization term of the gradient to grad.
+     */
+    public void addRegularization(double[] weights, int D, int K, double L, int nh, double[] grad);
+}
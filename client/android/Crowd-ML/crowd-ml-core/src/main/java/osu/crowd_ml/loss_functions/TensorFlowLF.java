@@ -47,4 +47,22 @@ public class TensorFlowLF implements LossFunction {
     public List<Double> gradient(List<Double> weights, double[] X, int Y, int D, int K, double L, int nh) {
         return null;
     }
+
+    @Override
+    public void gradient(double[] weights, double[] X, int Y, int D, int K, double L, int nh,
+                         double scale, double[] grad) {
+        // None
+    }
+
+    @Override
+    public void batchGradient(double[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, double L, int nh, double scale, double[] grad) {
+        // None
+    }
+
+    @Override
+    public void batchGradient(float[] weights, float[] X, int[] Y, int start, int end, int D,
+                              int K, float L, int nh, float scale, float[] grad) {
+        // None
+    }
 }
@@ -0,0 +1,155 @@
+package osu.crowd_ml.loss_functions;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Arrays;
+
+/**
+ * Scratch buffers for the gradient kernels, one set per thread. Buffers only ever grow, so once
+ * the first batch of a given shape has been processed the kernels allocate nothing.
+ *
+ * Each buffer is identified by a slot. A kernel must not call another kernel that uses a slot it
+ * is still holding, and no buffer may be kept once the loss function call that requested it
+ * returns.
+ */
+final class Workspace {
+
+    // Features widened to double, one sample or a whole batch
+    static final int FEATURES = 0;
+    // Class scores, and later their gradients
+    static final int SCORES = 1;
+
+    private static final int SLOTS = 2;
+
+    private static final ThreadLocal<Workspace> CURRENT = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    private final double[][] buffers = new double[SLOTS][0];
+    private final float[][] floatBuffers = new float[SLOTS][0];
+
+    // Per layer buffers of the MLP
+    private double[][] activations = new double[0][];
+    private double[][] deltas = new double[0][];
+    private float[][] floatActivations = new float[0][];
+    private float[][] floatDeltas = new float[0][];
+
+    private Workspace(){}
+
+    /**
+     * @return the calling thread's workspace.
+     */
+    static Workspace get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return a buffer of at least size elements. Its contents are left over from earlier use.
+     */
+    double[] doubles(int slot, int size) {
+        double[] buf = buffers[slot];
+        if (buf.length < size) {
+            buf = new double[size];
+            buffers[slot] = buf;
+        }
+        return buf;
+    }
+
+    /**
+     * @return the output buffer of one layer of an {@link MLP}, of at least size elements. Its
+     * contents are left over from earlier use.
+     */
+    double[] activations(int layer, int size) {
+        if (activations.length <= layer) {
+            activations = grow(activations, layer + 1);
+        }
+        return activations[layer] = ensure(activations[layer], size);
+    }
+
+    /**
+     * @return the gradient buffer matching {@link #activations}.
+     */
+    double[] deltas(int layer, int size) {
+        if (deltas.length <= layer) {
+            deltas = grow(deltas, layer + 1);
+        }
+        return deltas[layer] = ensure(deltas[layer], size);
+    }
+
+    /**
+     * @return the float32 counterpart of {@link #activations}.
+     */
+    float[] floatActivations(int layer, int size) {
+        if (floatActivations.length <= layer) {
+            floatActivations = Arrays.copyOf(floatActivations, layer + 1);
+        }
+        return floatActivations[layer] = ensure(floatActivations[layer], size);
+    }
+
+    /**
+     * @return the float32 counterpart of {@link #deltas}.
+     */
+    float[] floatDeltas(int layer, int size) {
+        if (floatDeltas.length <= layer) {
+            floatDeltas = Arrays.copyOf(floatDeltas, layer + 1);
+        }
+        return floatDeltas[layer] = ensure(floatDeltas[layer], size);
+    }
+
+    private static double[][] grow(double[][] buffers, int layers) {
+        double[][] bigger = new double[layers][];
+        System.arraycopy(buffers, 0, bigger, 0, buffers.length);
+        return bigger;
+    }
+
+    private static double[] ensure(double[] buf, int size) {
+        return buf != null && buf.length >= size ? buf : new double[size];
+    }
+
+    private static float[] ensure(float[] buf, int size) {
+        return buf != null && buf.length >= size ? buf : new float[size];
+    }
+
+    /**
+     * @return a buffer of at least size elements, the first size of which are zero.
+     */
+    double[] zeros(int slot, int size) {
+        double[] buf = doubles(slot, size);
+        Arrays.fill(buf, 0, size, 0.0);
+        return buf;
+    }
+
+    /**
+     * @return the float32 counterpart of {@link #doubles}.
+     */
+    float[] floats(int slot, int size) {
+        return floatBuffers[slot] = ensure(floatBuffers[slot], size);
+    }
+
+    /**
+     * @return the float32 counterpart of {@link #zeros}.
+     */
+    float[] floatZeros(int slot, int size) {
+        float[] buf = floats(slot, size);
+        Arrays.fill(buf, 0, size, 0f);
+        return buf;
+    }
+}
@@ -0,0 +1,58 @@
+package osu.crowd_ml.optimizers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import osu.crowd_ml.utils.ArrayUtils;
+
+/**
+ * Adagrad: each weight's rate is c / sqrt(G + eps), where G is the sum of the squares of every
+ * gradient of that weight seen so far.
+ */
+public class Adagrad implements Optimizer {
+
+    private double[] sumSquares = new double[0];
+    private double[] savedSumSquares;
+
+    public String optimizerName() {
+        return "adagrad";
+    }
+
+    public void prepare(int length) {
+        if (sumSquares.length != length) {
+            sumSquares = new double[length];
+        }
+    }
+
+    public void step(double[] weights, double[] grad, double c, double eps, int t) {
+        prepare(weights.length);
+        double[] sumSquares = this.sumSquares;
+        for (int i = 0; i < weights.length; i++) {
+            double g = grad[i];
+            sumSquares[i] += g * g;
+            weights[i] -= c / Math.sqrt(sumSquares[i] + eps) * g;
+        }
+    }
+
+    public void snapshot() {
+        savedSumSquares = ArrayUtils.copy(sumSquares, savedSumSquares);
+    }
+
+    public void rollback() {
+        sumSquares = ArrayUtils.copy(savedSumSquares, sumSquares);
+    }
+}
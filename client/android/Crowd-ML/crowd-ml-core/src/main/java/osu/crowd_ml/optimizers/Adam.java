@@ -0,0 +1,89 @@
+package osu.crowd_ml.optimizers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import osu.crowd_ml.utils.ArrayUtils;
+
+/**
+ * Adam (Kingma and Ba, 2015) with step size c, beta1 = 0.9 and beta2 = 0.999. The bias
+ * corrections count the steps taken by this optimizer, not the server's iteration.
+ */
+public class Adam implements Optimizer {
+
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+
+    private double[] mean = new double[0];
+    private double[] variance = new double[0];
+    // BETA1 and BETA2 raised to the number of steps taken
+    private double beta1t = 1;
+    private double beta2t = 1;
+
+    // The state saved by snapshot()
+    private double[] savedMean;
+    private double[] savedVariance;
+    private double savedBeta1t;
+    private double savedBeta2t;
+
+    public String optimizerName() {
+        return "adam";
+    }
+
+    public void prepare(int length) {
+        if (mean.length != length) {
+            mean = new double[length];
+            variance = new double[length];
+            beta1t = 1;
+            beta2t = 1;
+        }
+    }
+
+    public void step(double[] weights, double[] grad, double c, double eps, int t) {
+        prepare(weights.length);
+        double[] mean = this.mean;
+        double[] variance = this.variance;
+        // Both bias corrections folded into the step size. Hogwild threads share one optimizer,
+        // so the step count is advanced under a lock; the per-weight state is not.
+        double rate;
+        synchronized (this) {
+            beta1t *= BETA1;
+            beta2t *= BETA2;
+            rate = c * Math.sqrt(1 - beta2t) / (1 - beta1t);
+        }
+        for (int i = 0; i < weights.length; i++) {
+            double g = grad[i];
+            mean[i] = BETA1 * mean[i] + (1 - BETA1) * g;
+            variance[i] = BETA2 * variance[i] + (1 - BETA2) * g * g;
+            weights[i] -= rate * mean[i] / (Math.sqrt(variance[i]) + eps);
+        }
+    }
+
+    public void snapshot() {
+        savedMean = ArrayUtils.copy(mean, savedMean);
+        savedVariance = ArrayUtils.copy(variance, savedVariance);
+        savedBeta1t = beta1t;
+        savedBeta2t = beta2t;
+    }
+
+    public void rollback() {
+        mean = ArrayUtils.copy(savedMean, mean);
+        variance = ArrayUtils.copy(savedVariance, variance);
+        beta1t = savedBeta1t;
+        beta2t = savedBeta2t;
+    }
+}
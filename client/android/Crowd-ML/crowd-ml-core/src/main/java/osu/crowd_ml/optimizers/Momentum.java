@@ -0,0 +1,67 @@
+package osu.crowd_ml.optimizers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import osu.crowd_ml.utils.ArrayUtils;
+
+/**
+ * Gradient descent with momentum 0.9 and step size c: "momentum" for the classical form and
+ * "nesterov" for Nesterov's accelerated gradient, in the form of Sutskever et al. (2013) that
+ * only needs the gradient at the current weights.
+ */
+public class Momentum implements Optimizer {
+
+    private static final double MU = 0.9;
+
+    private final boolean nesterov;
+    private double[] velocity = new double[0];
+    private double[] savedVelocity;
+
+    public Momentum(boolean nesterov) {
+        this.nesterov = nesterov;
+    }
+
+    public String optimizerName() {
+        return nesterov ? "nesterov" : "momentum";
+    }
+
+    public void prepare(int length) {
+        if (velocity.length != length) {
+            velocity = new double[length];
+        }
+    }
+
+    public void step(double[] weights, double[] grad, double c, double eps, int t) {
+        prepare(weights.length);
+        double[] velocity = this.velocity;
+        for (int i = 0; i < weights.length; i++) {
+            double step = c * grad[i];
+            double v = MU * velocity[i] - step;
+            velocity[i] = v;
+            weights[i] += nesterov ? MU * v - step : v;
+        }
+    }
+
+    public void snapshot() {
+        savedVelocity = ArrayUtils.copy(velocity, savedVelocity);
+    }
+
+    public void rollback() {
+        velocity = ArrayUtils.copy(savedVelocity, velocity);
+    }
+}
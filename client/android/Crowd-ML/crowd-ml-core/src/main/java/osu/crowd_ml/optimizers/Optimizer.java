@@ -0,0 +1,62 @@
+package osu.crowd_ml.optimizers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * A descent rule. An optimizer is created once per training run and keeps whatever per-weight
+ * history it needs between calls to {@link #step}, across local steps and server rounds. Its
+ * state is reset whenever the number of weights changes.
+ *
+ * Once its state has been allocated, a step allocates nothing.
+ */
+public interface Optimizer {
+
+    /**
+     * @return the name of the descent algorithm, as in {@code Parameters.getDescentAlg()}.
+     */
+    public String optimizerName();
+
+    /**
+     * Allocates the state for length weights, unless it already has. Any state kept for a
+     * different length is discarded. {@link #step} calls this itself; call it first when
+     * several threads step the same optimizer.
+     */
+    public void prepare(int length);
+
+    /**
+     * Takes one descent step, updating the weights in place.
+     *
+     * @param weights -- the weights, updated in place
+     * @param grad -- the gradient at weights, the same length
+     * @param c -- the base learning rate
+     * @param eps -- smoothing term of the adaptive rates
+     * @param t -- the server's weight iteration
+     */
+    public void step(double[] weights, double[] grad, double c, double eps, int t);
+
+    /**
+     * Saves the current state, so that the steps of a round can be undone with
+     * {@link #rollback}.
+     */
+    public void snapshot();
+
+    /**
+     * Restores the state saved by the last {@link #snapshot}.
+     */
+    public void rollback();
+}
@@ -0,0 +1,55 @@
+package osu.crowd_ml.optimizers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import osu.crowd_ml.logging.Log;
+
+public final class Optimizers {
+
+    // Prevent instantiation
+    private Optimizers(){}
+
+    /**
+     * @param descentAlg -- the name of the descent algorithm, see Parameters.getDescentAlg()
+     * @return a new optimizer with empty state. Unknown names get "simple".
+     */
+    public static Optimizer create(String descentAlg) {
+        if (descentAlg == null) {
+            descentAlg = "";
+        }
+        switch (descentAlg) {
+            case "constant":
+            case "simple":
+            case "sqrt":
+                return new SGD(descentAlg);
+            case "adagrad":
+                return new Adagrad();
+            case "rmsProp":
+                return new RMSProp();
+            case "adam":
+                return new Adam();
+            case "momentum":
+                return new Momentum(false);
+            case "nesterov":
+                return new Momentum(true);
+            default:
+                Log.e("Optimizers", "Invalid descent algorithm. Defaulting to \'simple\'.");
+                return new SGD("simple");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package osu.crowd_ml.optimizers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import osu.crowd_ml.utils.ArrayUtils;
+
+/**
+ * RMSProp: like {@link Adagrad}, with the sum of squared gradients replaced by a moving average
+ * that decays by 0.9 per step.
+ */
+public class RMSProp implements Optimizer {
+
+    private static final double DECAY = 0.9;
+
+    private double[] meanSquares = new double[0];
+    private double[] savedMeanSquares;
+
+    public String optimizerName() {
+        return "rmsProp";
+    }
+
+    public void prepare(int length) {
+        if (meanSquares.length != length) {
+            meanSquares = new double[length];
+        }
+    }
+
+    public void step(double[] weights, double[] grad, double c, double eps, int t) {
+        prepare(weights.length);
+        double[] meanSquares = this.meanSquares;
+        for (int i = 0; i < weights.length; i++) {
+            double g = grad[i];
+            meanSquares[i] = DECAY * meanSquares[i] + (1 - DECAY) * g * g;
+            weights[i] -= c / Math.sqrt(meanSquares[i] + eps) * g;
+        }
+    }
+
+    public void snapshot() {
+        savedMeanSquares = ArrayUtils.copy(meanSquares, savedMeanSquares);
+    }
+
+    public void rollback() {
+        meanSquares = ArrayUtils.copy(savedMeanSquares, meanSquares);
+    }
+}
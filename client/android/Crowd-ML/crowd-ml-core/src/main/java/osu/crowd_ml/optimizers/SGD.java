@@ -0,0 +1,66 @@
+package osu.crowd_ml.optimizers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * Plain gradient descent with a learning rate shared by every weight: c for "constant", c / t
+ * for "simple" and c / sqrt(t) for "sqrt". It has no state.
+ */
+public class SGD implements Optimizer {
+
+    private final String name;
+
+    public SGD(String name) {
+        this.name = name;
+    }
+
+    public String optimizerName() {
+        return name;
+    }
+
+    /**
+     * @return the learning rate of the next step.
+     */
+    public double rate(double c, int t) {
+        if (name.equals("constant")) {
+            return c;
+        } else if (name.equals("sqrt")) {
+            return c / Math.sqrt(t);
+        }
+        return c / t;
+    }
+
+    public void prepare(int length) {
+        // No state
+    }
+
+    public void step(double[] weights, double[] grad, double c, double eps, int t) {
+        double rate = rate(c, t);
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] -= rate * grad[i];
+        }
+    }
+
+    public void snapshot() {
+        // No state
+    }
+
+    public void rollback() {
+        // No state
+    }
+}
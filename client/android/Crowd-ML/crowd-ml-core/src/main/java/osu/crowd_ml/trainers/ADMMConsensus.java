@@ -0,0 +1,108 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.List;
+
+/**
+ * The server side of consensus ADMM, see {@link ADMMTrainer}: the Java counterpart of
+ * addToWeightBatch() in crowdML-server.js for the "admm" local solver.
+ *
+ * Contributions x_i + u_i are collected in batches of M. Each client's loss already carries the
+ * regularization term, so the consensus update is their average, z = mean(x_i + u_i) (Boyd et
+ * al., section 7.1 with g = 0). The dual residual rho sqrt(M) ||z - z_prev|| and the clients'
+ * primal residuals ||x_i - z|| both going to zero signal convergence.
+ *
+ * Not thread safe.
+ */
+public final class ADMMConsensus {
+
+    private final int batchSize;
+    private final double rho;
+
+    // The sum of the contributions of the current batch, and how many there are.
+    private final double[] sum;
+    private int count;
+
+    private final double[] z;
+    private double dualResidual = Double.NaN;
+
+    /**
+     * @param initialWeights -- the first consensus
+     * @param batchSize -- number of contributions averaged into each consensus,
+     *                  maxWeightBatchSize on the server
+     * @param rho -- the penalty the clients use, see Parameters.getAdmmRho()
+     */
+    public ADMMConsensus(List<Double> initialWeights, int batchSize, double rho) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize = " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.rho = rho;
+        this.z = new double[initialWeights.size()];
+        this.sum = new double[z.length];
+        for (int i = 0; i < z.length; i++) {
+            z[i] = initialWeights.get(i);
+        }
+    }
+
+    /**
+     * Adds a client's contribution x_i + u_i, as returned by ADMMTrainer.train().
+     *
+     * @return true if it completed a batch and the consensus was updated.
+     */
+    public boolean add(List<Double> contribution) {
+        if (contribution.size() != z.length) {
+            throw new IllegalArgumentException("Expected " + z.length + " values, got "
+                    + contribution.size());
+        }
+        for (int i = 0; i < z.length; i++) {
+            sum[i] += contribution.get(i);
+        }
+        if (++count < batchSize) {
+            return false;
+        }
+
+        // z = mean(x_i + u_i), tracking how far it moved.
+        double moved = 0;
+        for (int i = 0; i < z.length; i++) {
+            double next = sum[i] / count;
+            moved += (next - z[i]) * (next - z[i]);
+            z[i] = next;
+            sum[i] = 0;
+        }
+        dualResidual = rho * Math.sqrt(count * moved);
+        count = 0;
+        return true;
+    }
+
+    /**
+     * @return the current consensus z, to send to the clients as the weights. Updated in place
+     * by {@link #add}.
+     */
+    public double[] consensus() {
+        return z;
+    }
+
+    /**
+     * @return the dual residual of the last update, or NaN before the first.
+     */
+    public double dualResidual() {
+        return dualResidual;
+    }
+}
@@ -0,0 +1,166 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.ArrayList;
+import java.util.List;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.logging.Log;
+import osu.crowd_ml.utils.ArrayUtils;
+
+/**
+ * The client side of consensus ADMM (Boyd et al., "Distributed Optimization and Statistical
+ * Learning via the Alternating Direction Method of Multipliers", 2011, section 7.1). Each client
+ * keeps its primal variables x and scaled dual variables u across rounds, and the weights the
+ * server sends are the consensus z. A round
+ *
+ * 1. updates the duals with the new consensus, u += x - z,
+ * 2. approximately solves the local subproblem, minimizing the client's loss plus
+ *    rho / 2 ||x - z + u||^2, with localUpdateNum steps of InternalTrainer starting from z,
+ *    and
+ * 3. sends x + u, the client's contribution to the next consensus, see {@link ADMMConsensus}.
+ *
+ * An interrupted round leaves x and u as they were. Gradient mode (localUpdateNum = 0) sends
+ * InternalTrainer's minibatch gradient.
+ */
+public final class ADMMTrainer implements Trainer {
+
+    private static final String TAG = "ADMMTrainer";
+
+    private static ADMMTrainer instance = null;
+
+    private Parameters params;
+    private List<Double> weights;
+    private int t;
+    private int length;
+
+    // The primal and scaled dual variables, kept across rounds for as long as the length stays
+    // the same.
+    private double[] x;
+    private double[] u;
+
+    // The consensus, the duals being computed and the center of the proximal term of a round.
+    private double[] z;
+    private double[] nextU;
+    private double[] center;
+
+    private ADMMTrainer(){}
+
+    public static Trainer getInstance() {
+        if (instance == null) {
+            instance = new ADMMTrainer();
+        }
+        return instance;
+    }
+
+    public List<Double> getNoisyGrad() {
+        return InternalTrainer.getInstance().setIter(t).setParams(params).setWeights(weights)
+                .getNoisyGrad();
+    }
+
+    /**
+     * @param numIterations number of training steps to run on the local subproblem.
+     * @return x + u, or the consensus received if the thread was interrupted.
+     */
+    @Override
+    public List<Double> train(final int numIterations) {
+        boolean warm = x != null && x.length == length;
+        if (z == null || z.length != length) {
+            z = new double[length];
+            nextU = new double[length];
+            center = new double[length];
+        }
+        ArrayUtils.toArray(weights, z);
+
+        // Step 1. Update the duals with the new consensus, u += x - z.
+        for (int i = 0; i < length; i++) {
+            nextU[i] = warm ? u[i] + x[i] - z[i] : 0;
+            center[i] = z[i] - nextU[i];
+        }
+
+        // Step 2. Solve the local subproblem, starting from the consensus. Starting from the last
+        // x instead lets the inexact solutions of successive rounds oscillate.
+        InternalTrainer local = (InternalTrainer) InternalTrainer.getInstance();
+        local.setIter(t).setParams(params).setWeights(weights);
+        local.setProximal(center, params.getAdmmRho());
+        List<Double> solution;
+        try {
+            solution = local.train(numIterations);
+        } finally {
+            local.setProximal(null, 0);
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            return weights;
+        }
+
+        // Step 3. Keep the new x and u and send x + u.
+        if (!warm) {
+            x = new double[length];
+            u = new double[length];
+        }
+        ArrayUtils.toArray(solution, x);
+        double[] swap = u;
+        u = nextU;
+        nextU = swap;
+        List<Double> contribution = new ArrayList<>(length);
+        double residual = 0;
+        for (int i = 0; i < length; i++) {
+            contribution.add(x[i] + u[i]);
+            residual += (x[i] - z[i]) * (x[i] - z[i]);
+        }
+        Log.d(TAG, "Primal residual ||x - z||: " + Math.sqrt(residual));
+        return contribution;
+    }
+
+    @Override
+    public Trainer setIter(int t) {
+        this.t = t;
+        return getInstance();
+    }
+
+    @Override
+    public Trainer setWeights(List<Double> weights) {
+        assert weights.size() > 0;
+        this.weights = weights;
+        this.length = weights.size();
+        return getInstance();
+    }
+
+    @Override
+    public Trainer setParams(Parameters params) {
+        this.params = params;
+        if (params.getLossFunction() != null) {
+            params.getLossFunction().setLength(params);
+        }
+        return getInstance();
+    }
+
+    @Override
+    public void destroy() {
+        x = null;
+        u = null;
+        z = null;
+        nextU = null;
+        center = null;
+        weights = null;
+        params = null;
+        instance = null;
+    }
+}
@@ -0,0 +1,144 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import osu.crowd_ml.data.Batch;
+
+/**
+ * Prepares minibatches on a background thread so that loading batch i+1 overlaps with the
+ * gradient computation on batch i.
+ *
+ * A fixed pool of {@link Batch} buffers circulates between the producer thread and the consumer:
+ * the producer fills a free buffer and queues it as ready, the consumer takes a ready buffer and
+ * hands it back with {@link #recycle(Batch)} once it is done with it. Exactly {@code count}
+ * batches are produced, so no samples are drawn beyond what the consumer will use.
+ */
+public final class BatchPrefetcher {
+
+    /**
+     * Fills a batch with the next minibatch. Called on the producer thread.
+     */
+    public interface Producer {
+        /**
+         * @return false if the producer thread was interrupted and the batch is incomplete.
+         */
+        boolean produce(Batch batch);
+    }
+
+    // Marks the end of the stream in the ready queue.
+    private static final Batch END = new Batch();
+
+    private final Producer producer;
+    private final int count;
+    private final BlockingQueue<Batch> free;
+    private final BlockingQueue<Batch> ready;
+    private final Thread thread;
+    private volatile RuntimeException failure;
+
+    /**
+     * @param producer -- fills each batch
+     * @param count -- number of batches to produce
+     * @param buffers -- number of batch buffers, 2 for double or 3 for triple buffering
+     */
+    public BatchPrefetcher(Producer producer, int count, int buffers) {
+        this.producer = producer;
+        this.count = count;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.ready = new ArrayBlockingQueue<>(buffers + 1);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new Batch());
+        }
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                produceAll();
+            }
+        }, "BatchPrefetcher");
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void produceAll() {
+        try {
+            for (int i = 0; i < count; i++) {
+                Batch batch = free.take();
+                if (!producer.produce(batch)) {
+                    break;
+                }
+                ready.put(batch);
+            }
+        } catch (InterruptedException e) {
+            // Shutting down.
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            // Never blocks, the ready queue has room for every buffer plus the end marker.
+            ready.offer(END);
+        }
+    }
+
+    /**
+     * Waits for the next prepared batch.
+     *
+     * @return the batch, or null if the producer stopped early because it was interrupted.
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public Batch take() throws InterruptedException {
+        Batch batch = ready.take();
+        if (batch == END) {
+            // Leave the marker for any later call.
+            ready.offer(END);
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+        return batch;
+    }
+
+    /**
+     * Returns a batch obtained from {@link #take()} to the pool so it can be refilled.
+     */
+    public void recycle(Batch batch) {
+        free.offer(batch);
+    }
+
+    /**
+     * Stops the producer thread and waits for it to exit. Safe to call from an interrupted
+     * thread; the caller's interrupt status is preserved.
+     */
+    public void shutdown() {
+        thread.interrupt();
+        boolean interrupted = Thread.interrupted();
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * The last few curvature pairs s = x_new - x and y = grad_new - grad of L-BFGS, kept in ring
+ * buffers, and the two-loop recursion that turns them into a search direction.
+ *
+ * Only pairs with positive curvature s·y are kept, so the inverse Hessian approximation stays
+ * positive definite.
+ */
+final class CurvatureHistory {
+
+    private final int length;
+
+    // The pairs, one row of length each, 1 / (y·s) of each pair, the row the next pair goes to
+    // and the number of pairs kept.
+    private final double[] sHistory;
+    private final double[] yHistory;
+    private final double[] rho;
+    private final double[] alpha;
+    private int head;
+    private int count;
+
+    /**
+     * @param pairs -- the most pairs kept
+     * @param length -- the number of weights
+     */
+    CurvatureHistory(int pairs, int length) {
+        this.length = length;
+        sHistory = new double[pairs * length];
+        yHistory = new double[pairs * length];
+        rho = new double[pairs];
+        alpha = new double[pairs];
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return the number of pairs kept.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Drops every pair.
+     */
+    void clear() {
+        count = 0;
+        head = 0;
+    }
+
+    /**
+     * Keeps the pair s = x1 - x0, y = grad1 - grad0 in place of the oldest one, unless its
+     * curvature s·y is not positive.
+     *
+     * @return whether the pair was kept.
+     */
+    boolean add(double[] x0, double[] x1, double[] grad0, double[] grad1) {
+        // Check the curvature first: when the history is full, row head is the oldest pair,
+        // which must stay intact if the new pair is rejected.
+        double ys = 0;
+        for (int j = 0; j < length; j++) {
+            ys += (x1[j] - x0[j]) * (grad1[j] - grad0[j]);
+        }
+        if (!(ys > 0)) {
+            return false;
+        }
+
+        int pairs = rho.length;
+        int row = head * length;
+        for (int j = 0; j < length; j++) {
+            sHistory[row + j] = x1[j] - x0[j];
+            yHistory[row + j] = grad1[j] - grad0[j];
+        }
+        rho[head] = 1 / ys;
+        head = (head + 1) % pairs;
+        count = Math.min(count + 1, pairs);
+        return true;
+    }
+
+    /**
+     * Computes direction = -H grad with the two-loop recursion over the kept pairs, H being the
+     * inverse Hessian approximation scaled by s·y / y·y of the newest pair. Without pairs it is
+     * the steepest descent direction of unit length.
+     */
+    void direction(double[] grad, double[] direction) {
+        int pairs = rho.length;
+        for (int j = 0; j < length; j++) {
+            direction[j] = -grad[j];
+        }
+        if (count == 0) {
+            double norm = Math.sqrt(dot(direction, direction));
+            if (norm > 0) {
+                for (int j = 0; j < length; j++) {
+                    direction[j] /= norm;
+                }
+            }
+            return;
+        }
+
+        // Newest to oldest
+        for (int k = 0; k < count; k++) {
+            int slot = (head - 1 - k + pairs) % pairs;
+            int row = slot * length;
+            double a = 0;
+            for (int j = 0; j < length; j++) {
+                a += sHistory[row + j] * direction[j];
+            }
+            a *= rho[slot];
+            alpha[slot] = a;
+            for (int j = 0; j < length; j++) {
+                direction[j] -= a * yHistory[row + j];
+            }
+        }
+
+        // Initial scaling s·y / y·y of the newest pair
+        int newest = (head - 1 + pairs) % pairs;
+        double yy = 0;
+        for (int j = 0; j < length; j++) {
+            yy += yHistory[newest * length + j] * yHistory[newest * length + j];
+        }
+        double gamma = 1 / (rho[newest] * yy);
+        for (int j = 0; j < length; j++) {
+            direction[j] *= gamma;
+        }
+
+        // Oldest to newest
+        for (int k = count - 1; k >= 0; k--) {
+            int slot = (head - 1 - k + pairs) % pairs;
+            int row = slot * length;
+            double b = 0;
+            for (int j = 0; j < length; j++) {
+                b += yHistory[row + j] * direction[j];
+            }
+            b = alpha[slot] - rho[slot] * b;
+            for (int j = 0; j < length; j++) {
+                direction[j] += b * sHistory[row + j];
+            }
+        }
+    }
+
+    static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int j = 0; j < a.length; j++) {
+            sum += a[j] * b[j];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,128 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Random;
+
+/**
+ * Draws training sample numbers in [0, N) without replacement, one epoch after another.
+ *
+ * The sampler keeps a permutation of the samples in an int array and runs an incremental
+ * Fisher-Yates shuffle over it: every draw swaps a random remaining entry to the cursor and
+ * advances the cursor. A draw is O(1), an epoch needs no reshuffling pass, and the samples left in
+ * the current epoch are always those at and after the cursor, so {@link #snapshot()} and
+ * {@link #rollback(long)} only need to save and restore the cursor.
+ *
+ * With a block size b greater than 1 the sampler shuffles blocks of b consecutive samples
+ * instead and returns each block's samples in order. Batches then read contiguous runs of the
+ * training set, which is friendlier to storage, at the cost of correlated samples within a block.
+ *
+ * Not thread safe.
+ */
+public final class EpochSampler {
+
+    private final int N;
+    private final int blockSize;
+    private final int[] blocks;
+    private final Random random;
+
+    // Number of sample slots drawn in the current epoch, including slots past N in the last block.
+    private int cursor;
+    private int epoch;
+
+    /**
+     * @param N -- number of samples
+     * @param blockSize -- number of consecutive samples drawn together, 1 for plain sampling
+     * @param random -- source of randomness
+     */
+    public EpochSampler(int N, int blockSize, Random random) {
+        if (N <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("N = " + N + ", blockSize = " + blockSize);
+        }
+        this.N = N;
+        this.blockSize = blockSize;
+        this.random = random;
+        this.blocks = new int[(int) (((long) N + blockSize - 1) / blockSize)];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = i;
+        }
+    }
+
+    public int size() {
+        return N;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return the next sample number. A new epoch starts automatically once every sample has been
+     * drawn.
+     */
+    public int next() {
+        while (true) {
+            if (cursor == blocks.length * blockSize) {
+                cursor = 0;
+                epoch++;
+            }
+            int slot = cursor / blockSize;
+            if (cursor % blockSize == 0) {
+                // Entering a new block: swap a random remaining block into this slot.
+                int pick = slot + random.nextInt(blocks.length - slot);
+                int tmp = blocks[slot];
+                blocks[slot] = blocks[pick];
+                blocks[pick] = tmp;
+            }
+            long sample = (long) blocks[slot] * blockSize + cursor % blockSize;
+            cursor++;
+            // Only the last block can be partial.
+            if (sample < N) {
+                return (int) sample;
+            }
+        }
+    }
+
+    /**
+     * Fills dst with the next dst.length sample numbers.
+     */
+    public void next(int[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = next();
+        }
+    }
+
+    /**
+     * @return the sampler's position, to be passed to {@link #rollback(long)}.
+     */
+    public long snapshot() {
+        return ((long) epoch << 32) | cursor;
+    }
+
+    /**
+     * Returns every sample drawn since the snapshot to the current epoch. If that epoch has ended
+     * in the meantime, a fresh epoch is started instead.
+     */
+    public void rollback(long snapshot) {
+        if ((int) (snapshot >>> 32) == epoch) {
+            cursor = (int) snapshot;
+        } else {
+            cursor = 0;
+        }
+    }
+}
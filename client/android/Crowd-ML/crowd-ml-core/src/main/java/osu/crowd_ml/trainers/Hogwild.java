@@ -0,0 +1,259 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.data.Batch;
+import osu.crowd_ml.loss_functions.LossFunction;
+import osu.crowd_ml.loss_functions.ScaledLossFunction;
+import osu.crowd_ml.loss_functions.SparseGradient;
+import osu.crowd_ml.loss_functions.SparseLossFunction;
+import osu.crowd_ml.noise_distributions.Distribution;
+import osu.crowd_ml.optimizers.Optimizer;
+import osu.crowd_ml.optimizers.SGD;
+
+/**
+ * Runs the local steps of a training round on several threads that share one weight array and
+ * update it without locks (Niu et al., "Hogwild!", 2011).
+ *
+ * Each thread draws its own minibatch, computes its gradient from the weights as it finds them
+ * and applies its step while the other threads do the same. Reads and writes of the weights
+ * race, so updates may be computed from stale weights or overwrite each other; with sparse
+ * gradients collisions are rare and the steps behave much like sequential SGD. The number of
+ * steps taken is exact, but which samples meet which weights depends on thread scheduling, so
+ * the result is not reproducible.
+ *
+ * Sparse batches under plain SGD without noise only write the coordinates their samples touch:
+ * the regularization term 2 L w is applied to those coordinates alone, as in the paper, rather
+ * than shrinking every weight on every step. All other configurations write the whole gradient
+ * through the optimizer, whose per-weight state is shared and updated without locks as well;
+ * only Adam's step count is advanced under a lock, once per step. Gradients are computed in
+ * float64, so the server rejects hogwildThreads other than 1 with float32 precision.
+ */
+final class Hogwild {
+
+    private final Parameters params;
+    private final Optimizer optimizer;
+    private final int t;
+    private final BatchPrefetcher.Producer producer;
+
+    /**
+     * @param params -- training parameters
+     * @param optimizer -- the descent rule shared by every thread
+     * @param t -- the parameter iteration
+     * @param producer -- fills a batch with the next minibatch, called concurrently
+     */
+    Hogwild(Parameters params, Optimizer optimizer, int t, BatchPrefetcher.Producer producer) {
+        this.params = params;
+        this.optimizer = optimizer;
+        this.t = t;
+        this.producer = producer;
+    }
+
+    /**
+     * Takes numIterations steps on the weights, in place, split between the calling thread and
+     * threads - 1 others. Returns once every thread has stopped.
+     *
+     * @return false if the calling thread was interrupted; the weights are then partly updated.
+     */
+    boolean run(final double[] weights, int numIterations, int threads) {
+        optimizer.prepare(weights.length);
+        final AtomicInteger remaining = new AtomicInteger(numIterations);
+
+        // Step 1. Start the other threads.
+        Thread[] others = new Thread[threads - 1];
+        final Throwable[] failures = new Throwable[threads - 1];
+        for (int k = 0; k < others.length; k++) {
+            final int slot = k;
+            others[k] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        steps(weights, remaining);
+                    } catch (Throwable t) {
+                        failures[slot] = t;
+                        remaining.set(0);
+                    }
+                }
+            }, "Hogwild-" + (k + 1));
+            others[k].start();
+        }
+
+        // Step 2. Take steps on this thread too.
+        try {
+            steps(weights, remaining);
+        } finally {
+            // Step 3. Stop the others early if this thread was interrupted or failed, then wait
+            // for them so that nothing touches the weights or the sampler afterwards.
+            boolean interrupted = Thread.interrupted();
+            boolean stopped = interrupted || remaining.get() > 0;
+            for (Thread other : others) {
+                if (stopped) {
+                    other.interrupt();
+                }
+                while (other.isAlive()) {
+                    try {
+                        other.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        other.interrupt();
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Step 4. Rethrow the failure of any other thread.
+        for (Throwable failure : failures) {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Claims and takes steps until none remain or the thread is interrupted.
+     */
+    private void steps(double[] weights, AtomicInteger remaining) {
+        Batch batch = new Batch();
+        double[] grad = null;
+        SparseGradient sparseGrad = null;
+        while (remaining.getAndDecrement() > 0) {
+            if (Thread.currentThread().isInterrupted() || !producer.produce(batch)) {
+                return;
+            }
+            if (useSparseUpdates(batch)) {
+                if (sparseGrad == null) {
+                    sparseGrad = new SparseGradient(weights.length);
+                }
+                sparseStep(weights, batch, sparseGrad);
+            } else {
+                if (grad == null) {
+                    grad = new double[weights.length];
+                }
+                denseStep(weights, batch, grad);
+            }
+        }
+    }
+
+    /**
+     * @return whether a step on this batch only writes the weights its samples touch.
+     */
+    private boolean useSparseUpdates(Batch batch) {
+        return batch.isSparse() && params.getLossFunction() instanceof ScaledLossFunction
+                && optimizer instanceof SGD
+                && "NoNoise".equals(params.getNoiseDistribution().noiseName());
+    }
+
+    /**
+     * Takes a step touching only the weights of the batch's nonzero features, with the
+     * regularization term applied to those weights alone.
+     */
+    private void sparseStep(double[] weights, Batch batch, SparseGradient grad) {
+        ScaledLossFunction loss = (ScaledLossFunction) params.getLossFunction();
+        int D = params.getD();
+        int K = params.getK();
+        int nh = params.getNH();
+        double twoL = 2 * params.getL();
+
+        // Step 1. Accumulate the data term of every sample, each weighted by 1 / batch size.
+        grad.clear();
+        int[] Y = batch.labels();
+        int[] rowPtr = batch.rowPointers();
+        int[] columns = batch.columns();
+        float[] values = batch.values();
+        double scale = 1.0 / batch.size();
+        for (int i = 0; i < batch.size(); i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            loss.addScaledGradient(weights, 1, columns, values, rowPtr[i], rowPtr[i + 1], Y[i],
+                    D, K, nh, scale, grad);
+        }
+
+        // Step 2. Update the touched weights.
+        double rate = ((SGD) optimizer).rate(params.getC(), t);
+        for (int k = 0; k < grad.size(); k++) {
+            int i = grad.index(k);
+            weights[i] -= rate * (grad.value(k) + twoL * weights[i]);
+        }
+    }
+
+    /**
+     * Takes a step of the optimizer with the full noisy gradient, as the sequential loop does.
+     */
+    private void denseStep(double[] weights, Batch batch, double[] grad) {
+        LossFunction loss = params.getLossFunction();
+        int D = params.getD();
+        int K = params.getK();
+        double L = params.getL();
+        int nh = params.getNH();
+
+        // Step 1. Compute the gradient averaged over the batch.
+        Arrays.fill(grad, 0);
+        int[] Y = batch.labels();
+        double scale = 1.0 / batch.size();
+        if (batch.isSparse() && loss instanceof SparseLossFunction) {
+            SparseLossFunction sparseLoss = (SparseLossFunction) loss;
+            int[] rowPtr = batch.rowPointers();
+            int[] columns = batch.columns();
+            float[] values = batch.values();
+            for (int i = 0; i < batch.size(); i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                sparseLoss.addGradient(weights, columns, values, rowPtr[i], rowPtr[i + 1], Y[i],
+                        D, K, nh, scale, grad);
+            }
+            sparseLoss.addRegularization(weights, D, K, L, nh, grad);
+        } else {
+            loss.batchGradient(weights, batch.features(), Y, 0, batch.size(), D, K, L, nh, scale,
+                    grad);
+        }
+
+        // Step 2. Add random noise probed from the client's noise distribution.
+        int length = weights.length;
+        Distribution dist = params.getNoiseDistribution();
+        if (!"NoNoise".equals(dist.noiseName())) {
+            double noiseScale = params.getNoiseScale();
+            for (int start = 0; start < length; start += InternalTrainer.CHUNK) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                int end = Math.min(length, start + InternalTrainer.CHUNK);
+                for (int i = start; i < end; i++) {
+                    grad[i] = dist.noise(grad[i], noiseScale);
+                }
+            }
+        }
+
+        // Step 3. Update the weights, unless the gradient is incomplete.
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        optimizer.step(weights, grad, params.getC(), params.getEps(), t);
+    }
+}
@@ -0,0 +1,599 @@
+package osu.crowd_ml.trainers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.TrainingDataIO;
+import osu.crowd_ml.data.Batch;
+import osu.crowd_ml.logging.Log;
+import osu.crowd_ml.loss_functions.LossFunction;
+import osu.crowd_ml.loss_functions.ScaledLossFunction;
+import osu.crowd_ml.loss_functions.SparseGradient;
+import osu.crowd_ml.loss_functions.SparseLossFunction;
+import osu.crowd_ml.noise_distributions.Distribution;
+import osu.crowd_ml.optimizers.Optimizer;
+import osu.crowd_ml.optimizers.Optimizers;
+import osu.crowd_ml.optimizers.SGD;
+import osu.crowd_ml.utils.ArrayUtils;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+public class InternalTrainer implements Trainer {
+
+    private static InternalTrainer instance = null;
+
+    // Number of minibatch buffers cycled through the prefetcher: one being consumed, one ready
+    // and one being filled.
+    private static final int PREFETCH_BUFFERS = 3;
+
+    // Number of weights processed between checks for interruption.
+    static final int CHUNK = 4096;
+
+    private EpochSampler sampler;
+    private Parameters params;
+    private List<Double> weights;
+    private int t;
+    private int length;
+
+    // Reused across steps to avoid reallocating the minibatch.
+    private Batch batch;
+
+    // Unboxed weights, updated in place by train(), and the gradient accumulator, see
+    // computeAverageGrad().
+    private double[] w;
+    private double[] gradSum;
+
+    // Their float32 counterparts, see computeAverageGradFloat().
+    private float[] floatW;
+    private float[] floatGradSum;
+
+    // Threads the minibatch gradient is split between.
+    private ParallelGradient workers;
+
+    // The descent rule and its per-weight history, kept across local steps and rounds for as
+    // long as the descent algorithm, the parameter iteration and the length stay the same.
+    private Optimizer optimizer;
+    private String optimizerKey;
+
+    // The weights during train() when regularization is applied lazily, and the sparse
+    // gradient they are updated with, see computeSparseNoisyGrad().
+    private final ScaledWeights scaled = new ScaledWeights();
+    private SparseGradient sparseGrad;
+
+    // The proximal term rho / 2 ||w - center||^2 added to the loss by ADMMTrainer, or null.
+    private double[] proximalCenter;
+    private double proximalRho;
+
+    private InternalTrainer(){}
+    
+    public static Trainer getInstance() {
+        if (instance == null) {
+            instance = new InternalTrainer();
+        }
+        return instance;
+    }
+
+    public List<Double> getNoisyGrad() {
+        maintainSampler(); // this line ensures that sampler is never null
+        long snapshot = sampler.snapshot();
+        if (batch == null) {
+            batch = new Batch();
+        }
+        prepareBatch(batch);
+        maintainBuffers();
+        ArrayUtils.toArray(weights, w);
+        List<Double> noisyGrad = ArrayUtils.toList(computeNoisyGrad(batch));
+
+        if (Thread.currentThread().isInterrupted()){
+            sampler.rollback(snapshot);
+        }
+        return noisyGrad;
+    }
+
+    /**
+     * Runs the local steps on an unboxed copy of the weights, updated in place. The weights set
+     * with {@link #setWeights} are left untouched and serve as the snapshot the round is rolled
+     * back to if the thread is interrupted, together with the sampler and the optimizer state.
+     * With more than one Hogwild thread configured the steps run concurrently, see
+     * {@link Hogwild}.
+     *
+     * @param numIterations number of training steps to run.
+     * @return The updated weight matrix, or the starting weights if the thread was interrupted.
+     */
+    @Override
+    public List<Double> train(final int numIterations) {
+        maintainSampler(); // This line ensures sampler is never null
+        // Remember the sampler position and the optimizer state in case we need to rollback
+        // changes.
+        long snapshot = sampler.snapshot();
+        maintainOptimizer().snapshot();
+
+        int hogwildThreads = params.getHogwildThreads();
+        if (hogwildThreads <= 0) {
+            hogwildThreads = Runtime.getRuntime().availableProcessors();
+        }
+        if (hogwildThreads > 1 && proximalCenter == null) {
+            if ("float32".equals(params.getPrecision())) {
+                Log.w("InternalTrainer", "Hogwild computes float64 gradients, ignoring float32 "
+                        + "precision.");
+            }
+            maintainBuffers();
+            ArrayUtils.toArray(weights, w);
+            Hogwild hogwild = new Hogwild(params, optimizer, t, new BatchPrefetcher.Producer() {
+                @Override
+                public boolean produce(Batch batch) {
+                    return prepareBatch(batch);
+                }
+            });
+            if (!hogwild.run(w, numIterations, hogwildThreads)) {
+                sampler.rollback(snapshot);
+                optimizer.rollback();
+                return weights;
+            }
+            // Every thread has stopped, so w is a consistent snapshot.
+            weights = ArrayUtils.toList(w);
+            return weights;
+        }
+
+        // Load the next minibatch in the background while the current one is processed.
+        BatchPrefetcher prefetcher = new BatchPrefetcher(new BatchPrefetcher.Producer() {
+            @Override
+            public boolean produce(Batch batch) {
+                return prepareBatch(batch);
+            }
+        }, numIterations, PREFETCH_BUFFERS);
+        prefetcher.start();
+        boolean lazy = useLazyRegularization();
+        if (lazy) {
+            scaled.set(weights);
+        } else {
+            maintainBuffers();
+            ArrayUtils.toArray(weights, w);
+        }
+        try {
+            for (int i = 0; i < numIterations; i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                Batch next;
+                try {
+                    next = prefetcher.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (next == null) {
+                    break;
+                }
+
+                if (lazy) {
+                    // Compute the data term of the gradient with random noise added
+                    SparseGradient noisyGrad = computeSparseNoisyGrad(next);
+                    prefetcher.recycle(next);
+
+                    // Update the weights it touches and shrink the rest
+                    calcWeight(noisyGrad);
+                } else {
+                    // Compute the gradient with random noise added
+                    double[] noisyGrad = computeNoisyGrad(next);
+                    prefetcher.recycle(next);
+
+                    // Update the weights in place
+                    calcWeight(noisyGrad);
+                }
+
+                Log.d("sendWeight", "local iter: " + (i + 1));
+            }
+        } finally {
+            // The producer must be stopped before the sampler can be rolled back.
+            prefetcher.shutdown();
+        }
+
+        // Thread was stopped early
+        if (Thread.currentThread().isInterrupted()) {
+            sampler.rollback(snapshot);
+            optimizer.rollback();
+            return weights;
+        }
+        weights = lazy ? scaled.toList() : ArrayUtils.toList(w);
+        return weights;
+    }
+
+    @Override
+    public Trainer setIter(int t) {
+        this.t = t;
+        return getInstance();
+    }
+
+    @Override
+    public Trainer setWeights(List<Double> weights) {
+        assert weights.size() > 0;
+        this.weights = weights;
+        this.length = weights.size();
+        return getInstance();
+    }
+
+    @Override
+    public Trainer setParams(Parameters params) {
+        this.params = params;
+        if (params.getLossFunction() != null) {
+            params.getLossFunction().setLength(params);
+        }
+        return getInstance();
+    }
+
+    @Override
+    public void destroy() {
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+        sampler = null;
+        batch = null;
+        w = null;
+        gradSum = null;
+        sparseGrad = null;
+        floatW = null;
+        floatGradSum = null;
+        optimizer = null;
+        optimizerKey = null;
+        proximalCenter = null;
+        weights = null;
+        params = null;
+        instance = null;
+    }
+
+    /**
+     * Adds the proximal term rho / 2 ||w - center||^2 to the loss minimized by train(), until
+     * cleared with a null center. The term is dense, so it runs neither lazily nor on Hogwild
+     * threads.
+     *
+     * @param center -- the center, as long as the weights, or null
+     * @param rho -- the penalty
+     */
+    void setProximal(double[] center, double rho) {
+        this.proximalCenter = center;
+        this.proximalRho = rho;
+    }
+
+    /**
+     * Takes one step of the descent algorithm, updating the unboxed weights in place. Nothing
+     * is updated if the thread was interrupted, the gradient may be incomplete.
+     *
+     * @param grad -- the noisy gradient, see computeNoisyGrad()
+     */
+    private void calcWeight(double[] grad){
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        optimizer.step(w, grad, params.getC(), params.getEps(), t);
+    }
+
+    /**
+     * @return whether train() keeps the weights as w = s * v and applies the regularization term
+     * by shrinking s. That needs sparse batches, a loss whose regularization is 2 L w, a
+     * learning rate shared by every weight and no proximal term.
+     */
+    private boolean useLazyRegularization() {
+        return useSparseKernels() && params.getLossFunction() instanceof ScaledLossFunction
+                && optimizer instanceof SGD && proximalCenter == null;
+    }
+
+    /**
+     * Applies a gradient to the scaled weights of train(), touching only the coordinates it holds.
+     * The regularization step w -= rate * 2 L w is applied as s *= 1 - 2 rate L.
+     *
+     * @param grad -- the data term of the gradient, see computeSparseNoisyGrad()
+     */
+    private void calcWeight(SparseGradient grad) {
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        double rate = ((SGD) optimizer).rate(params.getC(), t);
+        scaled.shrink(1 - 2 * rate * params.getL());
+        for (int k = 0; k < grad.size(); k++) {
+            scaled.add(grad.index(k), -rate * grad.value(k));
+        }
+    }
+
+    /**
+     * The sparse form of computeNoisyGrad() used by train() with lazy regularization. Only the
+     * data term of the gradient is computed, from the scaled weights of each sample's nonzero
+     * features, so without noise its cost is proportional to the batch's nonzero features.
+     */
+    private SparseGradient computeSparseNoisyGrad(Batch batch) {
+        final ScaledLossFunction loss = (ScaledLossFunction) params.getLossFunction();
+        final int D = params.getD();
+        final int K = params.getK();
+        final int nh = params.getNH();
+        final double[] v = scaled.values();
+        final double s = scaled.scale();
+
+        // Step 1. Accumulate the data term of every sample, each weighted by 1 / batch size.
+        if (sparseGrad == null || sparseGrad.length() != length) {
+            sparseGrad = new SparseGradient(length);
+        }
+        sparseGrad.clear();
+        maintainWorkers();
+        final int[] Y = batch.labels();
+        final int[] rowPtr = batch.rowPointers();
+        final int[] columns = batch.columns();
+        final float[] values = batch.values();
+        final double scale = 1.0 / batch.size();
+        workers.run(batch.size(), new ParallelGradient.SparseShard() {
+            @Override
+            public void accumulate(int start, int end, SparseGradient grad) {
+                for (int i = start; i < end; i++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    loss.addScaledGradient(v, s, columns, values, rowPtr[i], rowPtr[i + 1], Y[i],
+                            D, K, nh, scale, grad);
+                }
+            }
+        }, sparseGrad);
+
+        // Step 2. Add random noise probed from the client's noise distribution. Noise is added
+        // to every coordinate, written or not, so only the noise-free gradient stays sparse.
+        Distribution dist = params.getNoiseDistribution();
+        if (!"NoNoise".equals(dist.noiseName())) {
+            double noiseScale = params.getNoiseScale();
+            for (int start = 0; start < length; start += CHUNK) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                int end = Math.min(length, start + CHUNK);
+                for (int i = start; i < end; i++) {
+                    sparseGrad.set(i, dist.noise(sparseGrad.get(i), noiseScale));
+                }
+            }
+        }
+        return sparseGrad;
+    }
+
+    /**
+     * Draws the next minibatch from the sampler and loads its features and labels.
+     *
+     * @param batch -- the batch to fill
+     * @return false if the thread was interrupted before the batch was complete.
+     */
+    private boolean prepareBatch(Batch batch) {
+        // Init training sample batch
+        int[] batchSamples = gatherBatchSamples();
+
+        // Get training sample features and labels in a single pass.
+        if (useSparseKernels()) {
+            TrainingDataIO.getInstance().readSparseBatch(batchSamples, params, batch);
+        } else {
+            TrainingDataIO.getInstance().readBatch(batchSamples, params, batch);
+        }
+        return batch.size() == batchSamples.length;
+    }
+
+    /**
+     * @return whether minibatches are read in sparse form and handed to the sparse kernels of
+     * the loss function.
+     */
+    private boolean useSparseKernels() {
+        return params.getLossFunction() instanceof SparseLossFunction
+                && (params.isSparseFeatures() || "libsvm".equals(params.getDataFormat()));
+    }
+
+    /**
+     * @return the gradient averaged over the batch with random noise added, in a buffer that is
+     * reused by the next batch.
+     */
+    private double[] computeNoisyGrad(Batch batch){
+        // Compute average gradient vector
+        double[] noisyGrad = computeAverageGrad(batch);
+
+        // Add the gradient of the proximal term, rho (w - center).
+        if (proximalCenter != null) {
+            for (int i = 0; i < length; i++) {
+                noisyGrad[i] += proximalRho * (w[i] - proximalCenter[i]);
+            }
+        }
+
+        // Add random noise probed from the client's noise distribution.
+        Distribution dist = params.getNoiseDistribution();
+        if (!"NoNoise".equals(dist.noiseName())) {
+            double noiseScale = params.getNoiseScale();
+            for (int start = 0; start < length; start += CHUNK) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                int end = Math.min(length, start + CHUNK);
+                for (int i = start; i < end; i++) {
+                    noisyGrad[i] = dist.noise(noisyGrad[i], noiseScale);
+                }
+            }
+        }
+
+        return noisyGrad;
+    }
+
+    private int[] gatherBatchSamples() {
+        int[] batchSamples = new int[params.getClientBatchSize()];
+        // The Hogwild threads draw from the sampler concurrently.
+        synchronized (sampler) {
+            sampler.next(batchSamples);
+        }
+
+        // Ascending sample numbers read the training set front to back.
+        Arrays.sort(batchSamples);
+        return batchSamples;
+    }
+
+    /**
+     * Computes the gradient averaged over the batch, split between the gradient workers. Dense
+     * batches are handed to the loss function a shard at a time. Sparse batches go through the
+     * sparse kernels, where each sample only touches the weights of its nonzero features and the
+     * regularization term, the same for every sample, is added once.
+     */
+    private double[] computeAverageGrad(Batch batch) {
+        if ("float32".equals(params.getPrecision()) && !batch.isSparse()) {
+            return computeAverageGradFloat(batch);
+        }
+
+        final LossFunction loss = params.getLossFunction();
+        final int D = params.getD();
+        final int K = params.getK();
+        final double L = params.getL();
+        final int nh = params.getNH();
+
+        // Step 1. Clear the accumulator. The weights were unboxed by the caller.
+        maintainBuffers();
+        Arrays.fill(gradSum, 0);
+
+        // Step 2. Accumulate the gradient of every sample, each weighted by 1 / batch size.
+        maintainWorkers();
+        final int[] Y = batch.labels();
+        final double scale = 1.0 / batch.size();
+        if (batch.isSparse() && loss instanceof SparseLossFunction) {
+            final SparseLossFunction sparseLoss = (SparseLossFunction) loss;
+            final int[] rowPtr = batch.rowPointers();
+            final int[] columns = batch.columns();
+            final float[] values = batch.values();
+            workers.run(batch.size(), new ParallelGradient.Shard() {
+                @Override
+                public void accumulate(int start, int end, double[] grad) {
+                    for (int i = start; i < end; i++) {
+                        // Periodically check if this thread has been interrupted. See the
+                        // javadocs on threading for best practices.
+                        if (Thread.currentThread().isInterrupted()) {
+                            break;
+                        }
+                        sparseLoss.addGradient(w, columns, values, rowPtr[i], rowPtr[i + 1], Y[i],
+                                D, K, nh, scale, grad);
+                    }
+                }
+            }, gradSum);
+            sparseLoss.addRegularization(w, D, K, L, nh, gradSum);
+        } else {
+            // A shard at a time, as matrix products where the loss supports it.
+            final float[] X = batch.features();
+            workers.run(batch.size(), new ParallelGradient.Shard() {
+                @Override
+                public void accumulate(int start, int end, double[] grad) {
+                    loss.batchGradient(w, X, Y, start, end, D, K, L, nh, scale, grad);
+                }
+            }, gradSum);
+        }
+        return gradSum;
+    }
+
+    /**
+     * The float32 form of {@link #computeAverageGrad(Batch)} for dense batches. The weights are
+     * rounded to float32 once per batch and the averaged gradient is widened back, so only the
+     * gradient computation itself runs in float32.
+     */
+    private double[] computeAverageGradFloat(Batch batch) {
+        final LossFunction loss = params.getLossFunction();
+        final int D = params.getD();
+        final int K = params.getK();
+        final float L = (float) params.getL();
+        final int nh = params.getNH();
+
+        // Step 1. Round the weights once per batch.
+        if (floatW == null || floatW.length != length) {
+            floatW = new float[length];
+            floatGradSum = new float[length];
+        }
+        for (int i = 0; i < length; i++) {
+            floatW[i] = (float) w[i];
+        }
+        Arrays.fill(floatGradSum, 0);
+
+        // Step 2. Accumulate the gradient of every sample, each weighted by 1 / batch size.
+        maintainWorkers();
+        final int[] Y = batch.labels();
+        final float[] X = batch.features();
+        final float scale = 1f / batch.size();
+        workers.run(batch.size(), new ParallelGradient.FloatShard() {
+            @Override
+            public void accumulate(int start, int end, float[] grad) {
+                loss.batchGradient(floatW, X, Y, start, end, D, K, L, nh, scale, grad);
+            }
+        }, floatGradSum);
+
+        // Step 3. Widen the average.
+        for (int i = 0; i < length; i++) {
+            gradSum[i] = floatGradSum[i];
+        }
+        return gradSum;
+    }
+
+    /**
+     * Maintains the unboxed weights and the gradient accumulator, see computeAverageGrad().
+     */
+    private void maintainBuffers() {
+        if (w == null || w.length != length) {
+            w = new double[length];
+            gradSum = new double[length];
+        }
+    }
+
+    /**
+     * Maintains the optimizer, recreating it with empty state whenever the descent algorithm,
+     * the parameter iteration or the number of weights changes.
+     *
+     * @return the optimizer.
+     */
+    Optimizer maintainOptimizer() {
+        String key = params.getDescentAlg() + "." + params.getParamIter() + "." + length;
+        if (optimizer == null || !key.equals(optimizerKey)) {
+            optimizer = Optimizers.create(params.getDescentAlg());
+            optimizerKey = key;
+        }
+        return optimizer;
+    }
+
+    /**
+     * Maintains the gradient workers, recreating them whenever the configured thread count
+     * changes.
+     */
+    private void maintainWorkers() {
+        int threads = params.getGradientThreads();
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (workers == null || workers.threads() != threads) {
+            if (workers != null) {
+                workers.shutdown();
+            }
+            workers = new ParallelGradient(threads);
+        }
+    }
+
+    /**
+     * Maintains the sampler.
+     *
+     * The sampler draws training samples without replacement until every sample has been drawn,
+     * then starts a new epoch. It is recreated whenever N or the sample block size changes.
+     */
+    private void maintainSampler() {
+        int N = params.getN();
+        int blockSize = Math.max(1, params.getSampleBlockSize());
+        if (sampler == null || sampler.size() != N || sampler.blockSize() != blockSize) {
+            sampler = new EpochSampler(N, blockSize, new Random());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Arrays;
+
+import osu.crowd_ml.logging.Log;
+
+/**
+ * L-BFGS (Nocedal, "Updating Quasi-Newton Matrices with Limited Storage", 1980) on the client's
+ * whole local objective, (1 / N) sum_i loss_i(w) + L ||w||^2, for LogReg and Softmax. Each of
+ * the localUpdateNum iterations of a round is a quasi-Newton step with a backtracking line
+ * search, so a round with a large local dataset gets much further than as many minibatch steps.
+ *
+ * The last {@link #HISTORY} curvature pairs s = w_new - w and y = grad_new - grad of a round are
+ * kept in a {@link CurvatureHistory}. The history starts empty every round: the server moves the
+ * weights between rounds, and pairs measured elsewhere describe the curvature of the objective
+ * there, not at the new weights. A round stops early once the gradient or the decrease of the
+ * objective falls below {@link #TOLERANCE}. Every evaluation of the objective is a pass over the
+ * local data that yields the loss and the gradient together (see
+ * {@link osu.crowd_ml.loss_functions.LinearLossFunction#scoreGradient}), and the line search
+ * keeps the gradient of the point it accepts for the next iteration. Noise is added once per
+ * round, to the change of the weights.
+ */
+public final class LBFGSTrainer extends LinearTrainer {
+
+    private static final String TAG = "LBFGSTrainer";
+
+    // Number of curvature pairs kept.
+    static final int HISTORY = 10;
+
+    // Sufficient decrease constant of the Armijo condition and the most halvings of a step.
+    private static final double ARMIJO = 1e-4;
+    private static final int MAX_BACKTRACKS = 40;
+
+    // A round stops once the largest gradient entry is at most this, or the objective decreases
+    // by at most this relative to max(1, |f|).
+    static final double TOLERANCE = 1e-9;
+
+    private static LBFGSTrainer instance = null;
+
+    // The curvature pairs.
+    private CurvatureHistory history;
+
+    // The last accepted point and its gradient, the gradient at the trial point w and the
+    // search direction.
+    private double[] base;
+    private double[] baseGrad;
+    private double[] grad;
+    private double[] direction;
+
+    private LBFGSTrainer(){}
+
+    public static Trainer getInstance() {
+        if (instance == null) {
+            instance = new LBFGSTrainer();
+        }
+        return instance;
+    }
+
+    @Override
+    void run(int numIterations) {
+        if (history == null || history.length() != length) {
+            history = new CurvatureHistory(HISTORY, length);
+            base = new double[length];
+            baseGrad = new double[length];
+            grad = new double[length];
+            direction = new double[length];
+        }
+        history.clear();
+
+        // Step 1. Evaluate the starting point.
+        double f = evaluate(baseGrad);
+        if (Double.isNaN(f)) {
+            return;
+        }
+        System.arraycopy(w, 0, base, 0, length);
+
+        for (int i = 0; i < numIterations; i++) {
+            if (maxAbs(baseGrad) <= TOLERANCE) {
+                break;
+            }
+
+            // Step 2. Find the quasi-Newton direction, falling back to steepest descent if the
+            // history does not give a descent direction.
+            history.direction(baseGrad, direction);
+            double slope = CurvatureHistory.dot(baseGrad, direction);
+            if (!(slope < 0)) {
+                history.clear();
+                history.direction(baseGrad, direction);
+                slope = CurvatureHistory.dot(baseGrad, direction);
+                if (!(slope < 0)) {
+                    // The gradient vanished.
+                    break;
+                }
+            }
+
+            // Step 3. Backtrack from a unit step until the loss decreases enough.
+            double step = 1;
+            double next = Double.NaN;
+            for (int k = 0; k < MAX_BACKTRACKS; k++) {
+                for (int j = 0; j < length; j++) {
+                    w[j] = base[j] + step * direction[j];
+                }
+                next = evaluate(grad);
+                if (Double.isNaN(next) && Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                if (next <= f + ARMIJO * step * slope) {
+                    break;
+                }
+                step *= 0.5;
+            }
+            if (!(next <= f + ARMIJO * step * slope)) {
+                // No progress along the direction, stay at the last accepted point.
+                System.arraycopy(base, 0, w, 0, length);
+                break;
+            }
+
+            // Step 4. Keep the curvature pair if it has positive curvature, then accept w.
+            history.add(base, w, baseGrad, grad);
+            System.arraycopy(w, 0, base, 0, length);
+            System.arraycopy(grad, 0, baseGrad, 0, length);
+            double decrease = f - next;
+            f = next;
+
+            Log.d(TAG, "local iter: " + (i + 1) + ", loss: " + f);
+            if (decrease <= TOLERANCE * Math.max(1, Math.abs(f))) {
+                break;
+            }
+        }
+
+        // Step 5. Add random noise probed from the client's noise distribution to the change.
+        addNoiseToChange();
+    }
+
+    /**
+     * Evaluates the local objective at w in one pass over the local data.
+     *
+     * @param gradient -- receives the gradient
+     * @return the objective, or NaN if the thread was interrupted. An overflowing trial point
+     * evaluates to infinity.
+     */
+    private double evaluate(double[] gradient) {
+        Arrays.fill(gradient, 0);
+        double f = 0;
+
+        // Step 1. Accumulate the loss and gradient of every sample, each weighted by 1 / N.
+        for (int start = 0; start < N; start += PASS_SIZE) {
+            int size = readRange(start);
+            if (size < 0) {
+                return Double.NaN;
+            }
+            int[] Y = batch.labels();
+            for (int r = 0; r < size; r++) {
+                scores(r, scores, 0);
+                f += loss.scoreGradient(scores, 0, K, Y[r], 1.0 / N);
+                addFeatures(r, scores, 0, 1, gradient);
+            }
+        }
+
+        // Step 2. Add the regularization term L ||w||^2 and its gradient.
+        double L = params.getL();
+        for (int j = 0; j < length; j++) {
+            f += L * w[j] * w[j];
+            gradient[j] += 2 * L * w[j];
+        }
+        return Double.isNaN(f) ? Double.POSITIVE_INFINITY : f;
+    }
+
+    private static double maxAbs(double[] a) {
+        double max = 0;
+        for (double x : a) {
+            max = Math.max(max, Math.abs(x));
+        }
+        return max;
+    }
+
+    @Override
+    void rollback() {
+        // The curvature pairs are dropped at the start of every round.
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        history = null;
+        base = null;
+        baseGrad = null;
+        grad = null;
+        direction = null;
+        instance = null;
+    }
+}
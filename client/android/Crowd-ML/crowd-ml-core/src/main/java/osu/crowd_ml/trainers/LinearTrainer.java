@@ -0,0 +1,349 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.TrainingDataIO;
+import osu.crowd_ml.data.Batch;
+import osu.crowd_ml.loss_functions.LinearLossFunction;
+import osu.crowd_ml.noise_distributions.Distribution;
+import osu.crowd_ml.utils.ArrayUtils;
+
+/**
+ * The common part of the local solvers for a {@link LinearLossFunction}: the round structure of
+ * train(), minibatch sampling and the per-sample kernels. A subclass keeps its per-sample state
+ * as {@code scoreCount} numbers per sample, indexed by sample number, and updates the unboxed
+ * weights in place.
+ *
+ * As with InternalTrainer, the weights passed to {@link #setWeights} serve as the snapshot an
+ * interrupted round is rolled back to; the subclass rolls back its per-sample state with them.
+ * Gradient mode (localUpdateNum = 0) sends InternalTrainer's minibatch gradient.
+ */
+abstract class LinearTrainer implements Trainer {
+
+    // Number of samples read at a time by a pass over the local data, see readRange().
+    static final int PASS_SIZE = 256;
+
+    Parameters params;
+    List<Double> weights;
+    int t;
+    int length;
+
+    // Per-round constants, see train().
+    LinearLossFunction loss;
+    int D;
+    int K;
+    int N;
+    int outputs;
+
+    // Unboxed weights, updated in place by train().
+    double[] w;
+
+    // The current minibatch, the sample number of each of its rows and a buffer for the scores
+    // of one sample.
+    Batch batch;
+    int[] samples;
+    double[] scores;
+
+    private EpochSampler sampler;
+    private int[] range;
+
+    // The change of the weights over a round, see addNoiseToChange().
+    private double[] change;
+
+    public List<Double> getNoisyGrad() {
+        return InternalTrainer.getInstance().setIter(t).setParams(params).setWeights(weights)
+                .getNoisyGrad();
+    }
+
+    /**
+     * @param numIterations number of training steps to run.
+     * @return The updated weight matrix, or the starting weights if the thread was interrupted.
+     */
+    @Override
+    public List<Double> train(final int numIterations) {
+        maintainSampler(); // This line ensures sampler is never null
+        // Remember the sampler position in case we need to rollback changes.
+        long snapshot = sampler.snapshot();
+
+        loss = (LinearLossFunction) params.getLossFunction();
+        D = params.getD();
+        K = params.getK();
+        N = params.getN();
+        outputs = loss.scoreCount(K);
+        if (w == null || w.length != length) {
+            w = new double[length];
+        }
+        if (scores == null || scores.length != outputs) {
+            scores = new double[outputs];
+        }
+        if (batch == null) {
+            batch = new Batch();
+        }
+        ArrayUtils.toArray(weights, w);
+
+        run(numIterations);
+
+        if (Thread.currentThread().isInterrupted()) {
+            sampler.rollback(snapshot);
+            rollback();
+            return weights;
+        }
+        weights = ArrayUtils.toList(w);
+        return weights;
+    }
+
+    /**
+     * Takes the local steps of a round on w. May return early if the thread is interrupted.
+     */
+    abstract void run(int numIterations);
+
+    /**
+     * Restores the per-sample state to where it was when the interrupted round started.
+     */
+    abstract void rollback();
+
+    @Override
+    public Trainer setIter(int t) {
+        this.t = t;
+        return this;
+    }
+
+    @Override
+    public Trainer setWeights(List<Double> weights) {
+        assert weights.size() > 0;
+        this.weights = weights;
+        this.length = weights.size();
+        return this;
+    }
+
+    @Override
+    public Trainer setParams(Parameters params) {
+        this.params = params;
+        if (params.getLossFunction() != null) {
+            params.getLossFunction().setLength(params);
+        }
+        return this;
+    }
+
+    @Override
+    public void destroy() {
+        sampler = null;
+        batch = null;
+        samples = null;
+        range = null;
+        change = null;
+        scores = null;
+        w = null;
+        loss = null;
+        weights = null;
+        params = null;
+    }
+
+    /**
+     * Draws the next minibatch from the sampler into batch and samples.
+     *
+     * @return false if the thread was interrupted before the batch was complete.
+     */
+    boolean nextBatch() {
+        int size = params.getClientBatchSize();
+        if (samples == null || samples.length != size) {
+            samples = new int[size];
+        }
+        sampler.next(samples);
+
+        // Ascending sample numbers read the training set front to back.
+        Arrays.sort(samples);
+        return readBatch(samples);
+    }
+
+    /**
+     * Loads the features and labels of the given samples into batch.
+     *
+     * @return false if the thread was interrupted before the batch was complete.
+     */
+    boolean readBatch(int[] samples) {
+        if (params.isSparseFeatures() || "libsvm".equals(params.getDataFormat())) {
+            TrainingDataIO.getInstance().readSparseBatch(samples, params, batch);
+        } else {
+            TrainingDataIO.getInstance().readBatch(samples, params, batch);
+        }
+        return batch.size() == samples.length;
+    }
+
+    /**
+     * Loads samples start, start + 1, ... into batch, up to PASS_SIZE of them or up to N, for a
+     * pass over the local data in order. Row r holds sample start + r.
+     *
+     * @return the number of samples loaded, or -1 if the thread was interrupted.
+     */
+    int readRange(int start) {
+        int size = Math.min(PASS_SIZE, N - start);
+        if (range == null || range.length != size) {
+            range = new int[size];
+        }
+        for (int r = 0; r < size; r++) {
+            range[r] = start + r;
+        }
+        if (Thread.currentThread().isInterrupted() || !readBatch(range)) {
+            return -1;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the scores of a row of the batch for the weights w to scores, from off.
+     */
+    void scores(int row, double[] scores, int off) {
+        if (batch.isSparse()) {
+            int[] rowPtr = batch.rowPointers();
+            int[] columns = batch.columns();
+            float[] values = batch.values();
+            for (int o = 0; o < outputs; o++) {
+                double dot = 0;
+                int base = o * D;
+                for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                    dot += w[base + columns[p]] * values[p];
+                }
+                scores[off + o] = dot;
+            }
+        } else {
+            float[] X = batch.features();
+            int start = row * D;
+            for (int o = 0; o < outputs; o++) {
+                double dot = 0;
+                int base = o * D;
+                for (int j = 0; j < D; j++) {
+                    dot += w[base + j] * X[start + j];
+                }
+                scores[off + o] = dot;
+            }
+        }
+    }
+
+    /**
+     * Adds the features of a row of the batch, times scale * coefficients[off + o], to the
+     * weights of each output o of target.
+     */
+    void addFeatures(int row, double[] coefficients, int off, double scale, double[] target) {
+        if (batch.isSparse()) {
+            int[] rowPtr = batch.rowPointers();
+            int[] columns = batch.columns();
+            float[] values = batch.values();
+            for (int o = 0; o < outputs; o++) {
+                double multiplier = scale * coefficients[off + o];
+                if (multiplier == 0) {
+                    continue;
+                }
+                int base = o * D;
+                for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                    target[base + columns[p]] += values[p] * multiplier;
+                }
+            }
+        } else {
+            float[] X = batch.features();
+            int start = row * D;
+            for (int o = 0; o < outputs; o++) {
+                double multiplier = scale * coefficients[off + o];
+                if (multiplier == 0) {
+                    continue;
+                }
+                int base = o * D;
+                for (int j = 0; j < D; j++) {
+                    target[base + j] += X[start + j] * multiplier;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the squared norm of the features of a row of the batch.
+     */
+    double squaredNorm(int row) {
+        double sum = 0;
+        if (batch.isSparse()) {
+            int[] rowPtr = batch.rowPointers();
+            float[] values = batch.values();
+            for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                sum += (double) values[p] * values[p];
+            }
+        } else {
+            float[] X = batch.features();
+            int start = row * D;
+            for (int j = 0; j < D; j++) {
+                sum += (double) X[start + j] * X[start + j];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Adds random noise probed from the client's noise distribution to every entry of v.
+     */
+    void addNoise(double[] v) {
+        Distribution dist = params.getNoiseDistribution();
+        if ("NoNoise".equals(dist.noiseName())) {
+            return;
+        }
+        double noiseScale = params.getNoiseScale();
+        for (int start = 0; start < v.length; start += InternalTrainer.CHUNK) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            int end = Math.min(v.length, start + InternalTrainer.CHUNK);
+            for (int i = start; i < end; i++) {
+                v[i] = dist.noise(v[i], noiseScale);
+            }
+        }
+    }
+
+    /**
+     * Adds random noise probed from the client's noise distribution to the change of w over the
+     * round, for solvers whose steps cannot take noisy gradients.
+     */
+    void addNoiseToChange() {
+        if ("NoNoise".equals(params.getNoiseDistribution().noiseName())) {
+            return;
+        }
+        if (change == null || change.length != length) {
+            change = new double[length];
+        }
+        for (int i = 0; i < length; i++) {
+            change[i] = w[i] - weights.get(i);
+        }
+        addNoise(change);
+        for (int i = 0; i < length; i++) {
+            w[i] = weights.get(i) + change[i];
+        }
+    }
+
+    /**
+     * Maintains the sampler, as InternalTrainer does.
+     */
+    private void maintainSampler() {
+        int N = params.getN();
+        int blockSize = Math.max(1, params.getSampleBlockSize());
+        if (sampler == null || sampler.size() != N || sampler.blockSize() != blockSize) {
+            sampler = new EpochSampler(N, blockSize, new Random());
+        }
+    }
+}
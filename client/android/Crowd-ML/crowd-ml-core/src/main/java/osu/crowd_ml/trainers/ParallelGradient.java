@@ -0,0 +1,447 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import osu.crowd_ml.loss_functions.SparseGradient;
+
+/**
+ * Splits the gradient of a minibatch between a fixed set of threads.
+ *
+ * The batch is cut into contiguous shards whose number and boundaries depend only on the batch
+ * size, and every shard is accumulated into its own buffer. Each thread computes a contiguous run
+ * of shards, the calling thread the first one. The buffers are then summed pairwise in a fixed
+ * tree order over the shards. Neither the shards nor the order of the sums depend on the thread
+ * count or on scheduling, so the result is bitwise reproducible for any number of threads.
+ *
+ * Sparse gradients are summed the same way, one written coordinate at a time, so summing them
+ * costs no more than computing them.
+ */
+public final class ParallelGradient {
+
+    // A batch is cut into at most MAX_SHARDS shards of at least MIN_SHARD_SIZE samples, so no
+    // more than MAX_SHARDS threads work on one batch.
+    static final int MAX_SHARDS = 8;
+    static final int MIN_SHARD_SIZE = 16;
+
+    /**
+     * Accumulates the gradient of a range of samples. Called on several threads at once, each
+     * with its own accumulator.
+     */
+    public interface Shard {
+        void accumulate(int start, int end, double[] grad);
+    }
+
+    /**
+     * The float32 counterpart of {@link Shard}.
+     */
+    public interface FloatShard {
+        void accumulate(int start, int end, float[] grad);
+    }
+
+    /**
+     * The {@link SparseGradient} counterpart of {@link Shard}.
+     */
+    public interface SparseShard {
+        void accumulate(int start, int end, SparseGradient grad);
+    }
+
+    private final Worker[] workers;
+    private double[][] buffers = new double[0][];
+    private float[][] floatBuffers = new float[0][];
+    private SparseGradient[] sparseBuffers = new SparseGradient[0];
+    private volatile boolean closed;
+
+    /**
+     * @param threads -- number of threads to split each batch between, including the caller
+     */
+    public ParallelGradient(int threads) {
+        workers = new Worker[Math.max(1, threads) - 1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i + 1);
+            workers[i].start();
+        }
+    }
+
+    public int threads() {
+        return workers.length + 1;
+    }
+
+    /**
+     * Adds the gradient of samples [0, n) to out.
+     *
+     * @param out -- zero on entry
+     * @return false if the calling thread was interrupted, in which case out is incomplete and
+     * the thread's interrupt status is set.
+     */
+    public boolean run(int n, Shard shard, double[] out) {
+        int shards = shards(n);
+        if (shards <= 1) {
+            shard.accumulate(0, n, out);
+            return !Thread.currentThread().isInterrupted();
+        }
+
+        // Step 1. Hand runs of shards to the workers and compute the first run here.
+        if (buffers.length < shards) {
+            buffers = Arrays.copyOf(buffers, shards);
+        }
+        for (int s = 1; s < shards; s++) {
+            if (buffers[s] == null || buffers[s].length != out.length) {
+                buffers[s] = new double[out.length];
+            }
+        }
+        int groups = Math.min(threads(), shards);
+        CountDownLatch done = new CountDownLatch(groups - 1);
+        for (int g = 1; g < groups; g++) {
+            workers[g - 1].submit(shard, n, shards, bound(shards, groups, g),
+                    bound(shards, groups, g + 1), buffers, done);
+        }
+        boolean interrupted;
+        try {
+            accumulate(shard, n, shards, 0, bound(shards, groups, 1), out, buffers);
+        } finally {
+            // The buffers must not be touched again before every worker is done with them.
+            interrupted = await(done, groups);
+        }
+        if (!finish(interrupted, groups)) {
+            return false;
+        }
+
+        // Step 2. Sum the buffers pairwise into out.
+        for (int stride = 1; stride < shards; stride *= 2) {
+            for (int s = 0; s + stride < shards; s += 2 * stride) {
+                double[] dst = s == 0 ? out : buffers[s];
+                double[] src = buffers[s + stride];
+                for (int i = 0; i < out.length; i++) {
+                    dst[i] += src[i];
+                }
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * The float32 counterpart of {@link #run(int, Shard, double[])}.
+     */
+    public boolean run(int n, FloatShard shard, float[] out) {
+        int shards = shards(n);
+        if (shards <= 1) {
+            shard.accumulate(0, n, out);
+            return !Thread.currentThread().isInterrupted();
+        }
+
+        // Step 1. Hand runs of shards to the workers and compute the first run here.
+        if (floatBuffers.length < shards) {
+            floatBuffers = Arrays.copyOf(floatBuffers, shards);
+        }
+        for (int s = 1; s < shards; s++) {
+            if (floatBuffers[s] == null || floatBuffers[s].length != out.length) {
+                floatBuffers[s] = new float[out.length];
+            }
+        }
+        int groups = Math.min(threads(), shards);
+        CountDownLatch done = new CountDownLatch(groups - 1);
+        for (int g = 1; g < groups; g++) {
+            workers[g - 1].submit(shard, n, shards, bound(shards, groups, g),
+                    bound(shards, groups, g + 1), floatBuffers, done);
+        }
+        boolean interrupted;
+        try {
+            accumulate(shard, n, shards, 0, bound(shards, groups, 1), out, floatBuffers);
+        } finally {
+            interrupted = await(done, groups);
+        }
+        if (!finish(interrupted, groups)) {
+            return false;
+        }
+
+        // Step 2. Sum the buffers pairwise into out.
+        for (int stride = 1; stride < shards; stride *= 2) {
+            for (int s = 0; s + stride < shards; s += 2 * stride) {
+                float[] dst = s == 0 ? out : floatBuffers[s];
+                float[] src = floatBuffers[s + stride];
+                for (int i = 0; i < out.length; i++) {
+                    dst[i] += src[i];
+                }
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * The {@link SparseGradient} counterpart of {@link #run(int, Shard, double[])}.
+     */
+    public boolean run(int n, SparseShard shard, SparseGradient out) {
+        int shards = shards(n);
+        if (shards <= 1) {
+            shard.accumulate(0, n, out);
+            return !Thread.currentThread().isInterrupted();
+        }
+
+        // Step 1. Hand runs of shards to the workers and compute the first run here.
+        if (sparseBuffers.length < shards) {
+            sparseBuffers = Arrays.copyOf(sparseBuffers, shards);
+        }
+        for (int s = 1; s < shards; s++) {
+            if (sparseBuffers[s] == null || sparseBuffers[s].length() != out.length()) {
+                sparseBuffers[s] = new SparseGradient(out.length());
+            }
+        }
+        int groups = Math.min(threads(), shards);
+        CountDownLatch done = new CountDownLatch(groups - 1);
+        for (int g = 1; g < groups; g++) {
+            workers[g - 1].submit(shard, n, shards, bound(shards, groups, g),
+                    bound(shards, groups, g + 1), sparseBuffers, done);
+        }
+        boolean interrupted;
+        try {
+            accumulate(shard, n, shards, 0, bound(shards, groups, 1), out, sparseBuffers);
+        } finally {
+            interrupted = await(done, groups);
+        }
+        if (!finish(interrupted, groups)) {
+            return false;
+        }
+
+        // Step 2. Sum the buffers pairwise into out.
+        for (int stride = 1; stride < shards; stride *= 2) {
+            for (int s = 0; s + stride < shards; s += 2 * stride) {
+                SparseGradient dst = s == 0 ? out : sparseBuffers[s];
+                dst.addAll(sparseBuffers[s + stride]);
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Stops the worker threads and waits for them to exit. Safe to call from an interrupted
+     * thread; the caller's interrupt status is preserved.
+     */
+    public void shutdown() {
+        closed = true;
+        boolean interrupted = Thread.interrupted();
+        for (Worker worker : workers) {
+            worker.interrupt();
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Number of shards a batch of n samples is cut into.
+    static int shards(int n) {
+        return Math.max(1, Math.min(MAX_SHARDS, n / MIN_SHARD_SIZE));
+    }
+
+    // First sample of shard s of n samples, or first shard of group s of n shards.
+    private static int bound(int n, int shards, int s) {
+        return (int) ((long) n * s / shards);
+    }
+
+    /**
+     * Accumulates shards [first, last) of n samples, shard 0 into out and shard s into
+     * buffers[s]. Stops early if the calling thread is interrupted.
+     */
+    private static void accumulate(Shard shard, int n, int shards, int first, int last,
+                                   double[] out, double[][] buffers) {
+        for (int s = first; s < last && !Thread.currentThread().isInterrupted(); s++) {
+            double[] grad = s == 0 ? out : buffers[s];
+            if (s != 0) {
+                Arrays.fill(grad, 0);
+            }
+            shard.accumulate(bound(n, shards, s), bound(n, shards, s + 1), grad);
+        }
+    }
+
+    private static void accumulate(FloatShard shard, int n, int shards, int first, int last,
+                                   float[] out, float[][] buffers) {
+        for (int s = first; s < last && !Thread.currentThread().isInterrupted(); s++) {
+            float[] grad = s == 0 ? out : buffers[s];
+            if (s != 0) {
+                Arrays.fill(grad, 0);
+            }
+            shard.accumulate(bound(n, shards, s), bound(n, shards, s + 1), grad);
+        }
+    }
+
+    private static void accumulate(SparseShard shard, int n, int shards, int first, int last,
+                                   SparseGradient out, SparseGradient[] buffers) {
+        for (int s = first; s < last && !Thread.currentThread().isInterrupted(); s++) {
+            SparseGradient grad = s == 0 ? out : buffers[s];
+            if (s != 0) {
+                grad.clear();
+            }
+            shard.accumulate(bound(n, shards, s), bound(n, shards, s + 1), grad);
+        }
+    }
+
+    /**
+     * Restores the interrupt status or rethrows the failure of a worker, if any.
+     *
+     * @return false if the calling thread was interrupted.
+     */
+    private boolean finish(boolean interrupted, int groups) {
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        for (int g = 1; g < groups; g++) {
+            workers[g - 1].rethrowFailure();
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the workers, interrupting their shards if the calling thread is interrupted.
+     *
+     * @return whether the calling thread was interrupted.
+     */
+    private boolean await(CountDownLatch done, int groups) {
+        boolean interrupted = Thread.interrupted();
+        if (interrupted) {
+            cancel(groups);
+        }
+        while (true) {
+            try {
+                done.await();
+                return interrupted;
+            } catch (InterruptedException e) {
+                if (!interrupted) {
+                    cancel(groups);
+                }
+                interrupted = true;
+            }
+        }
+    }
+
+    private void cancel(int groups) {
+        for (int g = 1; g < groups; g++) {
+            workers[g - 1].interrupt();
+        }
+    }
+
+    private final class Worker extends Thread {
+
+        private final BlockingQueue<CountDownLatch> jobs = new ArrayBlockingQueue<>(1);
+
+        // The current job, published by the queue. Exactly one of the shards is set.
+        private Shard shard;
+        private FloatShard floatShard;
+        private SparseShard sparseShard;
+        private int n;
+        private int shards;
+        private int first;
+        private int last;
+        private double[][] grads;
+        private float[][] floatGrads;
+        private SparseGradient[] sparseGrads;
+        private Throwable failure;
+
+        Worker(int index) {
+            super("ParallelGradient-" + index);
+            setDaemon(true);
+        }
+
+        void submit(Shard shard, int n, int shards, int first, int last, double[][] grads,
+                    CountDownLatch done) {
+            reset(n, shards, first, last);
+            this.shard = shard;
+            this.grads = grads;
+            jobs.add(done);
+        }
+
+        void submit(FloatShard shard, int n, int shards, int first, int last, float[][] grads,
+                    CountDownLatch done) {
+            reset(n, shards, first, last);
+            this.floatShard = shard;
+            this.floatGrads = grads;
+            jobs.add(done);
+        }
+
+        void submit(SparseShard shard, int n, int shards, int first, int last,
+                    SparseGradient[] grads, CountDownLatch done) {
+            reset(n, shards, first, last);
+            this.sparseShard = shard;
+            this.sparseGrads = grads;
+            jobs.add(done);
+        }
+
+        private void reset(int n, int shards, int first, int last) {
+            this.shard = null;
+            this.floatShard = null;
+            this.sparseShard = null;
+            this.grads = null;
+            this.floatGrads = null;
+            this.sparseGrads = null;
+            this.n = n;
+            this.shards = shards;
+            this.first = first;
+            this.last = last;
+            this.failure = null;
+        }
+
+        void rethrowFailure() {
+            Throwable t = failure;
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                CountDownLatch done;
+                try {
+                    done = jobs.take();
+                } catch (InterruptedException e) {
+                    // Either shutting down or a late cancellation of a finished shard.
+                    continue;
+                }
+                try {
+                    // Workers never get shard 0, so they never touch the caller's output.
+                    if (shard != null) {
+                        accumulate(shard, n, shards, first, last, null, grads);
+                    } else if (floatShard != null) {
+                        accumulate(floatShard, n, shards, first, last, null, floatGrads);
+                    } else {
+                        accumulate(sparseShard, n, shards, first, last, null, sparseGrads);
+                    }
+                } catch (Throwable t) {
+                    failure = t;
+                } finally {
+                    // A cancellation only applies to the shard it was meant for.
+                    Thread.interrupted();
+                    done.countDown();
+                }
+            }
+        }
+    }
+}
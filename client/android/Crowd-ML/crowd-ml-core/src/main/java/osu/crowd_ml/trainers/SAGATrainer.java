@@ -0,0 +1,75 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * SAGA (Defazio, Bach and Lacoste-Julien, 2014) for a LinearLossFunction. Each step replaces the
+ * stored score gradients of its samples, so the table needs no full pass and is kept across
+ * rounds for as long as N and the model's shape stay the same, see
+ * {@link VarianceReducedTrainer}. Samples not drawn yet count as a zero gradient.
+ *
+ * The table holds N * scoreCount doubles, 1 per sample for the binary losses or K for Softmax.
+ */
+public final class SAGATrainer extends VarianceReducedTrainer {
+
+    private static SAGATrainer instance = null;
+
+    // The table and its average at the start of the round, restored by rollback().
+    private double[] tableSnapshot;
+    private double[] averageSnapshot;
+
+    private SAGATrainer(){}
+
+    public static Trainer getInstance() {
+        if (instance == null) {
+            instance = new SAGATrainer();
+        }
+        return instance;
+    }
+
+    @Override
+    boolean updatesTable() {
+        return true;
+    }
+
+    @Override
+    boolean prepareRound() {
+        if (tableSnapshot == null || tableSnapshot.length != table.length
+                || averageSnapshot.length != average.length) {
+            tableSnapshot = new double[table.length];
+            averageSnapshot = new double[average.length];
+        }
+        System.arraycopy(table, 0, tableSnapshot, 0, table.length);
+        System.arraycopy(average, 0, averageSnapshot, 0, average.length);
+        return true;
+    }
+
+    @Override
+    void rollback() {
+        System.arraycopy(tableSnapshot, 0, table, 0, table.length);
+        System.arraycopy(averageSnapshot, 0, average, 0, average.length);
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        tableSnapshot = null;
+        averageSnapshot = null;
+        instance = null;
+    }
+}
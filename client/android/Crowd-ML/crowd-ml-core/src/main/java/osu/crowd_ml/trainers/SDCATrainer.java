@@ -0,0 +1,109 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import osu.crowd_ml.logging.Log;
+
+/**
+ * Stochastic dual coordinate ascent (Shalev-Shwartz and Zhang, 2013) for a LinearLossFunction
+ * with L > 0. Each sample i has dual variables alpha_i, scoreCount of them, and a step on a
+ * sample maximizes the dual along them (see {@link
+ * osu.crowd_ml.loss_functions.LinearLossFunction#dualStep}) and moves the weights by
+ * x_i delta_alpha_i / (2 L N). There is no step size to tune, and the duals are kept across
+ * rounds for as long as N and the model's shape stay the same.
+ *
+ * The duals describe the client's own samples while the weights also carry the updates of other
+ * clients, so the local steps are applied to the weights received from the server, as in CoCoA
+ * (Jaggi et al., 2014). Noise is added once per round, to the change of the weights.
+ */
+public final class SDCATrainer extends LinearTrainer {
+
+    private static final String TAG = "SDCATrainer";
+
+    private static SDCATrainer instance = null;
+
+    // The dual variables, outputs per sample, and their values at the start of the round.
+    double[] alpha;
+    private double[] alphaSnapshot;
+
+    private SDCATrainer(){}
+
+    public static Trainer getInstance() {
+        if (instance == null) {
+            instance = new SDCATrainer();
+        }
+        return instance;
+    }
+
+    @Override
+    void run(int numIterations) {
+        double L = params.getL();
+        if (L <= 0) {
+            Log.e(TAG, "SDCA needs L > 0, leaving the weights unchanged.");
+            return;
+        }
+        if (alpha == null || alpha.length != N * outputs) {
+            alpha = new double[N * outputs];
+            alphaSnapshot = new double[N * outputs];
+        }
+        System.arraycopy(alpha, 0, alphaSnapshot, 0, alpha.length);
+
+        // Step 1. Take a dual step on every sample of every minibatch.
+        double lambdaN = 2 * L * N;
+        for (int i = 0; i < numIterations; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (!nextBatch()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                // The local data ran short, keep the steps taken so far and their noise.
+                break;
+            }
+            int[] Y = batch.labels();
+            for (int r = 0; r < batch.size(); r++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                scores(r, scores, 0);
+                loss.dualStep(scores, alpha, samples[r] * outputs, K, Y[r],
+                        squaredNorm(r) / lambdaN);
+                addFeatures(r, scores, 0, 1 / lambdaN, w);
+            }
+        }
+
+        // Step 2. Add random noise probed from the client's noise distribution to the change.
+        addNoiseToChange();
+    }
+
+    @Override
+    void rollback() {
+        if (alpha != null) {
+            System.arraycopy(alphaSnapshot, 0, alpha, 0, alpha.length);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        alpha = null;
+        alphaSnapshot = null;
+        instance = null;
+    }
+}
@@ -0,0 +1,80 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.Arrays;
+
+/**
+ * Stochastic variance reduced gradient (Johnson and Zhang, 2013) for a LinearLossFunction. Every
+ * round starts with a full pass over the client's N samples at the weights received from the
+ * server, storing each sample's score gradient and their average, and then takes
+ * localUpdateNum minibatch steps corrected by them, see {@link VarianceReducedTrainer}.
+ *
+ * The full pass costs as much as N / clientBatchSize plain steps, so SVRG pays off when a round
+ * covers a good part of the local data.
+ */
+public final class SVRGTrainer extends VarianceReducedTrainer {
+
+    private static SVRGTrainer instance = null;
+
+    private SVRGTrainer(){}
+
+    public static Trainer getInstance() {
+        if (instance == null) {
+            instance = new SVRGTrainer();
+        }
+        return instance;
+    }
+
+    @Override
+    boolean updatesTable() {
+        return false;
+    }
+
+    @Override
+    boolean prepareRound() {
+        Arrays.fill(average, 0);
+        for (int start = 0; start < N; start += PASS_SIZE) {
+            int size = readRange(start);
+            if (size < 0) {
+                return false;
+            }
+
+            // Store the score gradients of the samples and add their gradients to the average.
+            int[] Y = batch.labels();
+            for (int r = 0; r < size; r++) {
+                int off = (start + r) * outputs;
+                scores(r, table, off);
+                loss.scoreGradient(table, off, K, Y[r], 1);
+                addFeatures(r, table, off, 1.0 / N, average);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    void rollback() {
+        // The table is rebuilt by every round.
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        instance = null;
+    }
+}
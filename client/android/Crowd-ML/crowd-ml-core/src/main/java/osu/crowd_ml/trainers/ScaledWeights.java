@@ -0,0 +1,99 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A weight vector stored as {@code w = s * v} for a scalar s, so that multiplying every weight
+ * by the same factor, as an L2 regularization step does, costs O(1).
+ *
+ * The factor is folded back into v whenever it drops below {@link #MIN_SCALE}, before dividing
+ * by it in {@link #add} could cost precision.
+ */
+final class ScaledWeights {
+
+    static final double MIN_SCALE = 1e-4;
+
+    private double[] v = new double[0];
+    private double s = 1;
+
+    /**
+     * Replaces the weights.
+     */
+    void set(List<Double> weights) {
+        if (v.length != weights.size()) {
+            v = new double[weights.size()];
+        }
+        for (int i = 0; i < v.length; i++) {
+            v[i] = weights.get(i);
+        }
+        s = 1;
+    }
+
+    /**
+     * @return v, the weights without their scale factor.
+     */
+    double[] values() {
+        return v;
+    }
+
+    /**
+     * @return s, the scale factor.
+     */
+    double scale() {
+        return s;
+    }
+
+    /**
+     * Multiplies every weight by factor.
+     */
+    void shrink(double factor) {
+        s *= factor;
+        if (!(s >= MIN_SCALE)) {
+            // Also covers a factor of zero or below, when the step overshoots.
+            fold();
+        }
+    }
+
+    /**
+     * Adds delta to weight i.
+     */
+    void add(int i, double delta) {
+        v[i] += delta / s;
+    }
+
+    private void fold() {
+        for (int i = 0; i < v.length; i++) {
+            v[i] *= s;
+        }
+        s = 1;
+    }
+
+    /**
+     * @return the weights w = s * v.
+     */
+    List<Double> toList() {
+        List<Double> list = new ArrayList<>(v.length);
+        for (double value : v) {
+            list.add(s * value);
+        }
+        return list;
+    }
+}
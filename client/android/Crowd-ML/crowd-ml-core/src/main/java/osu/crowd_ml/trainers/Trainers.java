@@ -0,0 +1,88 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.logging.Log;
+import osu.crowd_ml.loss_functions.LinearLossFunction;
+import osu.crowd_ml.loss_functions.LogReg;
+import osu.crowd_ml.loss_functions.Softmax;
+
+public final class Trainers {
+
+    private static final String TAG = "Trainers";
+
+    // Prevent instantiation
+    private Trainers(){}
+
+    /**
+     * @param params -- training parameters, see Parameters.getLocalSolver()
+     * @return the trainer of the local solver. The variance-reduced solvers need a
+     * LinearLossFunction, SDCA needs L > 0 and L-BFGS needs LogReg or Softmax; otherwise, or for
+     * unknown names, "sgd".
+     */
+    public static Trainer forParams(Parameters params) {
+        String solver = params.getLocalSolver();
+        if (solver == null) {
+            solver = "";
+        }
+        switch (solver) {
+            case "sgd":
+                return InternalTrainer.getInstance();
+            case "svrg":
+                return isLinear(params, solver)
+                        ? SVRGTrainer.getInstance() : InternalTrainer.getInstance();
+            case "saga":
+                return isLinear(params, solver)
+                        ? SAGATrainer.getInstance() : InternalTrainer.getInstance();
+            case "lbfgs":
+                if (params.getLossFunction() instanceof LogReg
+                        || params.getLossFunction() instanceof Softmax) {
+                    return LBFGSTrainer.getInstance();
+                }
+                Log.e(TAG, "The lbfgs solver needs LogReg or Softmax. Defaulting to \'sgd\'.");
+                return InternalTrainer.getInstance();
+            case "admm":
+                return ADMMTrainer.getInstance();
+            case "sdca":
+                if (!isLinear(params, solver)) {
+                    return InternalTrainer.getInstance();
+                }
+                if (params.getL() <= 0) {
+                    Log.e(TAG, "The sdca solver needs L > 0. Defaulting to \'saga\'.");
+                    return SAGATrainer.getInstance();
+                }
+                return SDCATrainer.getInstance();
+            default:
+                Log.e(TAG, "Invalid local solver. Defaulting to \'sgd\'.");
+                return InternalTrainer.getInstance();
+        }
+    }
+
+    /**
+     * @return whether the loss function is a LinearLossFunction, as the given solver needs.
+     */
+    private static boolean isLinear(Parameters params, String solver) {
+        if (params.getLossFunction() instanceof LinearLossFunction) {
+            return true;
+        }
+        Log.e(TAG, "The " + solver + " solver needs LogReg, Hinge or Softmax. "
+                + "Defaulting to \'sgd\'.");
+        return false;
+    }
+}
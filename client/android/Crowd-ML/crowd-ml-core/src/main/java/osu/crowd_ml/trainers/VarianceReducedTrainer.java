@@ -0,0 +1,127 @@
+package osu.crowd_ml.trainers;
+
+/*
+Copyright 2017 Crowd-ML team
+
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License
+*/
+
+/**
+ * Minibatch steps with a variance-reduced gradient estimate (Johnson and Zhang, 2013; Defazio,
+ * Bach and Lacoste-Julien, 2014). Each sample i has a stored score gradient a_i, standing for the
+ * gradient x_i a_i, and the average of those gradients is kept alongside. A step on a minibatch B
+ * uses
+ *
+ *     g = 1/|B| sum_{i in B} x_i (d_i - a_i) + average + 2 L w
+ *
+ * with d_i the score gradient of sample i at the current weights, then takes w -= c g. Because
+ * the correction vanishes as the weights settle, the estimate's variance does too and the
+ * constant step size c needs no decay. Noise is added to g as InternalTrainer adds it to the
+ * gradient.
+ */
+abstract class VarianceReducedTrainer extends LinearTrainer {
+
+    // The stored score gradients, outputs per sample, and the average of the gradients they
+    // stand for.
+    double[] table;
+    double[] average;
+
+    private double[] grad;
+
+    /**
+     * Brings the table up to date for a round starting at w.
+     *
+     * @return false if the thread was interrupted.
+     */
+    abstract boolean prepareRound();
+
+    /**
+     * @return whether a step replaces the stored score gradients of its samples with d_i (SAGA),
+     * rather than leaving the table as it is (SVRG).
+     */
+    abstract boolean updatesTable();
+
+    @Override
+    void run(int numIterations) {
+        if (table == null || table.length != N * outputs || average.length != length) {
+            table = new double[N * outputs];
+            average = new double[length];
+        }
+        if (grad == null || grad.length != length) {
+            grad = new double[length];
+        }
+        if (!prepareRound()) {
+            return;
+        }
+        for (int i = 0; i < numIterations; i++) {
+            if (Thread.currentThread().isInterrupted() || !nextBatch()) {
+                return;
+            }
+            step();
+        }
+    }
+
+    private void step() {
+        boolean update = updatesTable();
+        double twoL = 2 * params.getL();
+
+        // Step 1. Start from the average of the table and the regularization term.
+        for (int i = 0; i < length; i++) {
+            grad[i] = average[i] + twoL * w[i];
+        }
+
+        // Step 2. Add the correction of every sample, each weighted by 1 / batch size.
+        int[] Y = batch.labels();
+        double scale = 1.0 / batch.size();
+        for (int r = 0; r < batch.size(); r++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            int off = samples[r] * outputs;
+            scores(r, scores, 0);
+            loss.scoreGradient(scores, 0, K, Y[r], 1);
+            for (int o = 0; o < outputs; o++) {
+                double d = scores[o];
+                scores[o] = d - table[off + o];
+                if (update) {
+                    table[off + o] = d;
+                }
+            }
+            addFeatures(r, scores, 0, scale, grad);
+            if (update) {
+                addFeatures(r, scores, 0, 1.0 / N, average);
+            }
+        }
+
+        // Step 3. Add random noise probed from the client's noise distribution.
+        addNoise(grad);
+
+        // Step 4. Update the weights, unless the gradient is incomplete.
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        double c = params.getC();
+        for (int i = 0; i < length; i++) {
+            w[i] -= c * grad[i];
+        }
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        table = null;
+        average = null;
+        grad = null;
+    }
+}
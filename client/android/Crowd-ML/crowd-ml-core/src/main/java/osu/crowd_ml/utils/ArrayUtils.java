@@ -17,9 +17,65 @@ See the License for the specific language governing permissions and
 limitations under the License
 */
 
+import java.util.ArrayList;
+import java.util.List;
+
 public final class ArrayUtils {
     private ArrayUtils(){}
 
+    /**
+     * Unboxes a list into dst, which must hold at least list.size() values.
+     *
+     * @return dst
+     */
+    public static double[] toArray(List<Double> list, double[] dst) {
+        for (int i = 0; i < list.size(); i++) {
+            dst[i] = list.get(i);
+        }
+        return dst;
+    }
+
+    public static List<Double> toList(double[] array) {
+        List<Double> list = new ArrayList<>(array.length);
+        for (double value : array) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    /**
+     * Unboxes a list into dst, rounding to float32. dst must hold at least list.size() values.
+     *
+     * @return dst
+     */
+    public static float[] toArray(List<Double> list, float[] dst) {
+        for (int i = 0; i < list.size(); i++) {
+            dst[i] = list.get(i).floatValue();
+        }
+        return dst;
+    }
+
+    public static List<Double> toList(float[] array) {
+        List<Double> list = new ArrayList<>(array.length);
+        for (float value : array) {
+            list.add((double) value);
+        }
+        return list;
+    }
+
+    /**
+     * Copies src into dst, or into a new array if dst is null or of another length.
+     *
+     * @return the copy
+     */
+    public static double[] copy(double[] src, double[] dst) {
+        if (dst == null || dst.length != src.length) {
+            dst = new double[src.length];
+        }
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
+    }
+
     // Merge Sort
     public static void sort(int[] array) {
         quickSort(array, 0, array.length - 1);
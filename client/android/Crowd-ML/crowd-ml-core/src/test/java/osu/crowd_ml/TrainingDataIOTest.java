@@ -0,0 +1,116 @@
+package osu.crowd_ml;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import osu.crowd_ml.data.Batch;
+import osu.crowd_ml.data.FileDataSource;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads minibatches from text sources through their line indices, with the in-memory dataset
+ * cache turned off.
+ */
+public class TrainingDataIOTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private File dir;
+    private Parameters params;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("crowdml", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        TrainingDataIO.getInstance().setDataSource(new FileDataSource(dir, new File(dir, "cache")));
+
+        params = new Parameters();
+        params.setFeatureSource("features.dat");
+        params.setLabelSource("labels.dat");
+        params.setD(2);
+        params.setDataFormat("text");
+        params.setDatasetCacheMB(0);
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void changedSourceRebuildsIndex() throws IOException {
+        write("features.dat", "1,2\n3,4\n5,6\n");
+        write("labels.dat", "0\n1\n2\n");
+        assertBatch(new int[]{2, 0}, new float[]{5, 6, 1, 2}, new int[]{2, 0});
+        assertTrue(new File(dir, "cache/features.dat.idx").isFile());
+
+        // Longer lines move every offset, so a stale index would read the wrong bytes.
+        write("features.dat", "10.5,20.25\n30.5,40.25\n50.5,60.25\n");
+        assertBatch(new int[]{1, 2}, new float[]{30.5f, 40.25f, 50.5f, 60.25f}, new int[]{1, 2});
+
+        // The persisted index of the old source is not reused either.
+        write("features.dat", "7,8\n9,10\n11,12\n");
+        TrainingDataIO.getInstance().setDataSource(new FileDataSource(dir, new File(dir, "cache")));
+        assertBatch(new int[]{1}, new float[]{9, 10}, new int[]{1});
+    }
+
+    @Test
+    public void sampleBeyondShortSourceScansInstead() throws IOException {
+        write("features.dat", "1,2\n3,4\n5,6\n");
+        write("labels.dat", "0\n1\n");
+        Batch batch = TrainingDataIO.getInstance().readBatch(new int[]{0, 2}, params, null);
+        assertEquals(0, batch.size());
+
+        // Samples inside both sources are still read through the indices.
+        assertBatch(new int[]{1, 0}, new float[]{3, 4, 1, 2}, new int[]{1, 0});
+    }
+
+    @Test
+    public void failedLibSvmLoadIsRetried() throws IOException {
+        params.setDataFormat("libsvm");
+        write("features.dat", "1 1:0.5 x\n");
+        assertNull(TrainingDataIO.getInstance().getDataset(params));
+
+        write("features.dat", "1 1:0.5\n0 2:2\n");
+        assertEquals(2, TrainingDataIO.getInstance().getDataset(params).size());
+        assertBatch(new int[]{1, 0}, new float[]{0, 2, 0.5f, 0}, new int[]{0, 1});
+    }
+
+    private void assertBatch(int[] samples, float[] features, int[] labels) {
+        Batch batch = TrainingDataIO.getInstance().readBatch(samples, params, null);
+        assertEquals(samples.length, batch.size());
+        for (int i = 0; i < features.length; i++) {
+            assertEquals(features[i], batch.features()[i], 0);
+        }
+        for (int i = 0; i < labels.length; i++) {
+            assertEquals(labels[i], batch.labels()[i]);
+        }
+    }
+
+    private void write(String name, String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(dir, name));
+        try {
+            out.write(text.getBytes(ASCII));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
@@ -0,0 +1,176 @@
+package osu.crowd_ml.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trips small training sets through {@link DatasetConverter}, {@link MappedDataset} and
+ * {@link QuantizedDataset}.
+ */
+public class DatasetConverterTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private File dir;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = File.createTempFile("crowdml", "");
+        assertTrue(dir.delete() && dir.mkdir());
+    }
+
+    @After
+    public void deleteDir() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    @Test
+    public void textToBinaryToMapped() throws IOException {
+        // Extra trailing features are dropped, separators may be commas or spaces.
+        String features = "1,2.5,-3,9\n0.1 0 1e-3 7\n-0.5,4,1.25,8\n";
+        String labels = "1\n0\n-1\n";
+        File out = new File(dir, "train.bin");
+        DatasetConverter.convert(stream(features), stream(labels), 3, 1234L, out);
+
+        MappedDataset data = MappedDataset.open(out);
+        assertEquals(3, data.size());
+        assertEquals(3, data.dimension());
+        assertEquals(1234L, data.getSourceStamp());
+        assertEquals(MappedDataset.FEATURE_FLOAT32, data.getFeatureType());
+
+        float[][] expected = {{1, 2.5f, -3}, {0.1f, 0, 1e-3f}, {-0.5f, 4, 1.25f}};
+        int[] expectedLabels = {1, 0, -1};
+        float[] row = new float[4];
+        double[] doubles = new double[3];
+        for (int n = 0; n < 3; n++) {
+            data.readFeatures(n, row, 1);
+            data.readFeatures(n, doubles);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected[n][i], row[1 + i], 0);
+                assertEquals(expected[n][i], doubles[i], 0);
+            }
+            assertEquals(expectedLabels[n], data.readLabel(n));
+        }
+        assertFalse(new File(out.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void shortRowFailsWithoutOutput() {
+        File out = new File(dir, "train.bin");
+        try {
+            DatasetConverter.convert(stream("1,2,3\n4,5\n"), stream("0\n1\n"), 3, 0, out);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // The short second row is reported.
+        }
+        assertFalse(out.exists());
+        assertFalse(new File(out.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void pixelsQuantizeExactly() throws IOException {
+        Random random = new Random(7);
+        int N = 50;
+        int D = 20;
+        float[][] pixels = new float[N][D];
+        for (int n = 0; n < N; n++) {
+            for (int i = 0; i < D; i++) {
+                pixels[n][i] = random.nextInt(256);
+            }
+        }
+        MappedDataset source = convert(pixels);
+
+        File out = new File(dir, "train.q");
+        assertTrue(DatasetConverter.quantize(source, true, out));
+        MappedDataset quantized = MappedDataset.open(out);
+        assertEquals(MappedDataset.FEATURE_UINT8, quantized.getFeatureType());
+        assertEquals(1f, quantized.getScale(), 0);
+        assertSameSamples(source, quantized, 0);
+        assertSameSamples(source, QuantizedDataset.copyOf(quantized), 0);
+    }
+
+    @Test
+    public void realFeaturesQuantizeWithinHalfAStep() throws IOException {
+        Random random = new Random(11);
+        int N = 40;
+        int D = 16;
+        float[][] features = new float[N][D];
+        for (int n = 0; n < N; n++) {
+            for (int i = 0; i < D; i++) {
+                features[n][i] = (float) (random.nextDouble() * 3 - 1);
+            }
+        }
+        MappedDataset source = convert(features);
+
+        // Not representable exactly in 256 levels.
+        assertFalse(DatasetConverter.quantize(source, true, new File(dir, "exact.q")));
+        assertFalse(new File(dir, "exact.q").exists());
+
+        File out = new File(dir, "train.q");
+        assertTrue(DatasetConverter.quantize(source, false, out));
+        MappedDataset quantized = MappedDataset.open(out);
+        float step = quantized.getScale();
+        assertTrue(step > 0 && step <= 3f / 255 + 1e-6f);
+        assertSameSamples(source, quantized, step / 2 + 1e-6f);
+        assertSameSamples(source, QuantizedDataset.copyOf(quantized), step / 2 + 1e-6f);
+    }
+
+    @Test
+    public void nonFiniteFeaturesAreNotQuantized() throws IOException {
+        MappedDataset source = convert(new float[][]{{1, Float.NaN}, {2, 3}});
+        assertFalse(DatasetConverter.quantize(source, false, new File(dir, "train.q")));
+    }
+
+    private MappedDataset convert(float[][] features) throws IOException {
+        StringBuilder text = new StringBuilder();
+        StringBuilder labels = new StringBuilder();
+        for (int n = 0; n < features.length; n++) {
+            for (int i = 0; i < features[n].length; i++) {
+                text.append(i == 0 ? "" : ",").append(features[n][i]);
+            }
+            text.append('\n');
+            labels.append(n % 2).append('\n');
+        }
+        File out = new File(dir, "source.bin");
+        DatasetConverter.convert(stream(text.toString()), stream(labels.toString()),
+                features[0].length, 0, out);
+        return MappedDataset.open(out);
+    }
+
+    private static void assertSameSamples(Dataset expected, Dataset actual, float tolerance) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.dimension(), actual.dimension());
+        int D = expected.dimension();
+        float[] a = new float[D];
+        float[] b = new float[D];
+        for (int n = 0; n < expected.size(); n++) {
+            expected.readFeatures(n, a, 0);
+            actual.readFeatures(n, b, 0);
+            for (int i = 0; i < D; i++) {
+                assertEquals("sample " + n + " [" + i + "]", a[i], b[i], tolerance);
+            }
+            assertEquals(expected.readLabel(n), actual.readLabel(n));
+        }
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(ASCII));
+    }
+}
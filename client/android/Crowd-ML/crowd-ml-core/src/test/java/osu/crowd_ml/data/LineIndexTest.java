@@ -0,0 +1,72 @@
+package osu.crowd_ml.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class LineIndexTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    @Test
+    public void offsetsOfEveryLine() throws IOException {
+        LineIndex index = build("1,2\r\n\n345\nlast", 9L);
+        assertEquals(4, index.size());
+        assertEquals(9L, index.getSourceStamp());
+        long[] starts = {0, 5, 6, 10};
+        int[] lengths = {5, 1, 4, 4};
+        for (int i = 0; i < 4; i++) {
+            assertEquals(starts[i], index.start(i));
+            assertEquals(lengths[i], index.length(i));
+        }
+    }
+
+    @Test
+    public void saveAndLoad() throws IOException {
+        LineIndex index = build("a\nbb\nccc\n", 42L);
+        File file = File.createTempFile("crowdml", ".idx");
+        try {
+            index.save(file);
+            LineIndex loaded = LineIndex.load(file);
+            assertEquals(index.size(), loaded.size());
+            assertEquals(42L, loaded.getSourceStamp());
+            for (int i = 0; i < index.size(); i++) {
+                assertEquals(index.start(i), loaded.start(i));
+                assertEquals(index.length(i), loaded.length(i));
+            }
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void loadRejectsOtherFiles() throws IOException {
+        File file = File.createTempFile("crowdml", ".idx");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write("not an index".getBytes(ASCII));
+            out.close();
+            LineIndex.load(file);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void lineOutOfRange() throws IOException {
+        build("a\nb\n", 0).start(2);
+    }
+
+    private static LineIndex build(String text, long stamp) throws IOException {
+        return LineIndex.build(new ByteArrayInputStream(text.getBytes(ASCII)), stamp);
+    }
+}
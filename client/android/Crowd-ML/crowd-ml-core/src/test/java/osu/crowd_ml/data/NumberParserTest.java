@@ -0,0 +1,156 @@
+package osu.crowd_ml.data;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that {@link NumberParser} and {@link ByteLineReader} decode exactly what the old
+ * {@code line.split(",| ")} + {@code Double.parseDouble} readers produced.
+ *
+ * The MNIST parity tests read the archives in the repository's data folder. Point the
+ * {@code crowdml.data} system property elsewhere to use a different copy.
+ */
+public class NumberParserTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static File dataDir() {
+        return new File(System.getProperty("crowdml.data", "../../../../data"));
+    }
+
+    @Test
+    public void mnistFeaturesMatchStringParser() throws IOException {
+        File archive = new File(dataDir(), "binary-mnist.zip");
+        assumeTrue(archive.isFile());
+
+        ZipFile zip = new ZipFile(archive);
+        try {
+            int files = 0;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(".dat")) {
+                    assertFileParity(zip, entry);
+                    files++;
+                }
+            }
+            assertEquals(4, files);
+        } finally {
+            zip.close();
+        }
+    }
+
+    private static void assertFileParity(ZipFile zip, ZipEntry entry) throws IOException {
+        BufferedReader expected = new BufferedReader(new InputStreamReader(zip.getInputStream(entry)));
+        ByteLineReader actual = new ByteLineReader(zip.getInputStream(entry), 64);
+        try {
+            String line;
+            int lineNo = 0;
+            while ((line = expected.readLine()) != null) {
+                assertTrue(entry.getName() + ":" + lineNo, actual.next());
+                byte[] buf = actual.buffer();
+                int start = actual.lineStart();
+                int end = actual.lineEnd();
+
+                if (entry.getName().contains("Labels")) {
+                    assertEquals(Integer.parseInt(line.trim()), NumberParser.parseInt(buf, start, end));
+                } else {
+                    String[] tokens = line.split(",| ");
+                    double[] doubles = new double[tokens.length];
+                    float[] floats = new float[tokens.length];
+                    assertEquals(tokens.length,
+                            NumberParser.parseDoubles(buf, start, end, doubles, 0, tokens.length));
+                    assertEquals(tokens.length,
+                            NumberParser.parseFloats(buf, start, end, floats, 0, tokens.length));
+                    for (int i = 0; i < tokens.length; i++) {
+                        assertEquals(Double.parseDouble(tokens[i]), doubles[i], 0);
+                        assertEquals(Float.parseFloat(tokens[i]), floats[i], 0);
+                    }
+                }
+                lineNo++;
+            }
+            assertFalse(actual.next());
+        } finally {
+            expected.close();
+            actual.close();
+        }
+    }
+
+    @Test
+    public void decimalsMatchJdk() {
+        String[] values = {
+                "0", "1", "-1", "+7", "255", "0.5", ".5", "5.", "-0", "-0.0", "3.14159", "1e-7",
+                "2.5E+3", "0.1", "0.30000000000000004", "123456789012345678", "9007199254740993",
+                "1e22", "1e23", "1e-22", "1e300", "4.9e-324", "1e400", "NaN", "Infinity",
+                "-Infinity", "0.000000000000000000000000000001", "16777217", "3.4028235e38"
+        };
+        for (String value : values) {
+            assertParsesLikeJdk(value);
+        }
+
+        Random r = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            assertParsesLikeJdk(Double.toString(r.nextGaussian() * Math.pow(10, r.nextInt(40) - 20)));
+            assertParsesLikeJdk(Float.toString((float) (r.nextDouble() * 1000)));
+            assertParsesLikeJdk(Integer.toString(r.nextInt()));
+        }
+    }
+
+    private static void assertParsesLikeJdk(String value) {
+        byte[] bytes = value.getBytes(ASCII);
+        assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+                Double.doubleToLongBits(NumberParser.parseDouble(bytes, 0, bytes.length)));
+        assertEquals(value, Float.floatToIntBits(Float.parseFloat(value)),
+                Float.floatToIntBits(NumberParser.parseFloat(bytes, 0, bytes.length)));
+    }
+
+    @Test
+    public void separatorsAndShortRows() {
+        byte[] row = " 1,2 3, 4\t5\r".getBytes(ASCII);
+        double[] dst = new double[8];
+        assertEquals(5, NumberParser.parseDoubles(row, 0, row.length, dst, 1, 8));
+        assertArrayEquals(new double[]{0, 1, 2, 3, 4, 5, 0, 0}, dst, 0);
+
+        float[] prefix = new float[2];
+        assertEquals(2, NumberParser.parseFloats(row, 0, row.length, prefix, 0, 2));
+        assertArrayEquals(new float[]{1, 2}, prefix, 0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void malformedValueThrows() {
+        byte[] row = "1,x,3".getBytes(ASCII);
+        NumberParser.parseDoubles(row, 0, row.length, new double[3], 0, 3);
+    }
+
+    @Test
+    public void labelsTolerateWhitespace() {
+        byte[] label = " -12 \r".getBytes(ASCII);
+        assertEquals(-12, NumberParser.parseInt(label, 0, label.length));
+    }
+
+    @Test
+    public void linesWithoutTrailingNewline() throws IOException {
+        ByteLineReader reader = new ByteLineReader(
+                new ByteArrayInputStream("a\r\n\nlonger line\nlast".getBytes(ASCII)), 4);
+        String[] expected = {"a", "", "longer line", "last"};
+        for (String line : expected) {
+            assertTrue(reader.next());
+            assertEquals(line, new String(reader.buffer(), reader.lineStart(),
+                    reader.lineEnd() - reader.lineStart(), ASCII));
+        }
+        assertFalse(reader.next());
+    }
+}
@@ -0,0 +1,91 @@
+package osu.crowd_ml.loss_functions;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link LossFunction#batchGradient} against summing {@link LossFunction#gradient} one
+ * sample at a time. See BatchGradientBenchmark in src/benchmark for the timings.
+ */
+public class BatchGradientTest {
+
+    private static final int D = 60;
+    private static final int K = 10;
+    private static final int NH = 16;
+    private static final double L = 1e-3;
+    private static final int[] BATCH_SIZES = {1, 7, 100};
+
+    @Test
+    public void softmax() {
+        assertBatchedMatchesPerSample(new Softmax());
+    }
+
+    @Test
+    public void softmaxNN() {
+        assertBatchedMatchesPerSample(new SoftmaxNN());
+    }
+
+    @Test
+    public void multiSVM() {
+        assertBatchedMatchesPerSample(new MultiSVM());
+    }
+
+    @Test
+    public void logReg() {
+        assertBatchedMatchesPerSample(new LogReg());
+    }
+
+    @Test
+    public void hinge() {
+        assertBatchedMatchesPerSample(new Hinge());
+    }
+
+    private static void assertBatchedMatchesPerSample(LossFunction loss) {
+        boolean binary = "binary".equals(loss.lossType());
+        Parameters params = new Parameters();
+        params.setD(D);
+        params.setK(binary ? 2 : K);
+        params.setNH(NH);
+        loss.setLength(params);
+        int length = loss.getLength();
+
+        Random random = new Random(42);
+        double[] weights = new double[length];
+        for (int i = 0; i < length; i++) {
+            weights[i] = random.nextGaussian() * 0.1;
+        }
+
+        for (int B : BATCH_SIZES) {
+            // Pixel-like features, and one leading sample outside [start, end).
+            float[] X = new float[(B + 1) * D];
+            int[] Y = new int[B + 1];
+            for (int i = 0; i < X.length; i++) {
+                X[i] = random.nextInt(5) == 0 ? random.nextInt(256) / 255f : 0;
+            }
+            for (int b = 0; b <= B; b++) {
+                Y[b] = binary ? 2 * random.nextInt(2) - 1 : random.nextInt(K);
+            }
+
+            double[] expected = new double[length];
+            double[] x = new double[D];
+            for (int b = 1; b <= B; b++) {
+                for (int j = 0; j < D; j++) {
+                    x[j] = X[b * D + j];
+                }
+                loss.gradient(weights, x, Y[b], D, params.getK(), L, NH, 1.0 / B, expected);
+            }
+            double[] actual = new double[length];
+            loss.batchGradient(weights, X, Y, 1, B + 1, D, params.getK(), L, NH, 1.0 / B, actual);
+
+            for (int i = 0; i < length; i++) {
+                assertEquals(loss.lossFunctionName() + " B=" + B + " [" + i + "]",
+                        expected[i], actual[i], 1e-9 * Math.max(1, Math.abs(expected[i])));
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package osu.crowd_ml.loss_functions;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link LinearLossFunction#dualStep} on a single sample, whose scores move by q times
+ * the change of its dual variables.
+ */
+public class DualStepTest {
+
+    @Test
+    public void hingeStepIsTheExactCoordinateMaximum() {
+        Hinge hinge = new Hinge();
+
+        // alpha = clip((1 - y s) / q + y alpha, 0, 1) y
+        double[] alpha = {0};
+        double[] scores = {0.2};
+        hinge.dualStep(scores, alpha, 0, 2, 1, 2);
+        assertEquals(0.4, scores[0], 1e-12);
+        assertEquals(0.4, alpha[0], 1e-12);
+
+        // The step puts the sample on the margin, so a second step changes nothing.
+        scores[0] = 0.2 + 0.4 * 2;
+        hinge.dualStep(scores, alpha, 0, 2, 1, 2);
+        assertEquals(0, scores[0], 1e-12);
+        assertEquals(0.4, alpha[0], 1e-12);
+    }
+
+    @Test
+    public void hingeStepIsClipped() {
+        Hinge hinge = new Hinge();
+
+        // A badly misclassified negative sample is clipped to alpha = -1.
+        double[] alpha = {-0.5};
+        double[] scores = {3};
+        hinge.dualStep(scores, alpha, 0, 2, -1, 0.5);
+        assertEquals(-0.5, scores[0], 1e-12);
+        assertEquals(-1, alpha[0], 1e-12);
+
+        // A sample well past the margin is clipped to alpha = 0.
+        alpha[0] = 0.3;
+        scores[0] = 5;
+        hinge.dualStep(scores, alpha, 0, 2, 1, 0.5);
+        assertEquals(-0.3, scores[0], 1e-12);
+        assertEquals(0, alpha[0], 0);
+    }
+
+    @Test
+    public void logRegStepIsSmoothed() {
+        LogReg logReg = new LogReg();
+
+        // delta = (y / (1 + exp(y s)) - alpha) / (1 + q / 4), 1/4 being the loss's smoothness
+        double[] alpha = {0};
+        double[] scores = {0};
+        logReg.dualStep(scores, alpha, 0, 2, 1, 2);
+        assertEquals(0.5 / 1.5, scores[0], 1e-12);
+        assertEquals(0.5 / 1.5, alpha[0], 1e-12);
+
+        // Repeated steps converge to alpha = -loss'(s) = y / (1 + exp(y s)).
+        double s = alpha[0] * 2;
+        for (int i = 0; i < 100; i++) {
+            scores[0] = s;
+            logReg.dualStep(scores, alpha, 0, 2, 1, 2);
+            s += scores[0] * 2;
+        }
+        assertEquals(1 / (1 + Math.exp(s)), alpha[0], 1e-9);
+    }
+
+    @Test
+    public void softmaxStepIsSmoothed() {
+        Softmax softmax = new Softmax();
+        int K = 3;
+        int Y = 0;
+        double q = 1;
+
+        // delta_k = (1{k = y} - p_k - alpha_k) / (1 + q / 2)
+        double[] s = {0.5, 0, -0.5};
+        double[] p = probabilities(s);
+        double[] alpha = new double[2 * K];
+        double[] scores = s.clone();
+        softmax.dualStep(scores, alpha, K, K, Y, q);
+        for (int k = 0; k < K; k++) {
+            double expected = ((k == Y ? 1 : 0) - p[k]) / 1.5;
+            assertEquals(expected, scores[k], 1e-12);
+            assertEquals(expected, alpha[K + k], 1e-12);
+            assertEquals(0, alpha[k], 0);
+        }
+
+        // Repeated steps converge to alpha = -loss'(s) = e_y - p(s).
+        for (int i = 0; i < 100; i++) {
+            for (int k = 0; k < K; k++) {
+                s[k] += scores[k] * q;
+            }
+            scores = s.clone();
+            softmax.dualStep(scores, alpha, K, K, Y, q);
+        }
+        p = probabilities(s);
+        for (int k = 0; k < K; k++) {
+            assertEquals((k == Y ? 1 : 0) - p[k], alpha[K + k], 1e-9);
+        }
+    }
+
+    private static double[] probabilities(double[] s) {
+        double sum = 0;
+        double[] p = new double[s.length];
+        for (int k = 0; k < s.length; k++) {
+            p[k] = Math.exp(s[k]);
+            sum += p[k];
+        }
+        for (int k = 0; k < s.length; k++) {
+            p[k] /= sum;
+        }
+        return p;
+    }
+}
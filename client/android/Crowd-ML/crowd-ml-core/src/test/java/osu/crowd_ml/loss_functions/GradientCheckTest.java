@@ -0,0 +1,373 @@
+package osu.crowd_ml.loss_functions;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the gradients of the loss functions, per sample and batched, against central
+ * differences of their objectives, computed here from the definitions of the losses.
+ */
+public class GradientCheckTest {
+
+    private static final int D = 6;
+    private static final int K = 4;
+    private static final int NH = 5;
+    private static final double L = 1e-2;
+    private static final double H = 1e-6;
+    private static final int B = 20;
+
+    private final Random random = new Random(11);
+
+    @Test
+    public void logReg() {
+        final double[] x = features();
+        for (final int y : new int[]{-1, 1}) {
+            double[] weights = weights(D);
+            double[] grad = new double[D];
+            new LogReg().gradient(weights, x, y, D, 2, L, NH, 1, grad);
+            assertMatchesFiniteDifferences("LogReg", weights, grad, 0, D, new Objective() {
+                @Override
+                public double value(double[] w) {
+                    return Math.log1p(Math.exp(-y * dot(w, 0, x))) + regularization(w);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void hinge() {
+        final double[] x = features();
+        for (final int y : new int[]{-1, 1}) {
+            // Both sides of the margin.
+            for (double margin : new double[]{0.5, 1.5}) {
+                double[] weights = weights(D);
+                double shift = (margin - y * dot(weights, 0, x)) / (y * dot(x, 0, x));
+                for (int j = 0; j < D; j++) {
+                    weights[j] += shift * x[j];
+                }
+                double[] grad = new double[D];
+                new Hinge().gradient(weights, x, y, D, 2, L, NH, 1, grad);
+                assertMatchesFiniteDifferences("Hinge", weights, grad, 0, D, new Objective() {
+                    @Override
+                    public double value(double[] w) {
+                        return Math.max(0, 1 - y * dot(w, 0, x)) + regularization(w);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void softmax() {
+        final double[] x = features();
+        final int y = random.nextInt(K);
+        double[] weights = weights(D * K);
+        double[] grad = new double[D * K];
+        new Softmax().gradient(weights, x, y, D, K, L, NH, 1, grad);
+        assertMatchesFiniteDifferences("Softmax", weights, grad, 0, D * K, new Objective() {
+            @Override
+            public double value(double[] w) {
+                double[] scores = new double[K];
+                for (int k = 0; k < K; k++) {
+                    scores[k] = dot(w, D * k, x);
+                }
+                return crossEntropy(scores, y) + regularization(w);
+            }
+        });
+    }
+
+    @Test
+    public void multiSVM() {
+        // Its loss is max(0, 1 + c - w_y·x), c being the largest running sum of the other
+        // classes' scores. The gradient leaves out the other classes' data term, as it always
+        // has, so only the true class's weights are checked.
+        final double[] x = features();
+        final int y = random.nextInt(K);
+        for (double margin : new double[]{-0.5, 0.5}) {
+            double[] weights = weights(D * K);
+            double shift = (1 + counterScore(weights, x, y) - margin - dot(weights, D * y, x))
+                    / dot(x, 0, x);
+            for (int j = 0; j < D; j++) {
+                weights[D * y + j] += shift * x[j];
+            }
+            double[] grad = new double[D * K];
+            new MultiSVM().gradient(weights, x, y, D, K, L, NH, 1, grad);
+            assertMatchesFiniteDifferences("MultiSVM", weights, grad, D * y, D * (y + 1),
+                    new Objective() {
+                        @Override
+                        public double value(double[] w) {
+                            return Math.max(0, 1 + counterScore(w, x, y) - dot(w, D * y, x))
+                                    + regularization(w);
+                        }
+                    });
+        }
+    }
+
+    @Test
+    public void softmaxNN() {
+        // The regularization term is read from transposed positions, as the server's gradient
+        // has always done (see MLP.regularize), so only the data term is checked.
+        Parameters params = new Parameters();
+        params.setD(D);
+        params.setK(K);
+        params.setNH(NH);
+        assertNetworkMatchesFiniteDifferences(params, new int[]{D, NH, NH, K});
+    }
+
+    @Test
+    public void softmaxNNWithConfiguredDepth() {
+        // Three hidden layers of different widths, and a single one.
+        Parameters params = new Parameters();
+        params.setD(D);
+        params.setK(K);
+        params.setNH(NH);
+        params.setHiddenLayers("7,3,5");
+        assertNetworkMatchesFiniteDifferences(params, new int[]{D, 7, 3, 5, K});
+        params.setHiddenLayers("8");
+        assertNetworkMatchesFiniteDifferences(params, new int[]{D, 8, K});
+    }
+
+    @Test
+    public void batchedLinearLosses() {
+        for (LossFunction loss : new LossFunction[]{new LogReg(), new Hinge(), new Softmax()}) {
+            final boolean binary = "binary".equals(loss.lossType());
+            int length = binary ? D : D * K;
+            final float[] X = batchFeatures();
+            final int[] Y = batchLabels(binary);
+            double[] weights = weights(length);
+            double[] grad = new double[length];
+            loss.batchGradient(weights, X, Y, 0, B, D, K, L, NH, 1.0 / B, grad);
+            final String name = loss.lossFunctionName();
+            assertMatchesFiniteDifferences(name, weights, grad, 0, length, new Objective() {
+                @Override
+                public double value(double[] w) {
+                    double sum = 0;
+                    for (int b = 0; b < B; b++) {
+                        double[] x = row(X, b);
+                        if (binary) {
+                            double s = Y[b] * dot(w, 0, x);
+                            sum += "LogReg".equals(name) ? Math.log1p(Math.exp(-s))
+                                    : Math.max(0, 1 - s);
+                        } else {
+                            double[] scores = new double[K];
+                            for (int k = 0; k < K; k++) {
+                                scores[k] = dot(w, D * k, x);
+                            }
+                            sum += crossEntropy(scores, Y[b]);
+                        }
+                    }
+                    return sum / B + regularization(w);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void batchedSoftmaxNN() {
+        Parameters params = new Parameters();
+        params.setD(D);
+        params.setK(K);
+        params.setNH(NH);
+        SoftmaxNN loss = new SoftmaxNN();
+        loss.setLength(params);
+        int length = loss.getLength();
+        final int[] widths = {D, NH, NH, K};
+        final float[] X = batchFeatures();
+        final int[] Y = batchLabels(false);
+        double[] weights = weights(length);
+        double[] grad = new double[length];
+        loss.batchGradient(weights, X, Y, 0, B, D, K, 0, NH, 1.0 / B, grad);
+        assertMatchesFiniteDifferences("SoftmaxNN", weights, grad, 0, length, new Objective() {
+            @Override
+            public double value(double[] w) {
+                double sum = 0;
+                for (int b = 0; b < B; b++) {
+                    sum += networkLoss(w, widths, row(X, b), Y[b]);
+                }
+                return sum / B;
+            }
+        });
+    }
+
+    @Test
+    public void floatKernelsMatchTheDoubleOnes() {
+        LossFunction[] losses = {new LogReg(), new Hinge(), new Softmax(), new MultiSVM(),
+                new SoftmaxNN()};
+        for (LossFunction loss : losses) {
+            boolean binary = "binary".equals(loss.lossType());
+            Parameters params = new Parameters();
+            params.setD(D);
+            params.setK(binary ? 2 : K);
+            params.setNH(NH);
+            loss.setLength(params);
+            int length = loss.getLength();
+            float[] X = batchFeatures();
+            int[] Y = batchLabels(binary);
+
+            double[] weights = weights(length);
+            float[] floatWeights = new float[length];
+            for (int i = 0; i < length; i++) {
+                // Weights that float32 holds exactly, so both kernels see the same ones.
+                floatWeights[i] = (float) weights[i];
+                weights[i] = floatWeights[i];
+            }
+            double[] expected = new double[length];
+            loss.batchGradient(weights, X, Y, 0, B, D, params.getK(), L, NH, 1.0 / B, expected);
+            float[] actual = new float[length];
+            loss.batchGradient(floatWeights, X, Y, 0, B, D, params.getK(), (float) L, NH,
+                    1f / B, actual);
+            for (int i = 0; i < length; i++) {
+                assertEquals(loss.lossFunctionName() + " [" + i + "]", expected[i], actual[i],
+                        1e-5 * Math.max(1, Math.abs(expected[i])));
+            }
+        }
+    }
+
+    /**
+     * Checks the data term of SoftmaxNN's gradient for a network of the given widths.
+     */
+    private void assertNetworkMatchesFiniteDifferences(Parameters params, final int[] widths) {
+        SoftmaxNN loss = new SoftmaxNN();
+        loss.setLength(params);
+        int length = loss.getLength();
+        final double[] x = features();
+        final int y = random.nextInt(K);
+        double[] weights = weights(length);
+        double[] grad = new double[length];
+        loss.gradient(weights, x, y, D, K, 0, params.getNH(), 1, grad);
+        assertMatchesFiniteDifferences("SoftmaxNN", weights, grad, 0, length, new Objective() {
+            @Override
+            public double value(double[] w) {
+                return networkLoss(w, widths, x, y);
+            }
+        });
+    }
+
+    /**
+     * The cross-entropy loss of a ReLU network laid out as described in {@link MLP}.
+     */
+    private static double networkLoss(double[] w, int[] widths, double[] x, int y) {
+        double[] a = x;
+        int offset = 0;
+        for (int l = 0; l + 1 < widths.length; l++) {
+            int n = widths[l];
+            int out = widths[l + 1];
+            double[] z = new double[out];
+            for (int j = 0; j < out; j++) {
+                double sum = w[offset + n * out + j];
+                for (int i = 0; i < n; i++) {
+                    sum += a[i] * w[offset + i * out + j];
+                }
+                z[j] = l + 2 < widths.length ? Math.max(0, sum) : sum;
+            }
+            offset += n * out + out;
+            a = z;
+        }
+        assertEquals(w.length, offset);
+        return crossEntropy(a, y);
+    }
+
+    private static double crossEntropy(double[] scores, int y) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double s : scores) {
+            max = Math.max(max, s);
+        }
+        double sum = 0;
+        for (double s : scores) {
+            sum += Math.exp(s - max);
+        }
+        return max + Math.log(sum) - scores[y];
+    }
+
+    private static double counterScore(double[] w, double[] x, int y) {
+        double counter = 0;
+        double max = 0;
+        for (int k = 0; k < K; k++) {
+            if (k != y) {
+                counter += dot(w, D * k, x);
+            }
+            max = Math.max(max, counter);
+        }
+        return max;
+    }
+
+    private static double regularization(double[] w) {
+        return L * dot(w, 0, w);
+    }
+
+    private static double dot(double[] w, int offset, double[] x) {
+        double sum = 0;
+        for (int j = 0; j < x.length; j++) {
+            sum += w[offset + j] * x[j];
+        }
+        return sum;
+    }
+
+    private double[] features() {
+        double[] x = new double[D];
+        for (int j = 0; j < D; j++) {
+            x[j] = random.nextGaussian();
+        }
+        return x;
+    }
+
+    private float[] batchFeatures() {
+        float[] X = new float[B * D];
+        for (int i = 0; i < X.length; i++) {
+            X[i] = (float) random.nextGaussian();
+        }
+        return X;
+    }
+
+    private int[] batchLabels(boolean binary) {
+        int[] Y = new int[B];
+        for (int b = 0; b < B; b++) {
+            Y[b] = binary ? 2 * random.nextInt(2) - 1 : random.nextInt(K);
+        }
+        return Y;
+    }
+
+    private static double[] row(float[] X, int b) {
+        double[] x = new double[D];
+        for (int j = 0; j < D; j++) {
+            x[j] = X[b * D + j];
+        }
+        return x;
+    }
+
+    private double[] weights(int length) {
+        double[] w = new double[length];
+        for (int i = 0; i < length; i++) {
+            w[i] = random.nextGaussian() * 0.5;
+        }
+        return w;
+    }
+
+    /**
+     * Compares grad[from, to) with the central differences of f at weights.
+     */
+    private static void assertMatchesFiniteDifferences(String name, double[] weights,
+                                                       double[] grad, int from, int to,
+                                                       Objective f) {
+        for (int i = from; i < to; i++) {
+            double saved = weights[i];
+            weights[i] = saved + H;
+            double plus = f.value(weights);
+            weights[i] = saved - H;
+            double minus = f.value(weights);
+            weights[i] = saved;
+            double expected = (plus - minus) / (2 * H);
+            assertEquals(name + " [" + i + "]", expected, grad[i],
+                    1e-6 * Math.max(1, Math.abs(expected)));
+        }
+    }
+
+    private interface Objective {
+        double value(double[] w);
+    }
+}
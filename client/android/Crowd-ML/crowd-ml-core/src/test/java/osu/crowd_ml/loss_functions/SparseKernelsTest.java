@@ -0,0 +1,125 @@
+package osu.crowd_ml.loss_functions;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the sparse kernels, {@link SparseLossFunction#addGradient} and the
+ * {@link SparseGradient} output of {@link ScaledLossFunction#addScaledGradient}, give the same
+ * gradient as {@link LossFunction#batchGradient} on the same batch.
+ */
+public class SparseKernelsTest {
+
+    private static final int D = 30;
+    private static final int K = 5;
+    private static final int NH = 8;
+    private static final int B = 12;
+    private static final double L = 1e-2;
+
+    private final Random random = new Random(23);
+
+    // A pixel-like batch, dense and in CSR form.
+    private final float[] X = new float[B * D];
+    private final int[] rows = new int[B + 1];
+    private final int[] columns = new int[B * D];
+    private final float[] values = new float[B * D];
+
+    public SparseKernelsTest() {
+        for (int b = 0; b < B; b++) {
+            rows[b + 1] = rows[b];
+            for (int j = 0; j < D; j++) {
+                if (random.nextInt(5) == 0) {
+                    X[b * D + j] = random.nextInt(256) / 255f;
+                    columns[rows[b + 1]] = j;
+                    values[rows[b + 1]] = X[b * D + j];
+                    rows[b + 1]++;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sparseGradientMatchesTheDenseOne() {
+        SparseLossFunction[] losses = {new LogReg(), new Hinge(), new Softmax(), new MultiSVM(),
+                new SoftmaxNN()};
+        for (SparseLossFunction loss : losses) {
+            boolean binary = "binary".equals(loss.lossType());
+            int k = binary ? 2 : K;
+            double[] weights = weights(loss, k);
+            int[] Y = labels(binary);
+
+            double[] expected = new double[weights.length];
+            loss.batchGradient(weights, X, Y, 0, B, D, k, L, NH, 1.0 / B, expected);
+            double[] actual = new double[weights.length];
+            for (int b = 0; b < B; b++) {
+                loss.addGradient(weights, columns, values, rows[b], rows[b + 1], Y[b], D, k, NH,
+                        1.0 / B, actual);
+            }
+            loss.addRegularization(weights, D, k, L, NH, actual);
+
+            for (int i = 0; i < weights.length; i++) {
+                assertEquals(loss.lossFunctionName() + " [" + i + "]", expected[i], actual[i],
+                        1e-12 * Math.max(1, Math.abs(expected[i])));
+            }
+        }
+    }
+
+    @Test
+    public void sparseOutputHoldsOnlyTheTouchedWeights() {
+        ScaledLossFunction[] losses = {new LogReg(), new Hinge(), new Softmax(), new MultiSVM()};
+        for (ScaledLossFunction loss : losses) {
+            boolean binary = "binary".equals(loss.lossType());
+            int k = binary ? 2 : K;
+            double[] weights = weights(loss, k);
+            int[] Y = labels(binary);
+
+            double[] expected = new double[weights.length];
+            SparseGradient actual = new SparseGradient(weights.length);
+            boolean[] present = new boolean[D];
+            for (int b = 0; b < B; b++) {
+                loss.addGradient(weights, columns, values, rows[b], rows[b + 1], Y[b], D, k, NH,
+                        1.0 / B, expected);
+                loss.addScaledGradient(weights, 1, columns, values, rows[b], rows[b + 1], Y[b],
+                        D, k, NH, 1.0 / B, actual);
+                for (int p = rows[b]; p < rows[b + 1]; p++) {
+                    present[columns[p]] = true;
+                }
+            }
+
+            for (int i = 0; i < weights.length; i++) {
+                assertEquals(loss.lossFunctionName() + " [" + i + "]", expected[i],
+                        actual.get(i), 1e-12 * Math.max(1, Math.abs(expected[i])));
+            }
+            // Every entry written is the weight of a feature present in the batch.
+            for (int n = 0; n < actual.size(); n++) {
+                assertTrue(loss.lossFunctionName(), present[actual.index(n) % D]);
+            }
+        }
+    }
+
+    private double[] weights(LossFunction loss, int k) {
+        Parameters params = new Parameters();
+        params.setD(D);
+        params.setK(k);
+        params.setNH(NH);
+        loss.setLength(params);
+        double[] weights = new double[loss.getLength()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextGaussian() * 0.1;
+        }
+        return weights;
+    }
+
+    private int[] labels(boolean binary) {
+        int[] Y = new int[B];
+        for (int b = 0; b < B; b++) {
+            Y[b] = binary ? 2 * random.nextInt(2) - 1 : random.nextInt(K);
+        }
+        return Y;
+    }
+}
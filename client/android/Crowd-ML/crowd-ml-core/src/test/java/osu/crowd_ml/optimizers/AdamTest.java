@@ -0,0 +1,188 @@
+package osu.crowd_ml.optimizers;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link Adam} against the update of Kingma and Ba on the quadratic
+ * f(w) = 1/2 sum a_i w_i^2, whose gradient is a_i w_i.
+ */
+public class AdamTest {
+
+    private static final double[] A = {1, 4, 0.25};
+    private static final double C = 0.1;
+
+    @Test
+    public void firstStepsMatchBiasCorrectedUpdate() {
+        Adam adam = new Adam();
+        double[] weights = {1, -2, 3};
+        double[] expected = weights.clone();
+        double[] m = new double[3];
+        double[] v = new double[3];
+        for (int step = 1; step <= 3; step++) {
+            adam.step(weights, gradient(weights), C, 0, step);
+
+            double[] g = gradient(expected);
+            for (int i = 0; i < 3; i++) {
+                m[i] = 0.9 * m[i] + 0.1 * g[i];
+                v[i] = 0.999 * v[i] + 0.001 * g[i] * g[i];
+                double mHat = m[i] / (1 - Math.pow(0.9, step));
+                double vHat = v[i] / (1 - Math.pow(0.999, step));
+                expected[i] -= C * mHat / Math.sqrt(vHat);
+            }
+            assertArrayEquals(expected, weights, 1e-12);
+        }
+    }
+
+    @Test
+    public void firstStepIsTheRateTimesTheSign() {
+        // With the bias correction the first step is c sign(g), whatever the size of g.
+        double[] weights = {1, -2, 3};
+        new Adam().step(weights, gradient(weights), C, 0, 1);
+        assertArrayEquals(new double[]{1 - C, -2 + C, 3 - C}, weights, 1e-12);
+    }
+
+    @Test
+    public void biasCorrectionCountsItsOwnSteps() {
+        // The server's iteration t does not enter the update.
+        double[] a = {1, -2, 3};
+        double[] b = a.clone();
+        new Adam().step(a, gradient(a), C, 1e-8, 1);
+        new Adam().step(b, gradient(b), C, 1e-8, 1000);
+        assertArrayEquals(a, b, 0);
+    }
+
+    @Test
+    public void stateIsResetWhenTheLengthChanges() {
+        Adam adam = new Adam();
+        double[] weights = {1, -2, 3};
+        for (int step = 1; step <= 5; step++) {
+            adam.step(weights, gradient(weights), C, 0, step);
+        }
+
+        // A fresh first step on the new length, bias correction included.
+        double[] shorter = {1, -2};
+        adam.step(shorter, new double[]{5, -0.5}, C, 0, 6);
+        assertArrayEquals(new double[]{1 - C, -2 + C}, shorter, 1e-12);
+    }
+
+    @Test
+    public void prepareKeepsTheStateForTheSameLength() {
+        Adam prepared = new Adam();
+        Adam plain = new Adam();
+        double[] a = {1, -2, 3};
+        double[] b = a.clone();
+        for (int step = 1; step <= 3; step++) {
+            prepared.prepare(3);
+            prepared.step(a, gradient(a), C, 1e-8, step);
+            plain.step(b, gradient(b), C, 1e-8, step);
+        }
+        assertArrayEquals(b, a, 0);
+    }
+
+    @Test
+    public void rollbackUndoesTheStepsSinceTheSnapshot() {
+        Adam adam = new Adam();
+        Adam reference = new Adam();
+        double[] a = {1, -2, 3};
+        double[] b = a.clone();
+        adam.step(a, gradient(a), C, 1e-8, 1);
+        reference.step(b, gradient(b), C, 1e-8, 1);
+
+        // An interrupted round: its steps, bias correction included, leave no trace.
+        adam.snapshot();
+        double[] discarded = a.clone();
+        for (int step = 2; step <= 4; step++) {
+            adam.step(discarded, gradient(discarded), C, 1e-8, step);
+        }
+        adam.rollback();
+
+        adam.step(a, gradient(a), C, 1e-8, 2);
+        reference.step(b, gradient(b), C, 1e-8, 2);
+        assertArrayEquals(b, a, 0);
+    }
+
+    @Test
+    public void rollbackBeforeTheFirstStepStartsFresh() {
+        Adam adam = new Adam();
+        adam.snapshot();
+        double[] weights = {1, -2, 3};
+        adam.step(weights, gradient(weights), C, 0, 1);
+        adam.rollback();
+
+        weights = new double[]{1, -2, 3};
+        adam.step(weights, gradient(weights), C, 0, 1);
+        assertArrayEquals(new double[]{1 - C, -2 + C, 3 - C}, weights, 1e-12);
+    }
+
+    @Test
+    public void concurrentStepsAreAllCounted() throws InterruptedException {
+        // Hogwild threads share one optimizer. Zero gradients leave the moments at zero, so
+        // only the step count changes.
+        final Adam adam = new Adam();
+        final int threads = 4;
+        final int steps = 2500;
+        final CountDownLatch start = new CountDownLatch(1);
+        adam.prepare(1);
+        Thread[] workers = new Thread[threads];
+        for (int k = 0; k < threads; k++) {
+            workers[k] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    double[] weights = {0};
+                    double[] zero = {0};
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < steps; i++) {
+                        adam.step(weights, zero, C, 0, 1);
+                    }
+                }
+            });
+            workers[k].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int n = threads * steps + 1;
+        double[] weights = {0};
+        adam.step(weights, new double[]{1}, C, 0, n);
+        double expected = -C * Math.sqrt(1 - Math.pow(0.999, n)) / (1 - Math.pow(0.9, n))
+                * 0.1 / Math.sqrt(0.001);
+        assertEquals(expected, weights[0], 1e-12);
+    }
+
+    @Test
+    public void reducesTheQuadratic() {
+        Adam adam = new Adam();
+        double[] weights = {1, -2, 3};
+        double start = f(weights);
+        for (int step = 1; step <= 200; step++) {
+            adam.step(weights, gradient(weights), C, 1e-8, step);
+        }
+        assertTrue(f(weights) < 0.01 * start);
+    }
+
+    static double[] gradient(double[] w) {
+        double[] g = new double[w.length];
+        for (int i = 0; i < w.length; i++) {
+            g[i] = A[i] * w[i];
+        }
+        return g;
+    }
+
+    static double f(double[] w) {
+        double sum = 0;
+        for (int i = 0; i < w.length; i++) {
+            sum += 0.5 * A[i] * w[i] * w[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,108 @@
+package osu.crowd_ml.optimizers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks both forms of {@link Momentum} against hand-computed steps on the quadratic of
+ * {@link AdamTest}.
+ */
+public class MomentumTest {
+
+    private static final double C = 0.1;
+
+    @Test
+    public void classicalFirstSteps() {
+        Momentum momentum = new Momentum(false);
+        double[] weights = {1, -2, 3};
+
+        // v1 = -c g1, w1 = w0 + v1
+        double[] g1 = AdamTest.gradient(weights);
+        double[] v = new double[3];
+        double[] expected = new double[3];
+        for (int i = 0; i < 3; i++) {
+            v[i] = -C * g1[i];
+            expected[i] = weights[i] + v[i];
+        }
+        momentum.step(weights, g1, C, 0, 1);
+        assertArrayEquals(expected, weights, 1e-12);
+
+        // v2 = 0.9 v1 - c g2, w2 = w1 + v2
+        double[] g2 = AdamTest.gradient(weights);
+        for (int i = 0; i < 3; i++) {
+            v[i] = 0.9 * v[i] - C * g2[i];
+            expected[i] = weights[i] + v[i];
+        }
+        momentum.step(weights, g2, C, 0, 2);
+        assertArrayEquals(expected, weights, 1e-12);
+    }
+
+    @Test
+    public void nesterovFirstSteps() {
+        Momentum nesterov = new Momentum(true);
+        double[] weights = {1, -2, 3};
+
+        // v1 = -c g1, w1 = w0 + 0.9 v1 - c g1
+        double[] g1 = AdamTest.gradient(weights);
+        double[] v = new double[3];
+        double[] expected = new double[3];
+        for (int i = 0; i < 3; i++) {
+            v[i] = -C * g1[i];
+            expected[i] = weights[i] + 0.9 * v[i] - C * g1[i];
+        }
+        nesterov.step(weights, g1, C, 0, 1);
+        assertArrayEquals(expected, weights, 1e-12);
+
+        // v2 = 0.9 v1 - c g2, w2 = w1 + 0.9 v2 - c g2
+        double[] g2 = AdamTest.gradient(weights);
+        for (int i = 0; i < 3; i++) {
+            v[i] = 0.9 * v[i] - C * g2[i];
+            expected[i] = weights[i] + 0.9 * v[i] - C * g2[i];
+        }
+        nesterov.step(weights, g2, C, 0, 2);
+        assertArrayEquals(expected, weights, 1e-12);
+    }
+
+    @Test
+    public void velocityIsResetWhenTheLengthChanges() {
+        Momentum momentum = new Momentum(false);
+        double[] weights = {1, -2, 3};
+        momentum.step(weights, AdamTest.gradient(weights), C, 0, 1);
+
+        double[] shorter = {1, -2};
+        momentum.step(shorter, new double[]{1, 1}, C, 0, 2);
+        assertArrayEquals(new double[]{1 - C, -2 - C}, shorter, 1e-12);
+    }
+
+    @Test
+    public void rollbackRestoresTheVelocity() {
+        Momentum momentum = new Momentum(true);
+        Momentum reference = new Momentum(true);
+        double[] a = {1, -2, 3};
+        double[] b = a.clone();
+        momentum.step(a, AdamTest.gradient(a), C, 0, 1);
+        reference.step(b, AdamTest.gradient(b), C, 0, 1);
+
+        momentum.snapshot();
+        momentum.step(a.clone(), new double[]{5, 5, 5}, C, 0, 2);
+        momentum.rollback();
+
+        momentum.step(a, AdamTest.gradient(a), C, 0, 2);
+        reference.step(b, AdamTest.gradient(b), C, 0, 2);
+        assertArrayEquals(b, a, 0);
+    }
+
+    @Test
+    public void bothFormsReduceTheQuadratic() {
+        for (boolean nesterov : new boolean[]{false, true}) {
+            Momentum momentum = new Momentum(nesterov);
+            double[] weights = {1, -2, 3};
+            double start = AdamTest.f(weights);
+            for (int step = 1; step <= 200; step++) {
+                momentum.step(weights, AdamTest.gradient(weights), C, 0, step);
+            }
+            assertTrue(momentum.optimizerName(), AdamTest.f(weights) < 0.01 * start);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package osu.crowd_ml.optimizers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link RMSProp} against hand-computed steps on the quadratic of {@link AdamTest}.
+ */
+public class RMSPropTest {
+
+    private static final double C = 0.01;
+    private static final double EPS = 1e-8;
+
+    @Test
+    public void firstStepsMatchMovingAverage() {
+        RMSProp rmsProp = new RMSProp();
+        double[] weights = {1, -2, 3};
+
+        // Step 1: the mean square is 0.1 g^2.
+        double[] g1 = AdamTest.gradient(weights);
+        double[] expected = new double[3];
+        double[] meanSquares = new double[3];
+        for (int i = 0; i < 3; i++) {
+            meanSquares[i] = 0.1 * g1[i] * g1[i];
+            expected[i] = weights[i] - C / Math.sqrt(meanSquares[i] + EPS) * g1[i];
+        }
+        rmsProp.step(weights, g1, C, EPS, 1);
+        assertArrayEquals(expected, weights, 1e-12);
+
+        // Step 2: 0.9 of the old mean square plus 0.1 g^2.
+        double[] g2 = AdamTest.gradient(weights);
+        for (int i = 0; i < 3; i++) {
+            meanSquares[i] = 0.9 * meanSquares[i] + 0.1 * g2[i] * g2[i];
+            expected[i] = weights[i] - C / Math.sqrt(meanSquares[i] + EPS) * g2[i];
+        }
+        rmsProp.step(weights, g2, C, EPS, 2);
+        assertArrayEquals(expected, weights, 1e-12);
+    }
+
+    @Test
+    public void stateIsResetWhenTheLengthChanges() {
+        RMSProp rmsProp = new RMSProp();
+        double[] weights = {1, -2, 3};
+        rmsProp.step(weights, AdamTest.gradient(weights), C, EPS, 1);
+
+        double[] shorter = {1, -2};
+        double[] g = {2, -0.5};
+        rmsProp.step(shorter, g, C, EPS, 2);
+        double[] expected = {1 - C / Math.sqrt(0.1 * 4 + EPS) * 2,
+                -2 + C / Math.sqrt(0.1 * 0.25 + EPS) * 0.5};
+        assertArrayEquals(expected, shorter, 1e-12);
+    }
+
+    @Test
+    public void reducesTheQuadratic() {
+        RMSProp rmsProp = new RMSProp();
+        double[] weights = {1, -2, 3};
+        double start = AdamTest.f(weights);
+        for (int step = 1; step <= 500; step++) {
+            rmsProp.step(weights, AdamTest.gradient(weights), C, EPS, step);
+        }
+        assertTrue(AdamTest.f(weights) < 0.01 * start);
+    }
+}
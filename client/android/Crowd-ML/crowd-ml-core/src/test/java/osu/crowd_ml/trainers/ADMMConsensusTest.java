@@ -0,0 +1,98 @@
+package osu.crowd_ml.trainers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link ADMMConsensus} with a few clients through several rounds. Client i has the loss
+ * c_i / 2 ||x - a_i||^2, whose local subproblem {@link ADMMTrainer} would solve approximately and
+ * the test solves exactly, so the consensus must reach sum c_i a_i / sum c_i.
+ */
+public class ADMMConsensusTest {
+
+    private static final int CLIENTS = 4;
+    private static final int D = 6;
+    private static final double RHO = 1;
+    private static final int ROUNDS = 30;
+
+    @Test
+    public void primalResidualShrinks() {
+        Random random = new Random(5);
+        double[][] a = new double[CLIENTS][D];
+        double[] c = new double[CLIENTS];
+        double[] optimum = new double[D];
+        double total = 0;
+        for (int i = 0; i < CLIENTS; i++) {
+            c[i] = 0.5 + random.nextDouble();
+            total += c[i];
+            for (int j = 0; j < D; j++) {
+                a[i][j] = random.nextGaussian();
+                optimum[j] += c[i] * a[i][j];
+            }
+        }
+        for (int j = 0; j < D; j++) {
+            optimum[j] /= total;
+        }
+
+        List<Double> initial = new ArrayList<>();
+        for (int j = 0; j < D; j++) {
+            initial.add(0.0);
+        }
+        ADMMConsensus consensus = new ADMMConsensus(initial, CLIENTS, RHO);
+        double[][] x = new double[CLIENTS][D];
+        double[][] u = new double[CLIENTS][D];
+
+        double first = Double.NaN;
+        double last = Double.NaN;
+        for (int round = 0; round < ROUNDS; round++) {
+            double[] z = consensus.consensus().clone();
+            for (int i = 0; i < CLIENTS; i++) {
+                // The steps of ADMMTrainer.train(): u += x - z, x = argmin of the local loss
+                // plus rho / 2 ||x - z + u||^2, send x + u.
+                List<Double> contribution = new ArrayList<>();
+                for (int j = 0; j < D; j++) {
+                    if (round > 0) {
+                        u[i][j] += x[i][j] - z[j];
+                    }
+                    x[i][j] = (c[i] * a[i][j] + RHO * (z[j] - u[i][j])) / (c[i] + RHO);
+                    contribution.add(x[i][j] + u[i][j]);
+                }
+                assertEquals(i == CLIENTS - 1, consensus.add(contribution));
+            }
+
+            double residual = 0;
+            for (int i = 0; i < CLIENTS; i++) {
+                for (int j = 0; j < D; j++) {
+                    double r = x[i][j] - consensus.consensus()[j];
+                    residual += r * r;
+                }
+            }
+            residual = Math.sqrt(residual);
+            if (round == 0) {
+                first = residual;
+            } else {
+                assertTrue("round " + round, residual <= last + 1e-12);
+            }
+            last = residual;
+        }
+
+        assertTrue(last < 1e-3 * first);
+        assertTrue(consensus.dualResidual() < 1e-3);
+        assertArrayEquals(optimum, consensus.consensus(), 1e-3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void contributionOfTheWrongLengthIsRejected() {
+        List<Double> initial = new ArrayList<>();
+        initial.add(0.0);
+        initial.add(0.0);
+        List<Double> contribution = new ArrayList<>();
+        contribution.add(1.0);
+        new ADMMConsensus(initial, 2, RHO).add(contribution);
+    }
+}
@@ -0,0 +1,192 @@
+package osu.crowd_ml.trainers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the L-BFGS direction of {@link CurvatureHistory} on the quadratic
+ * f(x) = 1/2 x^T A x - b^T x, whose gradient is A x - b and whose Newton step is -A^-1 grad.
+ */
+public class CurvatureHistoryTest {
+
+    private static final int N = 5;
+
+    private final Random random = new Random(3);
+    private final double[][] A = new double[N][N];
+    private final double[] b = new double[N];
+
+    public CurvatureHistoryTest() {
+        // A = B^T B + I is symmetric positive definite.
+        double[][] B = new double[N][N];
+        for (int i = 0; i < N; i++) {
+            b[i] = random.nextGaussian();
+            for (int j = 0; j < N; j++) {
+                B[i][j] = random.nextGaussian();
+            }
+        }
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double sum = i == j ? 1 : 0;
+                for (int k = 0; k < N; k++) {
+                    sum += B[k][i] * B[k][j];
+                }
+                A[i][j] = sum;
+            }
+        }
+    }
+
+    @Test
+    public void conjugateStepsGiveTheNewtonStep() {
+        // After N steps along A-conjugate directions BFGS has learned A^-1 exactly.
+        CurvatureHistory history = new CurvatureHistory(LBFGSTrainer.HISTORY, N);
+        double[][] steps = conjugateSteps();
+        double[] x = randomVector();
+        for (double[] s : steps) {
+            double[] next = x.clone();
+            for (int j = 0; j < N; j++) {
+                next[j] += s[j];
+            }
+            assertTrue(history.add(x, next, gradient(x), gradient(next)));
+            x = next;
+        }
+        assertEquals(N, history.size());
+
+        double[] grad = gradient(randomVector());
+        double[] direction = new double[N];
+        history.direction(grad, direction);
+        double[] product = multiply(direction);
+        for (int i = 0; i < N; i++) {
+            assertEquals(-grad[i], product[i], 1e-9);
+        }
+    }
+
+    @Test
+    public void olderPairsAreDroppedButTheDirectionStillDescends() {
+        CurvatureHistory history = new CurvatureHistory(2, N);
+        double[] x = randomVector();
+        for (int k = 0; k < 4; k++) {
+            double[] next = randomVector();
+            assertTrue(history.add(x, next, gradient(x), gradient(next)));
+            x = next;
+        }
+        assertEquals(2, history.size());
+
+        double[] grad = gradient(x);
+        double[] direction = new double[N];
+        history.direction(grad, direction);
+        assertTrue(CurvatureHistory.dot(grad, direction) < 0);
+    }
+
+    @Test
+    public void pairWithoutPositiveCurvatureIsSkipped() {
+        CurvatureHistory history = new CurvatureHistory(10, N);
+        double[] x = randomVector();
+        double[] next = randomVector();
+        assertTrue(history.add(x, next, gradient(x), gradient(next)));
+
+        double[] grad = gradient(next);
+        double[] before = new double[N];
+        history.direction(grad, before);
+
+        // s·y < 0: the gradient moved against the step.
+        assertFalse(history.add(x, next, gradient(next), gradient(x)));
+        // s·y = 0: no change of the gradient at all.
+        assertFalse(history.add(x, next, grad, grad));
+        assertEquals(1, history.size());
+
+        double[] after = new double[N];
+        history.direction(grad, after);
+        assertTrue(Arrays.equals(before, after));
+    }
+
+    @Test
+    public void rejectedPairLeavesAFullHistoryIntact() {
+        // With every slot taken the next pair would go to the oldest pair's row.
+        CurvatureHistory history = new CurvatureHistory(3, N);
+        double[] x = randomVector();
+        for (int k = 0; k < 4; k++) {
+            double[] next = randomVector();
+            assertTrue(history.add(x, next, gradient(x), gradient(next)));
+            x = next;
+        }
+        assertEquals(3, history.size());
+
+        double[] grad = gradient(x);
+        double[] before = new double[N];
+        history.direction(grad, before);
+
+        double[] next = randomVector();
+        assertFalse(history.add(x, next, gradient(next), gradient(x)));
+
+        double[] after = new double[N];
+        history.direction(grad, after);
+        assertTrue(Arrays.equals(before, after));
+    }
+
+    @Test
+    public void emptyHistoryGivesUnitSteepestDescent() {
+        CurvatureHistory history = new CurvatureHistory(10, N);
+        double[] x = randomVector();
+        double[] next = randomVector();
+        history.add(x, next, gradient(x), gradient(next));
+        history.clear();
+        assertEquals(0, history.size());
+
+        double[] grad = gradient(x);
+        double[] direction = new double[N];
+        history.direction(grad, direction);
+        double norm = Math.sqrt(CurvatureHistory.dot(grad, grad));
+        for (int i = 0; i < N; i++) {
+            assertEquals(-grad[i] / norm, direction[i], 1e-12);
+        }
+    }
+
+    /**
+     * @return N steps with s_i^T A s_j = 0 for i != j, by Gram-Schmidt in the A inner product.
+     */
+    private double[][] conjugateSteps() {
+        double[][] steps = new double[N][];
+        for (int k = 0; k < N; k++) {
+            double[] s = randomVector();
+            for (int i = 0; i < k; i++) {
+                double[] As = multiply(steps[i]);
+                double c = CurvatureHistory.dot(s, As) / CurvatureHistory.dot(steps[i], As);
+                for (int j = 0; j < N; j++) {
+                    s[j] -= c * steps[i][j];
+                }
+            }
+            steps[k] = s;
+        }
+        return steps;
+    }
+
+    private double[] gradient(double[] x) {
+        double[] g = multiply(x);
+        for (int i = 0; i < N; i++) {
+            g[i] -= b[i];
+        }
+        return g;
+    }
+
+    private double[] multiply(double[] x) {
+        double[] y = new double[N];
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                y[i] += A[i][j] * x[j];
+            }
+        }
+        return y;
+    }
+
+    private double[] randomVector() {
+        double[] x = new double[N];
+        for (int i = 0; i < N; i++) {
+            x[i] = random.nextGaussian();
+        }
+        return x;
+    }
+}
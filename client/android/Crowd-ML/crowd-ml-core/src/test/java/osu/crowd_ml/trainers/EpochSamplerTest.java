@@ -0,0 +1,85 @@
+package osu.crowd_ml.trainers;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EpochSamplerTest {
+
+    @Test
+    public void everySampleOncePerEpoch() {
+        int[] blockSizes = {1, 3, 7, 50};
+        for (int blockSize : blockSizes) {
+            int N = 47;
+            EpochSampler sampler = new EpochSampler(N, blockSize, new Random(blockSize));
+            for (int epoch = 0; epoch < 3; epoch++) {
+                int[] seen = new int[N];
+                for (int i = 0; i < N; i++) {
+                    seen[sampler.next()]++;
+                }
+                for (int n = 0; n < N; n++) {
+                    assertEquals("blockSize " + blockSize + ", sample " + n, 1, seen[n]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blocksAreContiguous() {
+        EpochSampler sampler = new EpochSampler(40, 8, new Random(3));
+        for (int block = 0; block < 5; block++) {
+            int first = sampler.next();
+            assertEquals(0, first % 8);
+            for (int i = 1; i < 8; i++) {
+                assertEquals(first + i, sampler.next());
+            }
+        }
+    }
+
+    @Test
+    public void rollbackRestoresCursor() {
+        int N = 20;
+        EpochSampler sampler = new EpochSampler(N, 1, new Random(5));
+        int[] drawn = new int[5];
+        sampler.next(drawn);
+
+        long snapshot = sampler.snapshot();
+        int[] discarded = new int[6];
+        sampler.next(discarded);
+        sampler.rollback(snapshot);
+        assertEquals(snapshot, sampler.snapshot());
+
+        // The rest of the epoch is the 15 samples not drawn before the snapshot.
+        boolean[] seen = new boolean[N];
+        for (int n : drawn) {
+            seen[n] = true;
+        }
+        for (int i = 0; i < N - drawn.length; i++) {
+            int n = sampler.next();
+            assertFalse("sample " + n + " drawn twice", seen[n]);
+            seen[n] = true;
+        }
+    }
+
+    @Test
+    public void rollbackAcrossEpochsStartsFreshEpoch() {
+        EpochSampler sampler = new EpochSampler(10, 1, new Random(9));
+        long snapshot = sampler.snapshot();
+        sampler.next(new int[15]);
+        sampler.rollback(snapshot);
+
+        boolean[] seen = new boolean[10];
+        for (int i = 0; i < 10; i++) {
+            int n = sampler.next();
+            assertFalse(seen[n]);
+            seen[n] = true;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyDataset() {
+        new EpochSampler(0, 1, new Random());
+    }
+}
@@ -0,0 +1,76 @@
+package osu.crowd_ml.trainers;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.optimizers.Optimizer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks when {@link InternalTrainer} keeps its optimizer state across rounds.
+ */
+public class InternalTrainerTest {
+
+    @After
+    public void tearDown() {
+        InternalTrainer.getInstance().destroy();
+    }
+
+    @Test
+    public void optimizerIsKeptWhileNothingChanges() {
+        Parameters params = params("adam", 1);
+        InternalTrainer trainer = trainer(params, 3);
+        Optimizer optimizer = trainer.maintainOptimizer();
+        assertEquals("adam", optimizer.optimizerName());
+
+        trainer.setIter(2).setWeights(Arrays.asList(0.5, 0.5, 0.5));
+        assertSame(optimizer, trainer.maintainOptimizer());
+    }
+
+    @Test
+    public void optimizerIsResetWhenTheParamIterChanges() {
+        Parameters params = params("adam", 1);
+        InternalTrainer trainer = trainer(params, 3);
+        Optimizer optimizer = trainer.maintainOptimizer();
+
+        params.setParamIter(2);
+        assertNotSame(optimizer, trainer.maintainOptimizer());
+    }
+
+    @Test
+    public void optimizerIsResetWhenTheLengthChanges() {
+        Parameters params = params("adam", 1);
+        InternalTrainer trainer = trainer(params, 3);
+        Optimizer optimizer = trainer.maintainOptimizer();
+
+        trainer.setWeights(Arrays.asList(0.0, 0.0));
+        assertNotSame(optimizer, trainer.maintainOptimizer());
+    }
+
+    @Test
+    public void optimizerIsResetWhenTheDescentAlgChanges() {
+        Parameters params = params("adam", 1);
+        InternalTrainer trainer = trainer(params, 3);
+        trainer.maintainOptimizer();
+
+        params.setDescentAlg("rmsProp");
+        assertEquals("rmsProp", trainer.maintainOptimizer().optimizerName());
+    }
+
+    private static Parameters params(String descentAlg, int paramIter) {
+        Parameters params = new Parameters();
+        params.setDescentAlg(descentAlg);
+        params.setParamIter(paramIter);
+        return params;
+    }
+
+    private static InternalTrainer trainer(Parameters params, int length) {
+        InternalTrainer trainer = (InternalTrainer) InternalTrainer.getInstance();
+        trainer.setParams(params).setIter(1).setWeights(Arrays.asList(new Double[length]));
+        return trainer;
+    }
+}
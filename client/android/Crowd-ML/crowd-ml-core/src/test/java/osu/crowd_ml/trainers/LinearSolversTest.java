@@ -0,0 +1,332 @@
+package osu.crowd_ml.trainers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.TrainingDataIO;
+import osu.crowd_ml.data.Batch;
+import osu.crowd_ml.data.DataSource;
+import osu.crowd_ml.data.FileDataSource;
+import osu.crowd_ml.data.IndexedTextReader;
+import osu.crowd_ml.data.LineIndex;
+import osu.crowd_ml.loss_functions.LinearLossFunction;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs SVRG, SAGA, SDCA and L-BFGS on a small linearly separable dataset read from text sources,
+ * and interrupts their rounds part way through.
+ */
+public class LinearSolversTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int N = 40;
+    private static final int D = 3;
+    private static final int ROUNDS = 5;
+    private static final int STEPS = 20;
+
+    private File dir;
+    private InterruptingSource source;
+    private Parameters params;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("crowdml", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        source = new InterruptingSource(new FileDataSource(dir, new File(dir, "cache")));
+        TrainingDataIO.getInstance().setDataSource(source);
+
+        // Two features and a bias, labelled by the larger of x, y and -x - y, at least 0.2 away
+        // from every boundary.
+        Random random = new Random(7);
+        StringBuilder features = new StringBuilder();
+        StringBuilder binaryLabels = new StringBuilder();
+        StringBuilder classLabels = new StringBuilder();
+        for (int i = 0; i < N; ) {
+            double x = 2 * random.nextDouble() - 1;
+            double y = 2 * random.nextDouble() - 1;
+            double[] s = {x, y, -x - y};
+            int best = 0;
+            for (int k = 1; k < 3; k++) {
+                if (s[k] > s[best]) {
+                    best = k;
+                }
+            }
+            boolean margin = Math.abs(x + y) >= 0.2;
+            for (int k = 0; k < 3; k++) {
+                margin &= k == best || s[best] - s[k] >= 0.2;
+            }
+            if (!margin) {
+                continue;
+            }
+            features.append(x).append(',').append(y).append(",1\n");
+            binaryLabels.append(x + y > 0 ? 1 : 0).append('\n');
+            classLabels.append(best).append('\n');
+            i++;
+        }
+        write("features.dat", features.toString());
+        write("binaryLabels.dat", binaryLabels.toString());
+        write("classLabels.dat", classLabels.toString());
+
+        params = new Parameters();
+        params.setFeatureSource("features.dat");
+        params.setD(D);
+        params.setN(N);
+        params.setL(1e-3);
+        params.setC(0.5);
+        params.setClientBatchSize(5);
+        params.setNoiseDistribution("NoNoise");
+        params.setDataFormat("text");
+        params.setDatasetCacheMB(0);
+    }
+
+    @After
+    public void tearDown() {
+        Thread.interrupted();
+        SVRGTrainer.getInstance().destroy();
+        SAGATrainer.getInstance().destroy();
+        SDCATrainer.getInstance().destroy();
+        LBFGSTrainer.getInstance().destroy();
+        delete(dir);
+    }
+
+    @Test
+    public void svrgReducesTheObjective() {
+        assertReducesObjective(SVRGTrainer.getInstance(), "LogReg");
+        assertReducesObjective(SVRGTrainer.getInstance(), "Softmax");
+    }
+
+    @Test
+    public void sagaReducesTheObjective() {
+        assertReducesObjective(SAGATrainer.getInstance(), "LogReg");
+        assertReducesObjective(SAGATrainer.getInstance(), "Softmax");
+    }
+
+    @Test
+    public void sdcaReducesTheObjective() {
+        assertReducesObjective(SDCATrainer.getInstance(), "Hinge");
+        assertReducesObjective(SDCATrainer.getInstance(), "LogReg");
+        assertReducesObjective(SDCATrainer.getInstance(), "Softmax");
+    }
+
+    @Test
+    public void lbfgsReducesTheObjective() {
+        assertReducesObjective(LBFGSTrainer.getInstance(), "LogReg");
+        assertReducesObjective(LBFGSTrainer.getInstance(), "Softmax");
+    }
+
+    @Test
+    public void lbfgsStopsOnceConverged() {
+        // The regularized LogReg objective has a unique minimum, reached long before 100000
+        // iterations; every further iteration would be another pass over the data.
+        Trainer trainer = LBFGSTrainer.getInstance();
+        useLoss("LogReg");
+        trainer.setParams(params).setIter(1).setWeights(zeros());
+        int opens = source.opens;
+        trainer.train(100000);
+        assertTrue(source.opens - opens < 10000);
+    }
+
+    @Test
+    public void interruptedSvrgRoundLeavesTheWeights() {
+        Trainer trainer = SVRGTrainer.getInstance();
+        List<Double> start = completeRound(trainer, "LogReg");
+
+        // The full pass reads 1 range; interrupt while reading the third minibatch after it.
+        source.interruptAt(source.opens + 2 * 4 - 1);
+        assertSame(start, trainer.train(STEPS));
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    public void interruptedSagaRoundLeavesTheWeightsAndTheTable() {
+        SAGATrainer trainer = (SAGATrainer) SAGATrainer.getInstance();
+        List<Double> start = completeRound(trainer, "Softmax");
+        double[] table = trainer.table.clone();
+        double[] average = trainer.average.clone();
+
+        source.interruptAt(source.opens + 2 * 3 - 1);
+        assertSame(start, trainer.train(STEPS));
+        assertTrue(Thread.interrupted());
+        assertArrayEquals(table, trainer.table, 0);
+        assertArrayEquals(average, trainer.average, 0);
+
+        // The next round starts from the restored state.
+        assertNotSame(start, trainer.train(STEPS));
+    }
+
+    @Test
+    public void interruptedSdcaRoundLeavesTheWeightsAndTheDuals() {
+        SDCATrainer trainer = (SDCATrainer) SDCATrainer.getInstance();
+        List<Double> start = completeRound(trainer, "Hinge");
+        double[] alpha = trainer.alpha.clone();
+
+        source.interruptAt(source.opens + 2 * 3 - 1);
+        assertSame(start, trainer.train(STEPS));
+        assertTrue(Thread.interrupted());
+        assertArrayEquals(alpha, trainer.alpha, 0);
+    }
+
+    @Test
+    public void shortSdcaRoundIsStillNoised() throws IOException {
+        // Only the first sample is left, so the first minibatch already comes up short.
+        write("features.dat", "0.5,0.5,1\n");
+        params.setNoiseDistribution("Gaussian");
+        params.setNoiseScale(1);
+        useLoss("Hinge");
+        List<Double> start = zeros();
+        Trainer trainer = SDCATrainer.getInstance();
+        trainer.setParams(params).setIter(1).setWeights(start);
+        List<Double> weights = trainer.train(STEPS);
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertNotEquals(start, weights);
+    }
+
+    /**
+     * Runs one round of the trainer from zero weights.
+     *
+     * @return the weights it ended with, also set as the start of the next round.
+     */
+    private List<Double> completeRound(Trainer trainer, String lossFunction) {
+        useLoss(lossFunction);
+        List<Double> weights = zeros();
+        trainer.setParams(params).setIter(1).setWeights(weights);
+        weights = trainer.train(STEPS);
+        assertFalse(Thread.currentThread().isInterrupted());
+        trainer.setIter(2).setWeights(weights);
+        return weights;
+    }
+
+    private void assertReducesObjective(Trainer trainer, String lossFunction) {
+        useLoss(lossFunction);
+        List<Double> weights = zeros();
+        double initial = objective(weights);
+        // The primal objective need not fall every round, SDCA only increases the dual.
+        for (int round = 1; round <= ROUNDS; round++) {
+            trainer.setParams(params).setIter(round).setWeights(weights);
+            weights = trainer.train(STEPS);
+        }
+        assertTrue(lossFunction, objective(weights) < 0.5 * initial);
+        trainer.destroy();
+    }
+
+    private void useLoss(String lossFunction) {
+        params.setLossFunction(lossFunction);
+        params.setK("Softmax".equals(lossFunction) ? 3 : 2);
+        params.setLabelSource("Softmax".equals(lossFunction)
+                ? "classLabels.dat" : "binaryLabels.dat");
+        params.getLossFunction().setLength(params);
+    }
+
+    private List<Double> zeros() {
+        List<Double> weights = new ArrayList<>();
+        for (int i = 0; i < params.getLossFunction().getLength(); i++) {
+            weights.add(0.0);
+        }
+        return weights;
+    }
+
+    /**
+     * @return the primal objective, the average loss plus L ||w||^2.
+     */
+    private double objective(List<Double> weights) {
+        LinearLossFunction loss = (LinearLossFunction) params.getLossFunction();
+        int K = params.getK();
+        int outputs = loss.scoreCount(K);
+        int[] all = new int[N];
+        for (int i = 0; i < N; i++) {
+            all[i] = i;
+        }
+        Batch batch = TrainingDataIO.getInstance().readBatch(all, params, null);
+        assertEquals(N, batch.size());
+
+        double sum = 0;
+        double[] scores = new double[outputs];
+        for (int i = 0; i < N; i++) {
+            for (int o = 0; o < outputs; o++) {
+                double dot = 0;
+                for (int j = 0; j < D; j++) {
+                    dot += weights.get(o * D + j) * batch.features()[i * D + j];
+                }
+                scores[o] = dot;
+            }
+            sum += loss.scoreGradient(scores, 0, K, batch.labels()[i], 1.0 / N);
+        }
+        for (double w : weights) {
+            sum += params.getL() * w * w;
+        }
+        return sum;
+    }
+
+    private void write(String name, String contents) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(dir, name));
+        try {
+            out.write(contents.getBytes(ASCII));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Interrupts the reading thread once a given number of indexed sources have been opened,
+     * two per minibatch.
+     */
+    private static final class InterruptingSource implements DataSource {
+
+        private final DataSource source;
+        int opens;
+        private int interruptAt = -1;
+
+        InterruptingSource(DataSource source) {
+            this.source = source;
+        }
+
+        void interruptAt(int open) {
+            interruptAt = open;
+        }
+
+        @Override
+        public InputStream open(String name) throws IOException {
+            return source.open(name);
+        }
+
+        @Override
+        public IndexedTextReader openIndexed(String name, LineIndex index) throws IOException {
+            if (++opens == interruptAt) {
+                Thread.currentThread().interrupt();
+            }
+            return source.openIndexed(name, index);
+        }
+
+        @Override
+        public long getSourceStamp(String name) {
+            return source.getSourceStamp(name);
+        }
+
+        @Override
+        public File getCacheDir() {
+            return source.getCacheDir();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package osu.crowd_ml.trainers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.loss_functions.MultiSVM;
+import osu.crowd_ml.loss_functions.Softmax;
+import osu.crowd_ml.loss_functions.SparseGradient;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link ParallelGradient} gives bitwise the same gradient for any thread count.
+ */
+public class ParallelGradientTest {
+
+    private static final int D = 50;
+    private static final int K = 10;
+    private static final double L = 1e-3;
+    private static final int[] THREADS = {1, 2, 3, 8};
+    // One shard, a few shards and the most shards.
+    private static final int[] BATCH_SIZES = {10, 50, 300};
+
+    private final Random random = new Random(42);
+    private final Softmax softmax = new Softmax();
+
+    @Test
+    public void denseIsIndependentOfThreads() {
+        final double[] weights = weights();
+        for (int B : BATCH_SIZES) {
+            final float[] X = new float[B * D];
+            for (int i = 0; i < X.length; i++) {
+                X[i] = random.nextInt(5) == 0 ? random.nextInt(256) / 255f : 0;
+            }
+            final int[] Y = labels(B);
+            final double scale = 1.0 / B;
+
+            double[] first = null;
+            for (int threads : THREADS) {
+                double[] grad = new double[weights.length];
+                ParallelGradient workers = new ParallelGradient(threads);
+                try {
+                    assertTrue(workers.run(B, new ParallelGradient.Shard() {
+                        @Override
+                        public void accumulate(int start, int end, double[] grad) {
+                            softmax.batchGradient(weights, X, Y, start, end, D, K, L, 0, scale,
+                                    grad);
+                        }
+                    }, grad));
+                } finally {
+                    workers.shutdown();
+                }
+                if (first == null) {
+                    first = grad;
+                } else {
+                    assertTrue("B=" + B + " threads=" + threads, Arrays.equals(first, grad));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void floatIsIndependentOfThreads() {
+        double[] w = weights();
+        final float[] weights = new float[w.length];
+        for (int i = 0; i < w.length; i++) {
+            weights[i] = (float) w[i];
+        }
+        for (int B : BATCH_SIZES) {
+            final float[] X = new float[B * D];
+            for (int i = 0; i < X.length; i++) {
+                X[i] = random.nextFloat();
+            }
+            final int[] Y = labels(B);
+            final float scale = 1f / B;
+
+            float[] first = null;
+            for (int threads : THREADS) {
+                float[] grad = new float[weights.length];
+                ParallelGradient workers = new ParallelGradient(threads);
+                try {
+                    assertTrue(workers.run(B, new ParallelGradient.FloatShard() {
+                        @Override
+                        public void accumulate(int start, int end, float[] grad) {
+                            softmax.batchGradient(weights, X, Y, start, end, D, K, (float) L, 0,
+                                    scale, grad);
+                        }
+                    }, grad));
+                } finally {
+                    workers.shutdown();
+                }
+                if (first == null) {
+                    first = grad;
+                } else {
+                    assertTrue("B=" + B + " threads=" + threads, Arrays.equals(first, grad));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void csrIsIndependentOfThreads() {
+        final double[] weights = weights();
+        for (int B : BATCH_SIZES) {
+            // A CSR batch with 0 to 9 nonzero features per sample.
+            final int[] rows = new int[B + 1];
+            int[] columns = new int[B * 10];
+            float[] values = new float[B * 10];
+            for (int b = 0; b < B; b++) {
+                int nnz = random.nextInt(10);
+                int column = 0;
+                rows[b + 1] = rows[b];
+                for (int k = 0; k < nnz && column < D; k++) {
+                    column += 1 + random.nextInt(5);
+                    if (column < D) {
+                        columns[rows[b + 1]] = column;
+                        values[rows[b + 1]] = (float) random.nextGaussian();
+                        rows[b + 1]++;
+                    }
+                }
+            }
+            final int[] cols = columns;
+            final float[] vals = values;
+            final int[] Y = labels(B);
+            final double scale = 1.0 / B;
+
+            double[] first = null;
+            for (int threads : THREADS) {
+                double[] grad = new double[weights.length];
+                ParallelGradient workers = new ParallelGradient(threads);
+                try {
+                    assertTrue(workers.run(B, new ParallelGradient.Shard() {
+                        @Override
+                        public void accumulate(int start, int end, double[] grad) {
+                            for (int b = start; b < end; b++) {
+                                softmax.addGradient(weights, cols, vals, rows[b], rows[b + 1],
+                                        Y[b], D, K, 0, scale, grad);
+                            }
+                        }
+                    }, grad));
+                } finally {
+                    workers.shutdown();
+                }
+                softmax.addRegularization(weights, D, K, L, 0, grad);
+                if (first == null) {
+                    first = grad;
+                } else {
+                    assertTrue("B=" + B + " threads=" + threads, Arrays.equals(first, grad));
+                }
+            }
+
+            // The lazy sparse path sums SparseGradients instead.
+            final MultiSVM svm = new MultiSVM();
+            double[] sparseFirst = null;
+            for (int threads : THREADS) {
+                SparseGradient grad = new SparseGradient(weights.length);
+                ParallelGradient workers = new ParallelGradient(threads);
+                try {
+                    assertTrue(workers.run(B, new ParallelGradient.SparseShard() {
+                        @Override
+                        public void accumulate(int start, int end, SparseGradient grad) {
+                            for (int b = start; b < end; b++) {
+                                svm.addScaledGradient(weights, 0.5, cols, vals, rows[b],
+                                        rows[b + 1], Y[b], D, K, 0, scale, grad);
+                            }
+                        }
+                    }, grad));
+                } finally {
+                    workers.shutdown();
+                }
+                double[] dense = new double[weights.length];
+                for (int k = 0; k < grad.size(); k++) {
+                    dense[grad.index(k)] = grad.value(k);
+                }
+                if (sparseFirst == null) {
+                    sparseFirst = dense;
+                } else {
+                    assertTrue("B=" + B + " threads=" + threads,
+                            Arrays.equals(sparseFirst, dense));
+                }
+            }
+        }
+    }
+
+    private double[] weights() {
+        Parameters params = new Parameters();
+        params.setD(D);
+        params.setK(K);
+        softmax.setLength(params);
+        double[] weights = new double[softmax.getLength()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextGaussian() * 0.1;
+        }
+        return weights;
+    }
+
+    private int[] labels(int B) {
+        int[] Y = new int[B];
+        for (int b = 0; b < B; b++) {
+            Y[b] = random.nextInt(K);
+        }
+        return Y;
+    }
+}
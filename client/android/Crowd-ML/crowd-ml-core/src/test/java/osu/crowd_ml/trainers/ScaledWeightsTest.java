@@ -0,0 +1,136 @@
+package osu.crowd_ml.trainers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import osu.crowd_ml.Parameters;
+import osu.crowd_ml.loss_functions.Hinge;
+import osu.crowd_ml.loss_functions.LogReg;
+import osu.crowd_ml.loss_functions.MultiSVM;
+import osu.crowd_ml.loss_functions.ScaledLossFunction;
+import osu.crowd_ml.loss_functions.Softmax;
+import osu.crowd_ml.loss_functions.SparseGradient;
+import osu.crowd_ml.utils.ArrayUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the lazily regularized path, {@link ScaledLossFunction#addScaledGradient} on
+ * {@link ScaledWeights}, gives the same gradients and steps as the dense path on the same batch.
+ */
+public class ScaledWeightsTest {
+
+    private static final int D = 20;
+    private static final int K = 4;
+    private static final int B = 16;
+    private static final double L = 1e-2;
+
+    private final Random random = new Random(17);
+
+    // A pixel-like batch, dense and in CSR form.
+    private final float[] X = new float[B * D];
+    private final int[] rows = new int[B + 1];
+    private final int[] columns = new int[B * D];
+    private final float[] values = new float[B * D];
+
+    public ScaledWeightsTest() {
+        for (int b = 0; b < B; b++) {
+            rows[b + 1] = rows[b];
+            for (int j = 0; j < D; j++) {
+                if (random.nextInt(4) == 0) {
+                    X[b * D + j] = random.nextInt(256) / 255f;
+                    columns[rows[b + 1]] = j;
+                    values[rows[b + 1]] = X[b * D + j];
+                    rows[b + 1]++;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void scaledGradientMatchesTheDenseOne() {
+        ScaledLossFunction[] losses = {new LogReg(), new Hinge(), new Softmax(), new MultiSVM()};
+        for (ScaledLossFunction loss : losses) {
+            boolean binary = "binary".equals(loss.lossType());
+            int k = binary ? 2 : K;
+            int[] Y = labels(binary);
+            ScaledWeights scaled = new ScaledWeights();
+            scaled.set(weights(loss, k));
+            scaled.shrink(0.3);
+
+            SparseGradient sparse = new SparseGradient(scaled.values().length);
+            for (int b = 0; b < B; b++) {
+                loss.addScaledGradient(scaled.values(), scaled.scale(), columns, values, rows[b],
+                        rows[b + 1], Y[b], D, k, 0, 1.0 / B, sparse);
+            }
+            double[] w = ArrayUtils.toArray(scaled.toList(), new double[scaled.values().length]);
+            double[] dense = new double[w.length];
+            loss.batchGradient(w, X, Y, 0, B, D, k, 0, 0, 1.0 / B, dense);
+
+            for (int i = 0; i < dense.length; i++) {
+                assertEquals(loss.lossFunctionName() + " [" + i + "]", dense[i], sparse.get(i),
+                        1e-12 * Math.max(1, Math.abs(dense[i])));
+            }
+        }
+    }
+
+    @Test
+    public void scaledStepsMatchTheDenseOnes() {
+        // Each step shrinks the scale by 0.8, so it is folded back into the values on the way.
+        LogReg loss = new LogReg();
+        int[] Y = labels(true);
+        List<Double> start = weights(loss, 2);
+        ScaledWeights scaled = new ScaledWeights();
+        scaled.set(start);
+        double[] w = ArrayUtils.toArray(start, new double[D]);
+        double rate = 10;
+        SparseGradient sparse = new SparseGradient(w.length);
+        for (int step = 0; step < 50; step++) {
+            double[] grad = new double[w.length];
+            loss.batchGradient(w, X, Y, 0, B, D, 2, L, 0, 1.0 / B, grad);
+            for (int i = 0; i < w.length; i++) {
+                w[i] -= rate * grad[i];
+            }
+
+            // As InternalTrainer.calcWeight() does.
+            sparse.clear();
+            for (int b = 0; b < B; b++) {
+                loss.addScaledGradient(scaled.values(), scaled.scale(), columns, values, rows[b],
+                        rows[b + 1], Y[b], D, 2, 0, 1.0 / B, sparse);
+            }
+            scaled.shrink(1 - 2 * rate * L);
+            for (int k = 0; k < sparse.size(); k++) {
+                scaled.add(sparse.index(k), -rate * sparse.value(k));
+            }
+        }
+        assertTrue(scaled.scale() > ScaledWeights.MIN_SCALE && scaled.scale() < 1);
+
+        List<Double> actual = scaled.toList();
+        for (int i = 0; i < w.length; i++) {
+            assertEquals("[" + i + "]", w[i], actual.get(i), 1e-9 * Math.max(1, Math.abs(w[i])));
+        }
+    }
+
+    private List<Double> weights(ScaledLossFunction loss, int k) {
+        Parameters params = new Parameters();
+        params.setD(D);
+        params.setK(k);
+        loss.setLength(params);
+        List<Double> weights = new ArrayList<>();
+        for (int i = 0; i < loss.getLength(); i++) {
+            weights.add(random.nextGaussian() * 0.1);
+        }
+        return weights;
+    }
+
+    private int[] labels(boolean binary) {
+        int[] Y = new int[B];
+        for (int b = 0; b < B; b++) {
+            Y[b] = binary ? 2 * random.nextInt(2) - 1 : random.nextInt(K);
+        }
+        return Y;
+    }
+}
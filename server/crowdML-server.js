@@ -59,6 +59,25 @@ function loadConfig() {
 
 	// Additions
 	config.c = config.naughtRate;
+	config.localSolver = config.localSolver || "sgd";
+	config.admmRho = config.admmRho || 1;
+	config.sampleBlockSize = config.sampleBlockSize || 1;
+	config.hiddenLayers = config.hiddenLayers || "";
+	config.precision = config.precision || "float64";
+	// 0 means one thread per processor, so only fill in missing values.
+	if (config.gradientThreads === undefined) {
+		config.gradientThreads = 1;
+	}
+	if (config.hogwildThreads === undefined) {
+		config.hogwildThreads = 1;
+	}
+	config.dataFormat = config.dataFormat || "binary";
+	config.featureStorage = config.featureStorage || "auto";
+	config.sparseFeatures = config.sparseFeatures || false;
+	// 0 is a valid value, so only fill in a missing one.
+	if (config.datasetCacheMB === undefined) {
+		config.datasetCacheMB = 64;
+	}
 	config.testFreq = config.testFrequency;
 	config.weightBatchSize = 0;
 	config.weightBatch = [];
@@ -76,20 +95,52 @@ function loadConfig() {
 		config.length = D * K;
 	}
 	if (config.lossFunction == 'SoftmaxNN') {
-		config.length = D * nh + nh + nh * nh + nh + nh * K + K;
+		// Weights and biases of each layer, as laid out by the client's MLP.
+		var widths = [D].concat(parseHiddenLayers(), [K]);
+		config.length = 0;
+		for (var l = 0; l + 1 < widths.length; l++) {
+			config.length += widths[l] * widths[l + 1] + widths[l + 1];
+		}
 	}
 	config.adaG = new Array(config.length);
 	config.rms = new Array(config.length);
+	config.adamM = new Array(config.length);
+	config.adamV = new Array(config.length);
+	config.adamT = 0;
+	config.velocity = new Array(config.length);
 	config.initWeight = new Array(config.length);
 	for(i = 0; i < config.length; i++){
 		config.initWeight[i] = (Math.random() - 0.5);
 		//initWeight[i] = 1;
 		config.adaG[i] = 0;
 		config.rms[i] = 0;
+		config.adamM[i] = 0;
+		config.adamV[i] = 0;
+		config.velocity[i] = 0;
 	}
 	config.weightSet = [config.initWeight, config.iterArray];
 }
 
+/*
+ * The SoftmaxNN hidden layer widths: the comma separated hiddenLayers, or two layers of width nh.
+ */
+function parseHiddenLayers() {
+	if (config.hiddenLayers.trim() === "") {
+		return [config.nh, config.nh];
+	}
+	var widths = config.hiddenLayers.split(",").map(function (width) {
+		return /^\s*[0-9]+\s*$/.test(width) ? parseInt(width, 10) : NaN;
+	});
+	if (widths.some(function (width) { return !(width > 0); })) {
+		console.log(new Error(
+			"Error: Invalid hiddenLayers:\n" +
+			"  Expecting positive layer widths separated by commas, e.g. \"128,64\"\n" +
+			"  Instead found: " + config.hiddenLayers));
+		process.exit(ERROR_CODE);
+	}
+	return widths;
+}
+
 function setupFirebase() {
 	firebase.initializeApp({
 		serviceAccount: config.serviceAccount,
@@ -107,10 +158,14 @@ function setupFirebase() {
 
 function validateConfig() {
 	// Update the Server README with changes also
-	var supportedDescentAlgs = ["constant", "adagrad", "simple", "sqrt", "rmsProp", "tf"];
+	var supportedDescentAlgs = ["constant", "adagrad", "simple", "sqrt", "rmsProp", "adam", "momentum", "nesterov", "tf"];
 	var supportedTestTypes = ["None", "binaryTest", "multiTest", "NNTest"];
 	var supportedNoiseDistributions = ["NoNoise", "Gaussian", "Laplace"];
 	var supportedLossFunctions = ["LogReg", "Hinge", "Softmax", "SoftmaxNN", "tf"];
+	var supportedLocalSolvers = ["sgd", "svrg", "saga", "sdca", "lbfgs", "admm"];
+	var supportedDataFormats = ["binary", "text", "libsvm"];
+	var supportedFeatureStorages = ["auto", "float32", "uint8"];
+	var supportedPrecisions = ["float64", "float32"];
 
 	if (!supportedDescentAlgs.includes(config.descentAlg)) {
 		console.log(new Error(
@@ -143,6 +198,77 @@ function validateConfig() {
 			"  Instead found: " + config.lossFunction));
 		process.exit(ERROR_CODE);
 	}
+
+	if (!supportedLocalSolvers.includes(config.localSolver)) {
+		console.log(new Error(
+			"Error: Invalid localSolver:\n" +
+			"  Expecting one of the supportedLocalSolvers: " + supportedLocalSolvers + "\n" +
+			"  Instead found: " + config.localSolver));
+		process.exit(ERROR_CODE);
+	}
+
+	if (!supportedDataFormats.includes(config.dataFormat)) {
+		console.log(new Error(
+			"Error: Invalid dataFormat:\n" +
+			"  Expecting one of the supportedDataFormats: " + supportedDataFormats + "\n" +
+			"  Instead found: " + config.dataFormat));
+		process.exit(ERROR_CODE);
+	}
+
+	if (!supportedFeatureStorages.includes(config.featureStorage)) {
+		console.log(new Error(
+			"Error: Invalid featureStorage:\n" +
+			"  Expecting one of the supportedFeatureStorages: " + supportedFeatureStorages + "\n" +
+			"  Instead found: " + config.featureStorage));
+		process.exit(ERROR_CODE);
+	}
+
+	if (!supportedPrecisions.includes(config.precision)) {
+		console.log(new Error(
+			"Error: Invalid precision:\n" +
+			"  Expecting one of the supportedPrecisions: " + supportedPrecisions + "\n" +
+			"  Instead found: " + config.precision));
+		process.exit(ERROR_CODE);
+	}
+
+	validateInteger("datasetCacheMB", 0);
+	validateInteger("sampleBlockSize", 1);
+	validateInteger("gradientThreads", 0);
+	validateInteger("hogwildThreads", 0);
+
+	if (config.testType == "NNTest" && config.hiddenLayers.trim() !== "") {
+		console.log(new Error(
+			"Error: Invalid hiddenLayers:\n" +
+			"  testType NNTest only evaluates two hidden layers of width nh\n" +
+			"  Instead found: " + config.hiddenLayers));
+		process.exit(ERROR_CODE);
+	}
+
+	if (config.hogwildThreads !== 1 && config.precision == "float32") {
+		console.log(new Error(
+			"Error: Invalid precision:\n" +
+			"  Hogwild (hogwildThreads other than 1) only computes float64 gradients\n" +
+			"  Instead found: " + config.precision));
+		process.exit(ERROR_CODE);
+	}
+
+	if (typeof config.sparseFeatures !== "boolean") {
+		console.log(new Error(
+			"Error: Invalid sparseFeatures:\n" +
+			"  Expecting true or false\n" +
+			"  Instead found: " + config.sparseFeatures));
+		process.exit(ERROR_CODE);
+	}
+}
+
+function validateInteger(field, min) {
+	if (!Number.isInteger(config[field]) || config[field] < min) {
+		console.log(new Error(
+			"Error: Invalid " + field + ":\n" +
+			"  Expecting an integer >= " + min + "\n" +
+			"  Instead found: " + config[field]));
+		process.exit(ERROR_CODE);
+	}
 }
 
 /*
@@ -166,11 +292,18 @@ function setupListeners() {
 		L: config.L,
 		N: config.N,
 		nh: config.nh,
+		hiddenLayers: config.hiddenLayers,
 		eps: config.eps,
 		maxIter: config.maxIter,
 		clientBatchSize: config.clientBatchSize,
+		sampleBlockSize: config.sampleBlockSize,
+		gradientThreads: config.gradientThreads,
+		precision: config.precision,
+		hogwildThreads: config.hogwildThreads,
 		// Necessary for client-side weight calculation
 		localUpdateNum: config.localUpdateNum,
+		localSolver: config.localSolver,
+		admmRho: config.admmRho,
 
 		// Privacy
 		noiseDistribution: config.noiseDistribution,
@@ -179,6 +312,10 @@ function setupListeners() {
 		// Data
 		labelSource: config.labelSource,
 		featureSource: config.featureSource,
+		dataFormat: config.dataFormat,
+		datasetCacheMB: config.datasetCacheMB,
+		featureStorage: config.featureStorage,
+		sparseFeatures: config.sparseFeatures,
 	});
 	console.log("[ Init: parameters set        ]");
 	console.log("[ Init: complete              ]");
@@ -285,6 +422,27 @@ function addToGradBatch(gradient) {
 					newWeight[i] = config.currentWeight[i] - (learningRate * avgGradient[i]);
 				}
 				break;
+			case 'adam':
+				config.adamT++;
+				learningRate = c * Math.sqrt(1 - Math.pow(0.999, config.adamT)) / (1 - Math.pow(0.9, config.adamT));
+				for (i = 0; i < length; i++) {
+					config.adamM[i] = 0.9 * config.adamM[i] + 0.1 * avgGradient[i];
+					config.adamV[i] = 0.999 * config.adamV[i] + 0.001 * avgGradient[i] * avgGradient[i];
+					newWeight[i] = config.currentWeight[i] - learningRate * config.adamM[i] / (Math.sqrt(config.adamV[i]) + eps);
+				}
+				break;
+			case 'momentum':
+			case 'nesterov':
+				for (i = 0; i < length; i++) {
+					var step = c * avgGradient[i];
+					config.velocity[i] = 0.9 * config.velocity[i] - step;
+					if (config.descentAlg == 'nesterov') {
+						newWeight[i] = config.currentWeight[i] + 0.9 * config.velocity[i] - step;
+					} else {
+						newWeight[i] = config.currentWeight[i] + config.velocity[i];
+					}
+				}
+				break;
 			case 'tf':
 				newWeight = config.currentWeight;
 				break;
@@ -309,6 +467,16 @@ function addToWeightBatch(weightArray) {
 			newWeight[i] = sum / config.maxWeightBatchSize;
 		}
 
+		// With the admm local solver clients send x + u, and their average is the consensus
+		// update. ADMMConsensus.java is the Java counterpart.
+		if (config.localSolver == 'admm') {
+			var moved = 0;
+			for (i = 0; i < newWeight.length; i++) {
+				moved += Math.pow(newWeight[i] - config.currentWeight[i], 2);
+			}
+			console.log("ADMM dual residual: " + config.admmRho * Math.sqrt(config.maxWeightBatchSize * moved));
+		}
+
 		config.testNum++;
 		if (config.testNum == config.testFreq) {
 			config.testNum = 0;